@@ -6,12 +6,14 @@ plugins {
     id("maven-publish")
     id("signing")
     id("net.nemerosa.versioning") version "2.8.2"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 version = versioning.info.display
 
 dependencies {
     implementation("org.apache.curator:curator-recipes:5.5.0")
+    compileOnly("io.micrometer:micrometer-core:1.12.5")
 
     testImplementation(libs.junit.jupiter)
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
@@ -23,6 +25,11 @@ dependencies {
     testImplementation("eu.rekawek.toxiproxy:toxiproxy-java:2.1.7")
     testImplementation("org.mockito:mockito-core:4.11.0")
     testImplementation("ch.qos.logback:logback-classic:1.3.14")
+    testImplementation("io.micrometer:micrometer-core:1.12.5")
+
+    jmh("org.apache.curator:curator-test:5.5.0")
+    jmh("ch.qos.logback:logback-classic:1.3.14")
+    jmh("io.micrometer:micrometer-core:1.12.5")
 }
 
 java {
@@ -48,6 +55,40 @@ sourceSets {
         compileClasspath += sourceSets["main"].output + configurations["testRuntimeClasspath"]
         runtimeClasspath += output + compileClasspath
     }
+    create("java21") {
+        java.srcDir(file("src/main/java21"))
+        compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+    }
+    create("java21Test") {
+        java.srcDir(file("src/test/java21"))
+        compileClasspath += sourceSets["java21"].output + sourceSets["main"].output + configurations["testRuntimeClasspath"]
+        runtimeClasspath += output + compileClasspath
+    }
+}
+
+listOf("compileJava21Java", "compileJava21TestJava").forEach { name ->
+    tasks.named<JavaCompile>(name) {
+        javaCompiler.set(javaToolchains.compilerFor {
+            languageVersion.set(JavaLanguageVersion.of(21))
+        })
+        options.release.set(21)
+    }
+}
+
+tasks.named<Jar>("jar") {
+    into("META-INF/versions/21") {
+        from(sourceSets["java21"].output)
+    }
+    manifest {
+        attributes("Multi-Release" to "true")
+    }
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    // e.g. ./gradlew jmh -Pjmh.includes=AcquireReleaseBenchmark.uncontended
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
 }
 
 tasks.named<Test>("test") {
@@ -63,8 +104,21 @@ tasks.register<Test>("integrationTest") {
     useJUnitPlatform()
 }
 
+tasks.register<Test>("java21Test") {
+    description = "Runs the JDK 21 tests against the multi-release classes."
+    group = "verification"
+    testClassesDirs = sourceSets["java21Test"].output.classesDirs
+    classpath = sourceSets["java21Test"].runtimeClasspath
+    javaLauncher.set(javaToolchains.launcherFor {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    })
+    jvmArgs("-Djdk.tracePinnedThreads=full")
+
+    useJUnitPlatform()
+}
+
 tasks.named("check") {
-    dependsOn(tasks.named("test"), tasks.named("integrationTest"))
+    dependsOn(tasks.named("test"), tasks.named("integrationTest"), tasks.named("java21Test"))
 }
 
 publishing {
@@ -0,0 +1,159 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency and throughput of acquiring and releasing locks against an in-process Zookeeper, for
+ * each of the lock recipes offered by {@link ZookeeperDistributedLock}.
+ *
+ * <ul>
+ *     <li>{@code uncontended}: a single thread locking a single key,</li>
+ *     <li>{@code contendedNN}: {@code NN} threads locking the same key,</li>
+ *     <li>{@code spreadNN}: {@code NN} threads locking random keys out of {@value #SPREAD_KEYS},</li>
+ *     <li>{@code close}: closing an Acquisition, with the lock acquired outside of the measurement.</li>
+ * </ul>
+ *
+ * <p>The {@code SampleTime} results of the {@code contendedNN} benchmarks report the p50, p99 and p999
+ * latencies of acquiring and releasing a contended lock, where {@code fair} hands the lock over to a single
+ * waiter per release and {@code semaphoreMutex} wakes up all of them. Run with the {@code gc} profiler and
+ * compare {@code gc.alloc.rate.norm} for the allocations per operation. Absolute numbers are dominated by the round trips to Zookeeper, so compare recipes and thread
+ * counts with each other rather than across machines.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AcquireReleaseBenchmark {
+
+    static final int SPREAD_KEYS = 1024;
+
+    private static final String KEY = "/benchmark/acquire-release/key";
+    private static final String SPREAD_KEY_PREFIX = "/benchmark/acquire-release/spread-";
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    /**
+     * The lock recipe: {@code semaphoreMutex} for the default lock function of
+     * {@link ZookeeperDistributedLock#acquire(String, Duration)}, {@code mutex} for Curator's
+     * {@link InterProcessMutex}, {@code fair} for {@link FairLockFactory} and {@code sequential} for
+     * {@link ZookeeperDistributedLock#acquireAsync(String, Duration)}.
+     */
+    @Param({"semaphoreMutex", "mutex", "fair", "sequential"})
+    String recipe;
+
+    TestingServer server;
+    CuratorFramework client;
+    FairLockFactory fairLocks;
+    ZookeeperDistributedLock distributedLock;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        client.start();
+        client.blockUntilConnected();
+
+        ZookeeperDistributedLock.Builder builder = ZookeeperDistributedLock.builder(client);
+        if ("mutex".equals(recipe)) {
+            builder.lockFunction(path -> new InterProcessMutex(client, path));
+        } else if ("fair".equals(recipe)) {
+            fairLocks = new FairLockFactory(client);
+            builder.lockFunction(fairLocks);
+        }
+        distributedLock = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        distributedLock.close();
+        if (fairLocks != null) {
+            fairLocks.close();
+        }
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void uncontended() throws Exception {
+        acquire(KEY).release();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void contended04() throws Exception {
+        acquire(KEY).release();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void contended16() throws Exception {
+        acquire(KEY).release();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void spread04() throws Exception {
+        acquire(spreadKey()).release();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void spread16() throws Exception {
+        acquire(spreadKey()).release();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void close(HeldLock held) throws Exception {
+        held.acquisition.close();
+    }
+
+    Acquisition acquire(String key) throws Exception {
+        if ("sequential".equals(recipe)) {
+            return distributedLock.acquireAsync(key, TIMEOUT).get();
+        }
+        return distributedLock.acquire(key, TIMEOUT);
+    }
+
+    private static String spreadKey() {
+        return SPREAD_KEY_PREFIX + ThreadLocalRandom.current().nextInt(SPREAD_KEYS);
+    }
+
+    /**
+     * A lock acquired before each invocation, so that {@link #close(HeldLock)} only measures the release.
+     */
+    @State(Scope.Thread)
+    public static class HeldLock {
+
+        Acquisition acquisition;
+
+        @Setup(Level.Invocation)
+        public void acquire(AcquireReleaseBenchmark benchmark) throws Exception {
+            acquisition = benchmark.acquire(KEY);
+        }
+    }
+}
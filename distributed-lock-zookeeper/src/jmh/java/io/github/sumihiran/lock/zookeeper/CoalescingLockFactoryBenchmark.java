@@ -0,0 +1,137 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Measures the number of Zookeeper lock acquisitions per local acquisition when many threads of a single
+ * JVM contend for the same key, with and without a {@link CoalescingLockFactory}.
+ *
+ * <p>The {@code zookeeperAcquisitions} counter divided by the {@code localAcquisitions} counter gives the
+ * Zookeeper lock round trips (node creates, deletes and watch fires) per local acquisition.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(200)
+@Fork(1)
+public class CoalescingLockFactoryBenchmark {
+
+    @Param({"false", "true"})
+    boolean coalesce;
+
+    TestingServer server;
+    CuratorFramework client;
+    CoalescingLockFactory coalescingLockFactory;
+    ZookeeperDistributedLock distributedLock;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        client.start();
+        client.blockUntilConnected();
+
+        Function<String, InterProcessLock> lockFunction = path -> new CountingLock(new InterProcessSemaphoreMutex(client, path));
+        if (coalesce) {
+            coalescingLockFactory = new CoalescingLockFactory(client, lockFunction);
+            lockFunction = coalescingLockFactory;
+        }
+        distributedLock = new ZookeeperDistributedLock(client, lockFunction);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        distributedLock.close();
+        if (coalescingLockFactory != null) {
+            coalescingLockFactory.close();
+        }
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void acquireAndReleaseContendedKey(Counters counters) throws Exception {
+        Counters.CURRENT.set(counters);
+        distributedLock.acquire("/benchmark/coalescing/contended-key", Duration.ofMinutes(1)).release();
+        counters.localAcquisitions++;
+    }
+
+    /**
+     * Per-thread counters reported next to the benchmark score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        static final ThreadLocal<Counters> CURRENT = new ThreadLocal<>();
+
+        public long localAcquisitions;
+        public long zookeeperAcquisitions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            localAcquisitions = 0;
+            zookeeperAcquisitions = 0;
+        }
+    }
+
+    /**
+     * Counts Zookeeper lock acquisitions on the thread performing them.
+     */
+    static final class CountingLock implements InterProcessLock {
+
+        private final InterProcessLock delegate;
+
+        CountingLock(InterProcessLock delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void acquire() throws Exception {
+            Counters.CURRENT.get().zookeeperAcquisitions++;
+            delegate.acquire();
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) throws Exception {
+            Counters.CURRENT.get().zookeeperAcquisitions++;
+            return delegate.acquire(time, unit);
+        }
+
+        @Override
+        public void release() throws Exception {
+            delegate.release();
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return delegate.isAcquiredInThisProcess();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compares the allocation rate per acquire/release of a hot key with and without an
+ * {@link InterProcessLockCache}. Run with the {@code gc} profiler and compare {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterProcessLockCacheBenchmark {
+
+    @Param({"false", "true"})
+    boolean cached;
+
+    TestingServer server;
+    CuratorFramework client;
+    ZookeeperDistributedLock distributedLock;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        client.start();
+        client.blockUntilConnected();
+
+        Function<String, InterProcessLock> lockFunction = path -> new InterProcessSemaphoreMutex(client, path);
+        if (cached) {
+            lockFunction = new InterProcessLockCache(lockFunction, 1024, Duration.ofMinutes(1));
+        }
+        distributedLock = new ZookeeperDistributedLock(client, lockFunction);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        distributedLock.close();
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void acquireAndReleaseHotKey() throws Exception {
+        distributedLock.acquire("/benchmark/cache/hot-key", Duration.ofSeconds(10)).release();
+    }
+}
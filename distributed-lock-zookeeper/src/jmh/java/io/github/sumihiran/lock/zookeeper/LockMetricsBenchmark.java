@@ -0,0 +1,65 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.sumihiran.lock.zookeeper.metrics.JfrLockMetrics;
+import io.github.sumihiran.lock.zookeeper.metrics.LockMetrics;
+import io.github.sumihiran.lock.zookeeper.metrics.MicrometerLockMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of recording the lifecycle of a lock with each {@link LockMetrics} binding. Run with the
+ * {@code gc} profiler: {@code gc.alloc.rate.norm} is expected to be zero for all of them, as long as no
+ * flight recording is running for the JFR events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockMetricsBenchmark {
+
+    private static final String[] KEYS = {"/orders/1", "/orders/2", "/payments/1", "/payments/2"};
+
+    @Param({"noop", "micrometer", "jfr"})
+    String binding;
+
+    LockMetrics metrics;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (binding) {
+          case "micrometer":
+              metrics = new MicrometerLockMetrics(new SimpleMeterRegistry());
+              break;
+          case "jfr":
+              metrics = new JfrLockMetrics();
+              break;
+          default:
+              metrics = LockMetrics.NOOP;
+        }
+    }
+
+    @Benchmark
+    public void acquireAndRelease() {
+        String key = KEYS[next++ & (KEYS.length - 1)];
+        metrics.acquireStarted(key);
+        metrics.acquired(key, 1_000_000L);
+        metrics.released(key, 5_000_000L);
+    }
+}
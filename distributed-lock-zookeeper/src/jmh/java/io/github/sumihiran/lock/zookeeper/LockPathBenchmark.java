@@ -0,0 +1,130 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures locking random keys out of a growing number of distinct keys below the same parent, with the key
+ * as the lock path and with hash buckets.
+ *
+ * <ul>
+ *     <li>{@code acquireRelease}: locking and unlocking a random key,</li>
+ *     <li>{@code listParent}: listing the parent of a random lock path, as watchers and tools inspecting the
+ *     locks do.</li>
+ * </ul>
+ *
+ * <p>The lock paths of all keys are created before the measurement. Latencies should stay flat as the
+ * number of keys grows with {@code hashBuckets}, whereas listing the parent grows linearly with the number
+ * of keys with {@code identity}. Populating a million keys takes a while and needs a heap of about 1 GB.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LockPathBenchmark {
+
+    private static final String KEY_PREFIX = "/benchmark/lock-paths/order/";
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+    private static final int MAX_PENDING_CREATES = 1000;
+
+    /**
+     * The lock path strategy: {@code identity} for the key itself, or {@code hashBuckets} for two levels
+     * of hash buckets.
+     */
+    @Param({"identity", "hashBuckets"})
+    String strategy;
+
+    @Param({"1000", "100000", "1000000"})
+    int keyCount;
+
+    TestingServer server;
+    CuratorFramework client;
+    LockPathStrategy lockPaths;
+    ZookeeperDistributedLock distributedLock;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        client.start();
+        client.blockUntilConnected();
+
+        lockPaths = "hashBuckets".equals(strategy) ? LockPathStrategy.hashBuckets(2) : LockPathStrategy.identity();
+        distributedLock = ZookeeperDistributedLock.builder(client)
+            .lockPaths(lockPaths)
+            .build();
+        createLockPaths();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        distributedLock.close();
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void acquireRelease() throws Exception {
+        distributedLock.acquire(randomKey(), TIMEOUT).release();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<String> listParent() throws Exception {
+        return client.getChildren().forPath(ZKPaths.getPathAndNode(lockPaths.lockPath(randomKey())).getPath());
+    }
+
+    private String randomKey() {
+        return KEY_PREFIX + ThreadLocalRandom.current().nextInt(keyCount);
+    }
+
+    /**
+     * Creates the lock paths of all keys in the background, with a bounded number of pending requests.
+     */
+    private void createLockPaths() throws Exception {
+        Semaphore pending = new Semaphore(MAX_PENDING_CREATES);
+        AtomicReference<KeeperException> failure = new AtomicReference<>();
+        for (int id = 0; id < keyCount && failure.get() == null; id++) {
+            pending.acquire();
+            client.create().creatingParentsIfNeeded().inBackground((c, event) -> {
+                KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+                if (code != KeeperException.Code.OK) {
+                    failure.compareAndSet(null, KeeperException.create(code, event.getPath()));
+                }
+                pending.release();
+            }).forPath(lockPaths.lockPath(KEY_PREFIX + id));
+        }
+        pending.acquire(MAX_PENDING_CREATES);
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+}
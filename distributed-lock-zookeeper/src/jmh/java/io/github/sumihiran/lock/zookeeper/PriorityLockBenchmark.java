@@ -0,0 +1,83 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of a latency-sensitive thread acquiring a lock that many background threads contend
+ * for, with and without priority classes.
+ *
+ * <p>In the {@code mixed} group, one {@code urgent} thread and eight {@code background} threads lock the same
+ * key. With {@code priorities} enabled, the urgent thread acquires with {@link LockPriority#HIGH} and the
+ * background threads with {@link LockPriority#LOW}, so the urgent thread waits for the current holder only;
+ * otherwise all of them acquire with {@link LockPriority#NORMAL} and the urgent thread queues behind every
+ * background thread. Compare the p99 of {@code mixed:urgent} between both settings.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PriorityLockBenchmark {
+
+    private static final String KEY = "/benchmark/priority/key";
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    @Param({"true", "false"})
+    boolean priorities;
+
+    TestingServer server;
+    CuratorFramework client;
+    ZookeeperDistributedLock distributedLock;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        client.start();
+        client.blockUntilConnected();
+        distributedLock = new ZookeeperDistributedLock(client);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        distributedLock.close();
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void urgent() throws Exception {
+        distributedLock.acquire(KEY, priorities ? LockPriority.HIGH : LockPriority.NORMAL, TIMEOUT).release();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(8)
+    public void background() throws Exception {
+        distributedLock.acquire(KEY, priorities ? LockPriority.LOW : LockPriority.NORMAL, TIMEOUT).release();
+    }
+}
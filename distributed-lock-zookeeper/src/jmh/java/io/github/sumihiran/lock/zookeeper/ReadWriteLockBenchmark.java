@@ -0,0 +1,97 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of read locks on a single key as the number of concurrent readers grows, next to
+ * exclusive locks on the same key with the same number of threads.
+ *
+ * <p>Read lock throughput scales with the number of readers until Zookeeper itself saturates, whereas
+ * exclusive lock throughput stays flat since contenders are served one at a time.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReadWriteLockBenchmark {
+
+    private static final String KEY = "/benchmark/read-write/config";
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    TestingServer server;
+    CuratorFramework client;
+    ZookeeperDistributedLock distributedLock;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        client.start();
+        client.blockUntilConnected();
+        distributedLock = new ZookeeperDistributedLock(client);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        distributedLock.close();
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void readers01() throws Exception {
+        distributedLock.acquireRead(KEY, TIMEOUT).release();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void readers08() throws Exception {
+        distributedLock.acquireRead(KEY, TIMEOUT).release();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void readers32() throws Exception {
+        distributedLock.acquireRead(KEY, TIMEOUT).release();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void exclusive01() throws Exception {
+        distributedLock.acquireWrite(KEY, TIMEOUT).release();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void exclusive08() throws Exception {
+        distributedLock.acquireWrite(KEY, TIMEOUT).release();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void exclusive32() throws Exception {
+        distributedLock.acquireWrite(KEY, TIMEOUT).release();
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.curator.test.TestingServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking whether a long-held lock is still held, as work under the lock does once per record,
+ * from all available threads at once.
+ *
+ * <ul>
+ *     <li>{@code isAcquired}: {@link Acquisition#isAcquired()},</li>
+ *     <li>{@code state}: {@link Acquisition#state()},</li>
+ *     <li>{@code checkpoint}: {@link Acquisition#checkpoint()}.</li>
+ * </ul>
+ *
+ * <p>All of them read a single volatile field, which is not written while the connection is stable, so they
+ * are expected to take about a nanosecond regardless of the number of threads, without allocating.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ValidityCheckBenchmark {
+
+    TestingServer server;
+    CuratorFramework client;
+    ZookeeperDistributedLock distributedLock;
+    Acquisition acquisition;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new TestingServer();
+        client = CuratorFrameworkFactory.newClient(server.getConnectString(), new RetryOneTime(100));
+        client.start();
+        client.blockUntilConnected();
+
+        distributedLock = new ZookeeperDistributedLock(client);
+        acquisition = distributedLock.acquire("/benchmark/validity", Duration.ofSeconds(10));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        acquisition.release();
+        distributedLock.close();
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public boolean isAcquired() {
+        return acquisition.isAcquired();
+    }
+
+    @Benchmark
+    public LockState state() {
+        return acquisition.state();
+    }
+
+    @Benchmark
+    public void checkpoint() {
+        acquisition.checkpoint();
+    }
+}
@@ -1,7 +1,13 @@
 package io.github.sumihiran.lock.zookeeper;
 
+import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockLostException;
 import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockReleaseException;
 
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Represents an acquired lock that can be released.
  *
@@ -19,6 +25,27 @@ public interface Acquisition extends AutoCloseable {
      */
     void release() throws Exception;
 
+    /**
+     * Releases the acquired lock without waiting for Zookeeper where possible.
+     *
+     * <p>Once this method returns, {@link #isAcquired()} returns false. The returned future completes once
+     * the lock has been released in Zookeeper, or exceptionally with the error {@link #release()} would have
+     * thrown. Implementations may coalesce the releases of many acquisitions into fewer Zookeeper requests.
+     * The default implementation releases the lock synchronously.</p>
+     *
+     * @return a future completed once the lock has been released
+     */
+    default CompletableFuture<Void> releaseAsync() {
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        try {
+            release();
+            released.complete(null);
+        } catch (Exception e) {
+            released.completeExceptionally(e);
+        }
+        return released;
+    }
+
     /**
      * Checks if the lock is still acquired.
      *
@@ -26,6 +53,85 @@ public interface Acquisition extends AutoCloseable {
      */
     boolean isAcquired();
 
+    /**
+     * Throws if the lock is no longer held, so that long-running work under the lock can stop at regular
+     * points, e.g. once per record processed.
+     *
+     * <p>A lock {@link LockState#IN_DOUBT in doubt} passes the checkpoint. The default implementation checks
+     * {@link #isAcquired()}.</p>
+     *
+     * @throws ZookeeperLockLostException if the lock has been lost or released
+     */
+    default void checkpoint() {
+        if (!isAcquired()) {
+            throw new ZookeeperLockLostException("Lock is no longer held");
+        }
+    }
+
+    /**
+     * Returns the state of the lock, which distinguishes a lock in doubt from one that is certainly held.
+     *
+     * <p>A lock is only {@link LockState#IN_DOUBT in doubt} while the connection to Zookeeper is suspended
+     * under {@link SuspensionPolicy#IN_DOUBT}, and {@link #isAcquired()} still returns true meanwhile. The
+     * default implementation reports {@link LockState#HELD} or {@link LockState#NOT_HELD} based on
+     * {@link #isAcquired()}.</p>
+     *
+     * @return the state of the lock
+     */
+    default LockState state() {
+        return isAcquired() ? LockState.HELD : LockState.NOT_HELD;
+    }
+
+    /**
+     * Returns the time left until the lease of a lock acquired with a lease expires, unless it is renewed.
+     *
+     * <p>Leases are renewed in the background while the lock is held, so the remaining lease only drops
+     * towards zero if renewals fail, e.g. while the connection to Zookeeper is down.</p>
+     *
+     * @return the remaining lease, {@link Duration#ZERO} once the lock has been released or lost, or empty if
+     *     the lock is not backed by a lease
+     */
+    default Optional<Duration> remainingLease() {
+        return Optional.empty();
+    }
+
+    /**
+     * Registers a callback run once the lock is lost, e.g. because the connection to Zookeeper has been lost
+     * or the lease of the lock has expired. Callbacks are not run when the lock is released, and callbacks
+     * registered once the lock has been released are ignored.
+     *
+     * <p>Callbacks run at most once, on the common fork-join pool, and right away if the lock has already
+     * been lost. They allow work under the lock to be stopped without polling {@link #isAcquired()}.</p>
+     *
+     * <p>The default implementation polls {@link #isAcquired()} every 100 milliseconds on a shared daemon
+     * thread and runs the callback once it returns false. Since it cannot tell a lost lock from a released
+     * one, it also runs the callback once the lock is released. The acquisitions of this library override
+     * it to report lost locks as they happen.</p>
+     *
+     * @param callback the callback to run once the lock is lost
+     */
+    default void onLost(Runnable callback) {
+        LostLockPolling.poll(this, callback);
+    }
+
+    /**
+     * Returns the fencing token of the lock, which increases with every acquisition of the same key.
+     *
+     * <p>The token is the zxid of the Zookeeper transaction that created the lock node, so any later holder of
+     * the lock has a greater token. Passing it along with writes allows storage to reject writes of a
+     * holder that has lost the lock in the meantime, by remembering the greatest token it has seen per key.
+     * Tokens are only available for locks on sequential lock nodes of this library, acquired with
+     * {@link ZookeeperDistributedLock#acquireAsync}, {@link ZookeeperDistributedLock#acquireAll},
+     * {@link ZookeeperDistributedLock#acquireWithLease} or a {@link FairLockFactory}. The token is always
+     * empty for locks acquired with the default lock function, Curator's {@code InterProcessSemaphoreMutex},
+     * whose nodes are not known to this library. The default implementation returns empty.</p>
+     *
+     * @return the fencing token, or empty if the lock has no fencing token
+     */
+    default OptionalLong fencingToken() {
+        return OptionalLong.empty();
+    }
+
     @Override
     default void close() throws Exception {
         release();
@@ -0,0 +1,26 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lock that is acquired by Zookeeper's watches and Curator's background callbacks, so that a thread waiting
+ * for it parks on a future rather than waiting on an object monitor.
+ */
+interface AsyncLock extends InterProcessLock {
+
+    /**
+     * Starts acquiring the lock without blocking the calling thread.
+     *
+     * <p>The returned future completes with true once the lock is held, or with false if it could not be
+     * acquired within the timeout. Cancelling the future abandons the attempt.</p>
+     *
+     * @param time the maximum time to wait for the lock
+     * @param unit the time unit of the {@code time} argument
+     * @return a future completed with the outcome of the attempt
+     * @throws IllegalStateException if the lock is already held or being acquired
+     */
+    CompletableFuture<Boolean> acquireAsync(long time, TimeUnit unit);
+}
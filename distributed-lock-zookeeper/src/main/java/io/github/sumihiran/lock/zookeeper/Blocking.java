@@ -0,0 +1,49 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Performs the blocking calls of the acquire and release path.
+ *
+ * <p>This is the baseline implementation, which calls the lock directly. The multi-release jar contains a
+ * JDK 21 variant that keeps virtual threads from pinning their carrier threads.</p>
+ */
+final class Blocking {
+
+    private Blocking() {
+    }
+
+    /**
+     * Acquires the {@code lock} on behalf of the calling thread.
+     *
+     * @param lock the lock to acquire
+     * @param time the maximum time to wait for the lock
+     * @param unit the time unit of the {@code time} argument
+     * @return true if the lock was acquired, false otherwise
+     * @throws Exception if the lock could not be acquired due to an error
+     */
+    static boolean acquire(InterProcessLock lock, long time, TimeUnit unit) throws Exception {
+        return lock.acquire(time, unit);
+    }
+
+    /**
+     * Releases the {@code lock} on behalf of the calling thread.
+     *
+     * @param lock the lock to release
+     * @throws Exception if the lock could not be released
+     */
+    static void release(InterProcessLock lock) throws Exception {
+        lock.release();
+    }
+
+    /**
+     * Checks if the calling thread is a virtual thread, which is never the case before JDK 21.
+     *
+     * @return true if the calling thread is a virtual thread, false otherwise
+     */
+    static boolean isVirtualThread() {
+        return false;
+    }
+}
@@ -0,0 +1,410 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A lock factory that serializes contenders for the same key within this JVM before going to Zookeeper.
+ *
+ * <p>Local contenders for a key wait in a fair per-key queue, and only the head of the queue holds the
+ * Zookeeper lock. When the holder releases while other local contenders are waiting, the Zookeeper lock is
+ * handed to the next one without a Zookeeper round trip. To stay fair towards other processes, the lock is
+ * released to Zookeeper once it has been handed off {@code maxHandoffs} times in a row or has been held for
+ * longer than {@code maxHoldTime}.</p>
+ *
+ * <pre>{@code
+ * new ZookeeperDistributedLock(client,
+ *     new CoalescingLockFactory(client, path -> new InterProcessSemaphoreMutex(client, path)));
+ * }</pre>
+ *
+ * <p>Since a handed-off lock is released by a different thread than the one that acquired it, the
+ * delegate locks must not be bound to the acquiring thread. {@code InterProcessSemaphoreMutex} is
+ * suitable, whereas {@code InterProcessMutex} is not.</p>
+ *
+ * <p>Local holders are evicted once their Zookeeper lock may be lost, which must match the
+ * {@link SuspensionPolicy} of the {@link ZookeeperDistributedLock} using the factory: under
+ * {@link SuspensionPolicy#IN_DOUBT}, they are only evicted once the connection is lost, since their
+ * acquisitions still report the lock as held while the connection is suspended.</p>
+ */
+public class CoalescingLockFactory implements Function<String, InterProcessLock>, ConnectionStateListener, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingLockFactory.class);
+
+    private static final int DEFAULT_MAX_HANDOFFS = 16;
+    private static final Duration DEFAULT_MAX_HOLD_TIME = Duration.ofSeconds(1);
+
+    private final CuratorFramework client;
+    private final Function<String, InterProcessLock> lockFunction;
+    private final int maxHandoffs;
+    private final long maxHoldNanos;
+    private final SuspensionPolicy suspensionPolicy;
+
+    private final ConcurrentHashMap<String, KeyGroup> groups = new ConcurrentHashMap<>();
+
+    private final LongAdder zookeeperAcquisitions = new LongAdder();
+    private final LongAdder localHandoffs = new LongAdder();
+
+    /**
+     * Constructs a new factory that hands off a Zookeeper lock at most 16 times or for at most one second.
+     *
+     * @param client       the CuratorFramework client
+     * @param lockFunction the function to create the Zookeeper backed InterProcessLock instances
+     */
+    public CoalescingLockFactory(CuratorFramework client, Function<String, InterProcessLock> lockFunction) {
+        this(client, lockFunction, DEFAULT_MAX_HANDOFFS, DEFAULT_MAX_HOLD_TIME);
+    }
+
+    /**
+     * Constructs a new factory.
+     *
+     * @param client       the CuratorFramework client
+     * @param lockFunction the function to create the Zookeeper backed InterProcessLock instances
+     * @param maxHandoffs  the maximum number of consecutive local handoffs of a Zookeeper lock
+     * @param maxHoldTime  the maximum time a Zookeeper lock is kept for local handoffs
+     */
+    public CoalescingLockFactory(
+        CuratorFramework client, Function<String, InterProcessLock> lockFunction, int maxHandoffs, Duration maxHoldTime) {
+        this(client, lockFunction, maxHandoffs, maxHoldTime, SuspensionPolicy.LOSE);
+    }
+
+    /**
+     * Constructs a new factory for a {@link ZookeeperDistributedLock} with the given suspension policy.
+     *
+     * @param client           the CuratorFramework client
+     * @param lockFunction     the function to create the Zookeeper backed InterProcessLock instances
+     * @param maxHandoffs      the maximum number of consecutive local handoffs of a Zookeeper lock
+     * @param maxHoldTime      the maximum time a Zookeeper lock is kept for local handoffs
+     * @param suspensionPolicy the suspension policy of the ZookeeperDistributedLock using this factory
+     */
+    public CoalescingLockFactory(CuratorFramework client, Function<String, InterProcessLock> lockFunction, int maxHandoffs,
+                                 Duration maxHoldTime, SuspensionPolicy suspensionPolicy) {
+        if (maxHandoffs < 0) {
+            throw new IllegalArgumentException("maxHandoffs must not be negative");
+        }
+        this.client = client;
+        this.lockFunction = lockFunction;
+        this.maxHandoffs = maxHandoffs;
+        this.maxHoldNanos = maxHoldTime.toNanos();
+        this.suspensionPolicy = suspensionPolicy;
+        client.getConnectionStateListenable().addListener(this);
+    }
+
+    @Override
+    public InterProcessLock apply(String path) {
+        return new CoalescedLock(path);
+    }
+
+    /**
+     * Returns the number of times a Zookeeper lock was acquired on behalf of local contenders.
+     *
+     * @return the number of Zookeeper acquisitions
+     */
+    public long zookeeperAcquisitions() {
+        return zookeeperAcquisitions.sum();
+    }
+
+    /**
+     * Returns the number of times a Zookeeper lock was handed to a local contender without a round trip.
+     *
+     * @return the number of local handoffs
+     */
+    public long localHandoffs() {
+        return localHandoffs.sum();
+    }
+
+    /**
+     * Returns the number of local contenders waiting for the given {@code path}.
+     *
+     * @param path the lock path
+     * @return the number of queued contenders
+     */
+    int queueLength(String path) {
+        KeyGroup group = groups.get(path);
+        return group == null ? 0 : group.permit.getQueueLength();
+    }
+
+    /**
+     * Stops handing off Zookeeper locks that may have been lost with the connection.
+     *
+     * <p>Local holders are evicted so that local waiters are not blocked by a holder that will never
+     * release its lock, and the next contender acquires a fresh Zookeeper lock. Under
+     * {@link SuspensionPolicy#IN_DOUBT}, a suspended connection does not evict holders, since their
+     * acquisitions are still considered held, and releasing their Zookeeper locks as stale would let another
+     * contender in while they are.</p>
+     */
+    @Override
+    public void stateChanged(CuratorFramework client, ConnectionState newState) {
+        boolean lost = suspensionPolicy == SuspensionPolicy.IN_DOUBT
+            ? newState == ConnectionState.LOST
+            : !newState.isConnected();
+        if (lost) {
+            for (KeyGroup group : groups.values()) {
+                group.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Removes this factory from the client's connection state listeners.
+     */
+    @Override
+    public void close() {
+        client.getConnectionStateListenable().removeListener(this);
+    }
+
+    private KeyGroup retain(String path) {
+        return groups.compute(path, (key, group) -> {
+            KeyGroup retained = group == null ? new KeyGroup(key) : group;
+            retained.users++;
+            return retained;
+        });
+    }
+
+    private void unretain(KeyGroup group) {
+        groups.computeIfPresent(group.path, (key, current) -> --current.users == 0 ? null : current);
+    }
+
+    /**
+     * Contenders and holders of a single key within this JVM.
+     */
+    private final class KeyGroup {
+
+        private final String path;
+        private final Semaphore permit = new Semaphore(1, true);
+        private final ReentrantLock state = new ReentrantLock();
+
+        // guarded by the groups map
+        private int users;
+
+        private CoalescedLock holder;
+        private InterProcessLock zookeeperLock;
+        private InterProcessLock staleZookeeperLock;
+        private int handoffs;
+        private long acquiredAtNanos;
+
+        KeyGroup(String path) {
+            this.path = path;
+        }
+
+        /**
+         * Enters the group as holder while owning the local permit, reusing a handed-off Zookeeper lock if any.
+         */
+        boolean enter(CoalescedLock contender, long timeoutNanos) throws Exception {
+            InterProcessLock stale;
+            state.lock();
+            try {
+                if (zookeeperLock != null) {
+                    attach(contender);
+                    handoffs++;
+                    localHandoffs.increment();
+                    return true;
+                }
+                stale = staleZookeeperLock;
+                staleZookeeperLock = null;
+            } finally {
+                state.unlock();
+            }
+
+            releaseQuietly(stale);
+            InterProcessLock lock = lockFunction.apply(path);
+            zookeeperAcquisitions.increment();
+            if (!lock.acquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+
+            state.lock();
+            try {
+                attach(contender);
+                zookeeperLock = lock;
+                handoffs = 0;
+                acquiredAtNanos = System.nanoTime();
+            } finally {
+                state.unlock();
+            }
+            return true;
+        }
+
+        /**
+         * Leaves the group, handing the Zookeeper lock to the next local contender if fairness allows it.
+         */
+        void leave(CoalescedLock contender) throws Exception {
+            InterProcessLock release;
+            state.lock();
+            try {
+                if (holder != contender) {
+                    throw new IllegalStateException("Lock is not held for path: " + path);
+                }
+                holder = null;
+
+                boolean handoff = permit.hasQueuedThreads()
+                    && handoffs < maxHandoffs
+                    && System.nanoTime() - acquiredAtNanos < maxHoldNanos;
+                release = handoff ? null : zookeeperLock;
+                if (!handoff) {
+                    zookeeperLock = null;
+                }
+            } finally {
+                state.unlock();
+            }
+
+            try {
+                if (release != null) {
+                    release.release();
+                }
+            } finally {
+                permit.release();
+            }
+        }
+
+        /**
+         * Releases a Zookeeper lock kept for a handoff that no local contender waits for anymore.
+         */
+        void releaseOrphan() {
+            if (!permit.tryAcquire()) {
+                return;
+            }
+            InterProcessLock orphan = null;
+            state.lock();
+            try {
+                if (holder == null && zookeeperLock != null && !permit.hasQueuedThreads()) {
+                    orphan = zookeeperLock;
+                    zookeeperLock = null;
+                }
+            } finally {
+                state.unlock();
+                permit.release();
+            }
+            releaseQuietly(orphan);
+        }
+
+        void invalidate() {
+            CoalescedLock evicted = null;
+            state.lock();
+            try {
+                if (holder != null && holder.group.compareAndSet(this, null)) {
+                    evicted = holder;
+                    holder = null;
+                }
+                if (zookeeperLock != null) {
+                    staleZookeeperLock = zookeeperLock;
+                    zookeeperLock = null;
+                }
+            } finally {
+                state.unlock();
+            }
+
+            if (evicted != null) {
+                LOGGER.debug("Evicting local holder after connection loss for path: {}", path);
+                permit.release();
+                unretain(this);
+            }
+        }
+
+        private void attach(CoalescedLock contender) {
+            holder = contender;
+            contender.group.set(this);
+        }
+
+        private void releaseQuietly(InterProcessLock lock) {
+            if (lock == null) {
+                return;
+            }
+            try {
+                lock.release();
+            } catch (Exception e) {
+                LOGGER.debug("Failed to release stale lock for path: {}", path, e);
+            }
+        }
+    }
+
+    /**
+     * The lock handed out per acquisition, which takes part in the local queue of its key.
+     */
+    private final class CoalescedLock implements WrappingLock {
+
+        private final String path;
+        private final AtomicReference<KeyGroup> group = new AtomicReference<>();
+
+        CoalescedLock(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public void acquire() throws Exception {
+            if (!acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("Failed to acquire lock for path: " + path);
+            }
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) throws Exception {
+            if (group.get() != null) {
+                throw new IllegalStateException("Lock is already acquired for path: " + path);
+            }
+            long timeoutNanos = unit.toNanos(time);
+            long startNanos = System.nanoTime();
+
+            KeyGroup candidate = retain(path);
+            boolean acquired = false;
+            try {
+                if (!candidate.permit.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+                try {
+                    long remainingNanos = Math.max(0, timeoutNanos - (System.nanoTime() - startNanos));
+                    acquired = candidate.enter(this, remainingNanos);
+                } finally {
+                    if (!acquired) {
+                        candidate.permit.release();
+                    }
+                }
+                return acquired;
+            } finally {
+                if (!acquired) {
+                    candidate.releaseOrphan();
+                    unretain(candidate);
+                }
+            }
+        }
+
+        @Override
+        public void release() throws Exception {
+            KeyGroup current = group.get();
+            if (current == null || !group.compareAndSet(current, null)) {
+                throw new IllegalStateException("Lock is not acquired for path: " + path);
+            }
+            try {
+                current.leave(this);
+            } finally {
+                unretain(current);
+            }
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return group.get() != null;
+        }
+
+        /**
+         * Returns true, since handed-off locks are released by other threads anyway, which requires delegate
+         * locks that are not bound to the acquiring thread.
+         */
+        @Override
+        public boolean isReleasableByAnyThread() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An Acquisition of several acquisitions, released as a whole.
+ */
+final class CompositeAcquisition implements Acquisition {
+
+    private final List<Acquisition> acquisitions;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param acquisitions the acquisitions in the order they were acquired
+     */
+    CompositeAcquisition(List<Acquisition> acquisitions) {
+        this.acquisitions = new ArrayList<>(acquisitions);
+    }
+
+    /**
+     * Releases all acquisitions in the reverse order they were acquired, even if releasing one of them
+     * fails.
+     *
+     * @throws Exception the error of the first acquisition that could not be released, with the errors of
+     *     further ones suppressed
+     */
+    @Override
+    public void release() throws Exception {
+        Exception failure = null;
+        for (int i = acquisitions.size() - 1; i >= 0; i--) {
+            try {
+                acquisitions.get(i).release();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> releaseAsync() {
+        CompletableFuture<?>[] releases = new CompletableFuture<?>[acquisitions.size()];
+        for (int i = 0; i < releases.length; i++) {
+            releases[i] = acquisitions.get(i).releaseAsync();
+        }
+        return CompletableFuture.allOf(releases);
+    }
+
+    @Override
+    public boolean isAcquired() {
+        for (Acquisition acquisition : acquisitions) {
+            if (!acquisition.isAcquired()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void checkpoint() {
+        for (Acquisition acquisition : acquisitions) {
+            acquisition.checkpoint();
+        }
+    }
+
+    /**
+     * Runs the callback once the first of the acquisitions is lost.
+     */
+    @Override
+    public void onLost(Runnable callback) {
+        AtomicBoolean lost = new AtomicBoolean();
+        for (Acquisition acquisition : acquisitions) {
+            acquisition.onLost(() -> {
+                if (lost.compareAndSet(false, true)) {
+                    callback.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns {@link LockState#NOT_HELD} if any of the acquisitions is not held, and otherwise
+     * {@link LockState#IN_DOUBT} if any of them is in doubt.
+     */
+    @Override
+    public LockState state() {
+        LockState state = LockState.HELD;
+        for (Acquisition acquisition : acquisitions) {
+            LockState current = acquisition.state();
+            if (current == LockState.NOT_HELD) {
+                return current;
+            }
+            if (current == LockState.IN_DOUBT) {
+                state = current;
+            }
+        }
+        return state;
+    }
+}
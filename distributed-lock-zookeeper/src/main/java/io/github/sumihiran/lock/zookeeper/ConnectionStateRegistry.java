@@ -0,0 +1,212 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Dispatches connection state changes of a {@link CuratorFramework} client to the live lock acquisitions
+ * registered with it.
+ *
+ * <p>Only a single {@link ConnectionStateListener} is added to the client no matter how many acquisitions
+ * are monitored. Acquisitions are indexed in a concurrent set, so registration and removal are O(1) and a
+ * connection state change is fanned out in O(live acquisitions).</p>
+ *
+ * <p>Under {@link SuspensionPolicy#IN_DOUBT}, a suspended connection only puts the acquisitions in doubt.
+ * Once reconnected, the lock nodes of all acquisitions in doubt are checked with transactions of check
+ * operations on up to {@value #MAX_BATCH_SIZE} nodes each, which keeps every transaction well below
+ * {@code jute.maxbuffer}. Only if a transaction fails, because some of its nodes are gone, the acquisitions of
+ * that transaction are checked one by one, with a transaction each. Locks that are not backed by nodes known to this library, such as Curator's
+ * {@code InterProcessSemaphoreMutex}, are held by ephemeral nodes of the session, and are only checked for
+ * the session having survived the suspension.</p>
+ */
+final class ConnectionStateRegistry implements ConnectionStateListener, AutoCloseable {
+
+    static final int MAX_BATCH_SIZE = 128;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionStateRegistry.class);
+
+    private final CuratorFramework client;
+    private final SuspensionPolicy suspensionPolicy;
+    private final Set<ZookeeperMonitoredLockAcquisition> acquisitions = ConcurrentHashMap.newKeySet();
+    private volatile long suspendedInstance;
+
+    /**
+     * Constructs a new registry losing locks on a suspended connection, and registers it as a connection
+     * state listener of the {@code client}.
+     *
+     * @param client the CuratorFramework client
+     */
+    ConnectionStateRegistry(CuratorFramework client) {
+        this(client, SuspensionPolicy.LOSE);
+    }
+
+    /**
+     * Constructs a new registry and registers it as a connection state listener of the {@code client}.
+     *
+     * @param client           the CuratorFramework client
+     * @param suspensionPolicy the policy for locks held while the connection is suspended
+     */
+    ConnectionStateRegistry(CuratorFramework client, SuspensionPolicy suspensionPolicy) {
+        this.client = client;
+        this.suspensionPolicy = suspensionPolicy;
+        client.getConnectionStateListenable().addListener(this);
+    }
+
+    /**
+     * Starts dispatching connection state changes to the given {@code acquisition}.
+     *
+     * @param acquisition the acquisition to monitor
+     */
+    void register(ZookeeperMonitoredLockAcquisition acquisition) {
+        acquisitions.add(acquisition);
+    }
+
+    /**
+     * Stops dispatching connection state changes to the given {@code acquisition}.
+     *
+     * @param acquisition the acquisition to stop monitoring
+     * @return true if the acquisition was registered, false otherwise
+     */
+    boolean unregister(ZookeeperMonitoredLockAcquisition acquisition) {
+        return acquisitions.remove(acquisition);
+    }
+
+    /**
+     * Returns the number of acquisitions currently monitored.
+     *
+     * @return the number of live acquisitions
+     */
+    int size() {
+        return acquisitions.size();
+    }
+
+    @Override
+    public void stateChanged(CuratorFramework client, ConnectionState newState) {
+        if (suspensionPolicy == SuspensionPolicy.LOSE || newState == ConnectionState.LOST) {
+            for (ZookeeperMonitoredLockAcquisition acquisition : acquisitions) {
+                acquisition.handleConnectionStateChange(newState);
+            }
+        } else if (newState == ConnectionState.SUSPENDED) {
+            // a new Zookeeper instance, and thus a new session, is only created once the session has expired
+            suspendedInstance = client.getZookeeperClient().getInstanceIndex();
+            for (ZookeeperMonitoredLockAcquisition acquisition : acquisitions) {
+                acquisition.suspect();
+            }
+        } else if (newState == ConnectionState.RECONNECTED) {
+            checkInDoubt(client.getZookeeperClient().getInstanceIndex() == suspendedInstance);
+        }
+    }
+
+    /**
+     * Checks the lock nodes of all acquisitions in doubt with a transaction per batch of nodes.
+     *
+     * @param sameSession true if the session of the client survived the suspension
+     */
+    private void checkInDoubt(boolean sameSession) {
+        List<ZookeeperMonitoredLockAcquisition> inDoubt = new ArrayList<>();
+        List<String> nodes = new ArrayList<>();
+        int batches = 0;
+        int checked = 0;
+        for (ZookeeperMonitoredLockAcquisition acquisition : acquisitions) {
+            if (!acquisition.isInDoubt()) {
+                continue;
+            }
+            List<String> lockNodes = acquisition.lockNodes();
+            if (!sameSession && acquisition.isSessionBound()) {
+                // the ephemeral lock nodes have been deleted along with the expired session
+                acquisition.resolve(false);
+            } else if (lockNodes.isEmpty()) {
+                acquisition.resolve(sameSession);
+            } else {
+                if (!inDoubt.isEmpty() && nodes.size() + lockNodes.size() > MAX_BATCH_SIZE) {
+                    checkInDoubt(inDoubt, nodes);
+                    batches++;
+                    checked += inDoubt.size();
+                    inDoubt = new ArrayList<>();
+                    nodes = new ArrayList<>();
+                }
+                // the nodes of a lock are checked together, so a lock on more nodes gets a batch of its own
+                inDoubt.add(acquisition);
+                nodes.addAll(lockNodes);
+            }
+        }
+        if (!inDoubt.isEmpty()) {
+            checkInDoubt(inDoubt, nodes);
+            batches++;
+            checked += inDoubt.size();
+        }
+        if (checked > 0) {
+            LOGGER.debug("Checking {} locks in doubt in {} transactions", checked, batches);
+        }
+    }
+
+    private void checkInDoubt(List<ZookeeperMonitoredLockAcquisition> inDoubt, List<String> nodes) {
+        check(nodes, event -> {
+            KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+            if (code == KeeperException.Code.OK) {
+                for (ZookeeperMonitoredLockAcquisition acquisition : inDoubt) {
+                    acquisition.resolve(true);
+                }
+            } else if (!isConnectionError(code)) {
+                // some of the nodes are gone, so find out which acquisitions they belong to
+                for (ZookeeperMonitoredLockAcquisition acquisition : inDoubt) {
+                    checkInDoubt(acquisition);
+                }
+            }
+            // otherwise the connection has been suspended again, and the locks remain in doubt
+        });
+    }
+
+    private void checkInDoubt(ZookeeperMonitoredLockAcquisition acquisition) {
+        List<String> nodes = acquisition.lockNodes();
+        if (nodes.isEmpty()) {
+            // released in the meantime
+            return;
+        }
+        check(nodes, event -> {
+            KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+            if (!isConnectionError(code)) {
+                acquisition.resolve(code == KeeperException.Code.OK);
+            }
+        });
+    }
+
+    private void check(List<String> nodes, Consumer<CuratorEvent> callback) {
+        try {
+            List<CuratorOp> operations = new ArrayList<>(nodes.size());
+            for (String node : nodes) {
+                operations.add(client.transactionOp().check().forPath(node));
+            }
+            client.transaction().inBackground((c, event) -> callback.accept(event)).forOperations(operations);
+        } catch (Exception e) {
+            // the locks remain in doubt until the next reconnection, or until the connection is lost
+            LOGGER.warn("Failed to check lock nodes of locks in doubt", e);
+        }
+    }
+
+    private static boolean isConnectionError(KeeperException.Code code) {
+        return code == KeeperException.Code.CONNECTIONLOSS
+            || code == KeeperException.Code.SESSIONEXPIRED
+            || code == KeeperException.Code.OPERATIONTIMEOUT;
+    }
+
+    /**
+     * Removes this registry from the client's connection state listeners.
+     */
+    @Override
+    public void close() {
+        client.getConnectionStateListenable().removeListener(this);
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Maps keys to shards by consistent hashing, with a number of virtual nodes per shard.
+ *
+ * <p>Every shard is placed on a ring of 64-bit hashes at the hashes of its name and the indexes of its
+ * virtual nodes, and a key belongs to the first shard at or after the hash of the key. The positions only
+ * depend on the names of the shards, so all processes configured with the same names agree on the shard of
+ * every key, and adding or removing a shard only moves the keys between it and its neighbours on the
+ * ring.</p>
+ */
+final class ConsistentHashRing {
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param shards       the names of the shards
+     * @param virtualNodes the number of virtual nodes per shard
+     * @throws IllegalArgumentException if {@code shards} is empty or {@code virtualNodes} is not positive
+     */
+    ConsistentHashRing(Collection<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("shards must not be empty");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        // in the unlikely case of colliding hashes, the first shard by name wins on every process
+        for (String shard : new TreeSet<>(shards)) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.putIfAbsent(hash(shard + '#' + node), shard);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the shard of the given {@code key}.
+     *
+     * @param key the key
+     * @return the name of the shard
+     */
+    String shardOf(String key) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the characters of the given {@code value}, finalized with the mixing
+     * function of MurmurHash3. The result must never change, since it determines the shards shared by all
+     * processes.
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockAcquisitionException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Acquires distributed locks by key.
+ *
+ * <p>Implemented by {@link ZookeeperDistributedLock} for a single Zookeeper ensemble and by
+ * {@link ZookeeperLockRouter} for keys spread over several ensembles. See {@link ZookeeperDistributedLock}
+ * for the details of every kind of lock.</p>
+ */
+public interface DistributedLock extends AutoCloseable {
+
+    /**
+     * Acquires a distributed lock for the specified key, waiting for as long as it takes.
+     *
+     * @param key the lock key
+     * @return an Acquisition representing the acquired lock
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired
+     */
+    Acquisition acquire(String key) throws ZookeeperLockAcquisitionException;
+
+    /**
+     * Acquires a distributed lock for the specified key, with a timeout.
+     *
+     * @param key     the lock key
+     * @param timeout the duration to wait for the lock
+     * @return an Acquisition representing the acquired lock
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
+     */
+    Acquisition acquire(String key, Duration timeout) throws ZookeeperLockAcquisitionException;
+
+    /**
+     * Acquires a distributed lock for the specified typed key, with a timeout.
+     *
+     * @param key     the lock key, locked by its {@link LockKey#path() path}
+     * @param timeout the duration to wait for the lock
+     * @return an Acquisition representing the acquired lock
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
+     */
+    default Acquisition acquire(LockKey key, Duration timeout) throws ZookeeperLockAcquisitionException {
+        return acquire(key.path(), timeout);
+    }
+
+    /**
+     * Tries to acquire a distributed lock for the specified key, waiting at most for the timeout.
+     *
+     * @param key     the lock key
+     * @param timeout the duration to wait for the lock, which may be zero to not wait at all
+     * @return an Acquisition representing the acquired lock, or empty if the lock could not be acquired
+     *     within the timeout
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired due to an error
+     */
+    Optional<Acquisition> tryAcquire(String key, Duration timeout) throws ZookeeperLockAcquisitionException;
+
+    /**
+     * Tries to acquire a distributed lock for the specified typed key, waiting at most for the timeout.
+     *
+     * @param key     the lock key, locked by its {@link LockKey#path() path}
+     * @param timeout the duration to wait for the lock, which may be zero to not wait at all
+     * @return an Acquisition representing the acquired lock, or empty if the lock could not be acquired
+     *     within the timeout
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired due to an error
+     */
+    default Optional<Acquisition> tryAcquire(LockKey key, Duration timeout) throws ZookeeperLockAcquisitionException {
+        return tryAcquire(key.path(), timeout);
+    }
+
+    /**
+     * Acquires the read lock of a distributed read/write lock for the specified key, with a timeout.
+     *
+     * @param key     the lock key
+     * @param timeout the duration to wait for the lock
+     * @return an Acquisition representing the acquired read lock
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
+     */
+    Acquisition acquireRead(String key, Duration timeout) throws ZookeeperLockAcquisitionException;
+
+    /**
+     * Acquires the write lock of a distributed read/write lock for the specified key, with a timeout.
+     *
+     * @param key     the lock key
+     * @param timeout the duration to wait for the lock
+     * @return an Acquisition representing the acquired write lock
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
+     */
+    Acquisition acquireWrite(String key, Duration timeout) throws ZookeeperLockAcquisitionException;
+
+    /**
+     * Acquires a number of permits of a distributed counting semaphore for the specified key, with a timeout.
+     *
+     * @param key     the lock key
+     * @param permits the number of permits to acquire
+     * @param timeout the duration to wait for the permits
+     * @return an Acquisition representing the acquired permits
+     * @throws ZookeeperLockAcquisitionException if the permits could not be acquired within the timeout
+     */
+    Acquisition acquirePermits(String key, int permits, Duration timeout) throws ZookeeperLockAcquisitionException;
+
+    /**
+     * Acquires a distributed lock for the specified key, held by a lease rather than by the session of the
+     * client, with a timeout.
+     *
+     * @param key           the lock key
+     * @param leaseDuration the duration the lock is held for without being renewed
+     * @param timeout       the duration to wait for the lock
+     * @return an Acquisition representing the acquired lock, with its {@link Acquisition#remainingLease()}
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
+     */
+    Acquisition acquireWithLease(String key, Duration leaseDuration, Duration timeout)
+        throws ZookeeperLockAcquisitionException;
+
+    /**
+     * Acquires the distributed locks for all specified keys as a whole, with a timeout. If the locks could
+     * not all be acquired, none of them is held.
+     *
+     * @param keys    the lock keys
+     * @param timeout the duration to wait for all locks
+     * @return an Acquisition representing all acquired locks
+     * @throws ZookeeperLockAcquisitionException if the locks could not be acquired within the timeout
+     */
+    Acquisition acquireAll(Collection<String> keys, Duration timeout) throws ZookeeperLockAcquisitionException;
+
+    /**
+     * Acquires a distributed lock for the specified key without blocking the calling thread.
+     *
+     * @param key     the lock key
+     * @param timeout the duration to wait for the lock
+     * @return a future completed with an Acquisition representing the acquired lock, or exceptionally with
+     *     a {@link ZookeeperLockAcquisitionException} if the lock could not be acquired within the timeout
+     */
+    CompletableFuture<Acquisition> acquireAsync(String key, Duration timeout);
+
+    /**
+     * Acquires a distributed lock for the specified typed key without blocking the calling thread.
+     *
+     * @param key     the lock key, locked by its {@link LockKey#path() path}
+     * @param timeout the duration to wait for the lock
+     * @return a future completed with an Acquisition representing the acquired lock, or exceptionally with
+     *     a {@link ZookeeperLockAcquisitionException} if the lock could not be acquired within the timeout
+     */
+    default CompletableFuture<Acquisition> acquireAsync(LockKey key, Duration timeout) {
+        return acquireAsync(key.path(), timeout);
+    }
+
+    /**
+     * Releases the resources held by this instance, without closing the Zookeeper clients.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,249 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Logs lock failures at configurable levels, sampled per key prefix.
+ *
+ * <p>Under contention, the same failure is reported for many keys at once: every waiter times out, and
+ * every held lock is lost when the connection drops. Within each sampling interval, only the first failure
+ * of a kind is logged for a key prefix. Further failures are counted and reported as a single summary such
+ * as {@code Suppressed 42 timeouts for prefix: /orders in the last 10s} once the interval has passed.
+ * Summaries are reported by a task on the scheduler, or by the next failure of the same kind and prefix,
+ * whichever comes first.</p>
+ *
+ * <p>A zero interval disables sampling and logs every failure.</p>
+ */
+final class FailureLog implements AutoCloseable {
+
+    /**
+     * Logs every failure at the default levels.
+     */
+    static final FailureLog UNSAMPLED =
+        new FailureLog(Level.WARN, Level.ERROR, Duration.ZERO, KeyPrefixes::firstSegment, () -> null);
+
+    /**
+     * The kinds of failures, which are sampled separately.
+     */
+    enum Kind {
+        TIMEOUT("timeouts"),
+        FAILURE("acquisition failures"),
+        RELEASE_FAILURE("release failures"),
+        LOST("lost locks");
+
+        private final String plural;
+
+        Kind(String plural) {
+            this.plural = plural;
+        }
+    }
+
+    private final Level timeoutLevel;
+    private final Level failureLevel;
+    private final long intervalNanos;
+    private final String intervalText;
+    private final Function<String, String> keyPrefix;
+    private final Supplier<ScheduledExecutorService> scheduler;
+    private final Map<Kind, ConcurrentMap<String, Window>> windows = new EnumMap<>(Kind.class);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param timeoutLevel the level of acquisition timeouts
+     * @param failureLevel the level of acquisition and release failures
+     * @param interval     the sampling interval, or zero to log every failure
+     * @param keyPrefix    the function returning the prefix of a lock key
+     * @param scheduler    the scheduler reporting summaries, only used if sampling is enabled
+     */
+    FailureLog(Level timeoutLevel, Level failureLevel, Duration interval, Function<String, String> keyPrefix,
+               Supplier<ScheduledExecutorService> scheduler) {
+        this.timeoutLevel = timeoutLevel;
+        this.failureLevel = failureLevel;
+        this.intervalNanos = interval.toNanos();
+        this.intervalText = interval.toMillis() % 1000 == 0 ? interval.getSeconds() + "s" : interval.toMillis() + "ms";
+        this.keyPrefix = keyPrefix;
+        this.scheduler = scheduler;
+        for (Kind kind : Kind.values()) {
+            windows.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    void timedOut(Logger logger, String key, Duration timeout) {
+        if (isEnabled(logger, timeoutLevel) && sample(Kind.TIMEOUT, logger, key)) {
+            log(logger, timeoutLevel, "Failed to acquire lock for key: {} within timeout: {}", key, timeout);
+        }
+    }
+
+    void failed(Logger logger, String key, Throwable error) {
+        if (isEnabled(logger, failureLevel) && sample(Kind.FAILURE, logger, key)) {
+            log(logger, failureLevel, "Failed to acquire lock for key: {}", key, error);
+        }
+    }
+
+    void releaseFailed(Logger logger, String key, Throwable error) {
+        if (isEnabled(logger, failureLevel) && sample(Kind.RELEASE_FAILURE, logger, key)) {
+            log(logger, failureLevel, "Failed to release lock for key: {}", key, error);
+        }
+    }
+
+    void lost(Logger logger, String key) {
+        if (logger.isWarnEnabled() && sample(Kind.LOST, logger, key)) {
+            logger.warn("Lock is considered lost for key: {}", key);
+        }
+    }
+
+    /**
+     * Reports the summaries of all failures suppressed so far.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns true if the failure should be logged, or counts it otherwise.
+     */
+    private boolean sample(Kind kind, Logger logger, String key) {
+        if (intervalNanos == 0) {
+            return true;
+        }
+        long nowNanos = System.nanoTime();
+        String prefix = keyPrefix.apply(key);
+        ConcurrentMap<String, Window> kindWindows = windows.get(kind);
+        Window window = kindWindows.get(prefix);
+        if (window != null && nowNanos - window.startedAtNanos < intervalNanos) {
+            window.suppressed.incrementAndGet();
+            scheduleFlush();
+            return false;
+        }
+        Window next = new Window(logger, nowNanos);
+        boolean started = window == null
+            ? kindWindows.putIfAbsent(prefix, next) == null
+            : kindWindows.replace(prefix, window, next);
+        if (!started) {
+            // another thread has just started a new window
+            return sample(kind, logger, key);
+        }
+        if (window != null) {
+            summarize(kind, prefix, window);
+        }
+        return true;
+    }
+
+    private void scheduleFlush() {
+        if (closed || !flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.get().schedule(this::flushExpired, intervalNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException | IllegalStateException e) {
+            // the scheduler has been shut down along with its ZookeeperDistributedLock
+            flushScheduled.set(false);
+        }
+    }
+
+    private void flushExpired() {
+        flushScheduled.set(false);
+        if (flush(intervalNanos)) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Reports the summaries of all windows older than {@code minAgeNanos} and removes them.
+     *
+     * @return true if younger windows with suppressed failures remain
+     */
+    private boolean flush(long minAgeNanos) {
+        long nowNanos = System.nanoTime();
+        boolean pending = false;
+        for (Map.Entry<Kind, ConcurrentMap<String, Window>> kindWindows : windows.entrySet()) {
+            for (Map.Entry<String, Window> entry : kindWindows.getValue().entrySet()) {
+                Window window = entry.getValue();
+                if (minAgeNanos == Long.MAX_VALUE || nowNanos - window.startedAtNanos >= minAgeNanos) {
+                    if (kindWindows.getValue().remove(entry.getKey(), window)) {
+                        summarize(kindWindows.getKey(), entry.getKey(), window);
+                    }
+                } else if (window.suppressed.get() > 0) {
+                    pending = true;
+                }
+            }
+        }
+        return pending;
+    }
+
+    private void summarize(Kind kind, String prefix, Window window) {
+        int suppressed = window.suppressed.getAndSet(0);
+        if (suppressed > 0) {
+            Level level = kind == Kind.TIMEOUT ? timeoutLevel : kind == Kind.LOST ? Level.WARN : failureLevel;
+            log(window.logger, level, "Suppressed {} {} for prefix: {} in the last {}",
+                suppressed, kind.plural, prefix, intervalText);
+        }
+    }
+
+    private static boolean isEnabled(Logger logger, Level level) {
+        switch (level) {
+          case ERROR:
+              return logger.isErrorEnabled();
+          case WARN:
+              return logger.isWarnEnabled();
+          case INFO:
+              return logger.isInfoEnabled();
+          case DEBUG:
+              return logger.isDebugEnabled();
+          default:
+              return logger.isTraceEnabled();
+        }
+    }
+
+    private static void log(Logger logger, Level level, String format, Object... arguments) {
+        switch (level) {
+          case ERROR:
+              logger.error(format, arguments);
+              break;
+          case WARN:
+              logger.warn(format, arguments);
+              break;
+          case INFO:
+              logger.info(format, arguments);
+              break;
+          case DEBUG:
+              logger.debug(format, arguments);
+              break;
+          default:
+              logger.trace(format, arguments);
+        }
+    }
+
+    /**
+     * A sampling interval of a key prefix, started by the failure that has been logged.
+     */
+    private static final class Window {
+
+        final Logger logger;
+        final long startedAtNanos;
+        final AtomicInteger suppressed = new AtomicInteger();
+
+        Window(Logger logger, long startedAtNanos) {
+            this.logger = logger;
+            this.startedAtNanos = startedAtNanos;
+        }
+    }
+}
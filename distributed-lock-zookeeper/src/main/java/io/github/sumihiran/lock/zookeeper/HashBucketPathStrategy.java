@@ -0,0 +1,54 @@
+package io.github.sumihiran.lock.zookeeper;
+
+/**
+ * Inserts hash buckets in front of the last path segment of lock keys.
+ * @see LockPathStrategy#hashBuckets(int)
+ */
+final class HashBucketPathStrategy implements LockPathStrategy {
+
+    private final int levels;
+
+    HashBucketPathStrategy(int levels) {
+        if (levels < 1 || levels > 3) {
+            throw new IllegalArgumentException("levels must be between 1 and 3");
+        }
+        this.levels = levels;
+    }
+
+    @Override
+    public String lockPath(String key) {
+        int separator = key.lastIndexOf('/');
+        int hash = mix(key.substring(separator + 1).hashCode());
+        StringBuilder path = new StringBuilder(key.length() + 3 * levels);
+        path.append(key, 0, separator + 1);
+        for (int level = 0; level < levels; level++) {
+            int bucket = (hash >>> (8 * level)) & 0xff;
+            path.append(Character.forDigit(bucket >>> 4, 16))
+                .append(Character.forDigit(bucket & 0xf, 16))
+                .append('/');
+        }
+        return path.append(key, separator + 1, key.length()).toString();
+    }
+
+    @Override
+    public String key(String lockPath) {
+        int separator = lockPath.lastIndexOf('/');
+        int bucketsStart = separator + 1 - 3 * levels;
+        if (bucketsStart < 1) {
+            return lockPath;
+        }
+        return lockPath.substring(0, bucketsStart) + lockPath.substring(separator + 1);
+    }
+
+    /**
+     * Spreads the bits of a string hash code, which hardly differ between sequential ids, over all bytes.
+     * The result must never change, since it determines the lock paths shared by all processes.
+     */
+    static int mix(int hash) {
+        int h = hash * 0x9e3779b9;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import io.github.sumihiran.lock.zookeeper.metrics.LockMetrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps an exponentially weighted moving average of how long locks are held per key prefix, which estimates
+ * how long a waiter queued behind other lock nodes has to wait.
+ *
+ * <p>Only the locks released by this process are observed, so the estimate assumes that other processes
+ * hold the locks of the same prefix about as long.</p>
+ */
+final class HoldTimes implements LockMetrics {
+
+    // each hold moves the average by an eighth of its distance to it
+    private static final int WEIGHT = 8;
+
+    private final ConcurrentMap<String, AtomicLong> averages = new ConcurrentHashMap<>();
+
+    @Override
+    public void released(String key, long holdNanos) {
+        AtomicLong average = averages.computeIfAbsent(KeyPrefixes.firstSegment(key), prefix -> new AtomicLong(holdNanos));
+        average.updateAndGet(current -> current + (holdNanos - current) / WEIGHT);
+    }
+
+    /**
+     * Returns the average time locks with the prefix of the given key are held for.
+     *
+     * @param key the lock key
+     * @return the average hold time in nanoseconds, or zero if no lock with the prefix has been released yet
+     */
+    long expectedHoldNanos(String key) {
+        AtomicLong average = averages.get(KeyPrefixes.firstSegment(key));
+        return average == null ? 0 : average.get();
+    }
+}
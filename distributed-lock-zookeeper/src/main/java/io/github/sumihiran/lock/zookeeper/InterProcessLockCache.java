@@ -0,0 +1,293 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of idle {@link InterProcessLock} recipes keyed by lock path.
+ *
+ * <p>The cache can be used as the lock factory of a {@link ZookeeperDistributedLock}, so that hot keys reuse
+ * previously created recipes instead of allocating a new one per acquisition:</p>
+ *
+ * <pre>{@code
+ * new ZookeeperDistributedLock(client,
+ *     new InterProcessLockCache(path -> new InterProcessSemaphoreMutex(client, path), 1024));
+ * }</pre>
+ *
+ * <p>A recipe is handed out to a single caller at a time and only returns to the cache once that caller
+ * released it or gave up waiting for it. Recipes that are held or have waiters are therefore never part of
+ * the cache and cannot be evicted. Idle recipes are evicted in least recently used order once more than
+ * {@code maximumSize} are cached, or when they have been idle for longer than the configured timeout. All
+ * idle recipes are kept in a single list ordered by the time they became idle, so both evictions only look
+ * at the eldest recipes.</p>
+ */
+public class InterProcessLockCache implements Function<String, InterProcessLock> {
+
+    private final Function<String, InterProcessLock> lockFunction;
+    private final int maximumSize;
+    private final long expireAfterIdleNanos;
+
+    private final ReentrantLock mutex = new ReentrantLock();
+    private final HashMap<String, ArrayDeque<CachedLock>> idleLocks = new HashMap<>();
+    private CachedLock eldestIdle;
+    private CachedLock newestIdle;
+    private int idleCount;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Constructs a new cache without idle-time eviction.
+     *
+     * @param lockFunction the function to create InterProcessLock instances on a cache miss
+     * @param maximumSize  the maximum number of idle recipes to retain
+     */
+    public InterProcessLockCache(Function<String, InterProcessLock> lockFunction, int maximumSize) {
+        this(lockFunction, maximumSize, Duration.ZERO);
+    }
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param lockFunction    the function to create InterProcessLock instances on a cache miss
+     * @param maximumSize     the maximum number of idle recipes to retain
+     * @param expireAfterIdle the time after which an idle recipe is evicted, or {@link Duration#ZERO} to
+     *                        keep idle recipes until they are evicted by size
+     */
+    public InterProcessLockCache(
+        Function<String, InterProcessLock> lockFunction, int maximumSize, Duration expireAfterIdle) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative");
+        }
+        if (expireAfterIdle.isNegative()) {
+            throw new IllegalArgumentException("expireAfterIdle must not be negative");
+        }
+        this.lockFunction = lockFunction;
+        this.maximumSize = maximumSize;
+        this.expireAfterIdleNanos = expireAfterIdle.toNanos();
+    }
+
+    /**
+     * Returns an idle recipe for the given {@code path}, or creates a new one if none is cached.
+     *
+     * @param path the lock path
+     * @return an InterProcessLock that returns itself to this cache once released
+     */
+    @Override
+    public InterProcessLock apply(String path) {
+        CachedLock cached = poll(path);
+        if (cached != null) {
+            hitCount.increment();
+            return cached;
+        }
+        missCount.increment();
+        return new CachedLock(path, lockFunction.apply(path));
+    }
+
+    /**
+     * Evicts all recipes that have been idle for longer than the configured timeout.
+     */
+    public void cleanUp() {
+        mutex.lock();
+        try {
+            expireIdle(System.nanoTime());
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of idle recipes currently cached.
+     *
+     * @return the number of idle recipes
+     */
+    public int size() {
+        mutex.lock();
+        try {
+            return idleCount;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of times a cached recipe was reused.
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of times a new recipe had to be created.
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the number of idle recipes evicted by size or idle time.
+     *
+     * @return the eviction count
+     */
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "InterProcessLockCache{size=" + size() + ", hits=" + hitCount() + ", misses=" + missCount()
+            + ", evictions=" + evictionCount() + '}';
+    }
+
+    private CachedLock poll(String path) {
+        mutex.lock();
+        try {
+            ArrayDeque<CachedLock> locks = idleLocks.get(path);
+            if (locks == null) {
+                return null;
+            }
+            CachedLock cached = locks.pollFirst();
+            if (locks.isEmpty()) {
+                idleLocks.remove(path);
+            }
+            unlink(cached);
+            idleCount--;
+            return cached;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private void offer(CachedLock cached) {
+        if (maximumSize == 0) {
+            evictionCount.increment();
+            return;
+        }
+        mutex.lock();
+        try {
+            // taken under the mutex, so that the idle list stays ordered by idle time
+            long now = System.nanoTime();
+            cached.idleSince = now;
+            idleLocks.computeIfAbsent(cached.path, path -> new ArrayDeque<>()).addFirst(cached);
+            link(cached);
+            idleCount++;
+            expireIdle(now);
+            evictEldest();
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    private void expireIdle(long now) {
+        if (expireAfterIdleNanos == 0) {
+            return;
+        }
+        while (eldestIdle != null && now - eldestIdle.idleSince >= expireAfterIdleNanos) {
+            evict(eldestIdle);
+        }
+    }
+
+    private void evictEldest() {
+        while (idleCount > maximumSize) {
+            evict(eldestIdle);
+        }
+    }
+
+    private void evict(CachedLock cached) {
+        ArrayDeque<CachedLock> locks = idleLocks.get(cached.path);
+        // the eldest recipe of the cache is also the eldest of its path
+        locks.removeLastOccurrence(cached);
+        if (locks.isEmpty()) {
+            idleLocks.remove(cached.path);
+        }
+        unlink(cached);
+        idleCount--;
+        evictionCount.increment();
+    }
+
+    private void link(CachedLock cached) {
+        cached.older = newestIdle;
+        if (newestIdle == null) {
+            eldestIdle = cached;
+        } else {
+            newestIdle.newer = cached;
+        }
+        newestIdle = cached;
+    }
+
+    private void unlink(CachedLock cached) {
+        if (cached.older == null) {
+            eldestIdle = cached.newer;
+        } else {
+            cached.older.newer = cached.newer;
+        }
+        if (cached.newer == null) {
+            newestIdle = cached.older;
+        } else {
+            cached.newer.older = cached.older;
+        }
+        cached.older = null;
+        cached.newer = null;
+    }
+
+    /**
+     * Wraps a recipe handed out by the cache and returns it once it no longer has a holder or waiter.
+     *
+     * <p>Recipes that fail to acquire or release are discarded, as their state can no longer be trusted.</p>
+     */
+    private final class CachedLock implements WrappingLock {
+
+        private final String path;
+        private final InterProcessLock delegate;
+        private long idleSince;
+        private CachedLock older;
+        private CachedLock newer;
+
+        CachedLock(String path, InterProcessLock delegate) {
+            this.path = path;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void acquire() throws Exception {
+            delegate.acquire();
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) throws Exception {
+            boolean acquired = delegate.acquire(time, unit);
+            if (!acquired) {
+                offer(this);
+            }
+            return acquired;
+        }
+
+        @Override
+        public void release() throws Exception {
+            delegate.release();
+            offer(this);
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return delegate.isAcquiredInThisProcess();
+        }
+
+        @Override
+        public boolean isReleasableByAnyThread() {
+            return ReleasePipeline.isReleasableByAnyThread(delegate);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.sumihiran.lock.zookeeper;
+
+/**
+ * Derives the prefixes of lock keys, which aggregate the metrics and failure logs of related keys.
+ *
+ * @author Nuwan Bandara
+ */
+public final class KeyPrefixes {
+
+    private KeyPrefixes() {
+    }
+
+    /**
+     * Returns the first path segment of the given {@code key}, e.g. {@code /orders} for
+     * {@code /orders/42/lock}. Keys of multi-key acquisitions, such as {@code [/orders/1, /orders/2]}, map to
+     * the first segment of their first key.
+     *
+     * @param key the lock key
+     * @return the first path segment, or the key itself if it has no path segment
+     */
+    public static String firstSegment(String key) {
+        int start = key.indexOf('/');
+        if (start < 0) {
+            return key;
+        }
+        int end = firstSegmentEnd(key, start);
+        return start == 0 && end == key.length() ? key : key.substring(start, end);
+    }
+
+    /**
+     * Checks if {@code segment} is the {@link #firstSegment(String) first path segment} of the given
+     * {@code key}, without allocating.
+     *
+     * @param key     the lock key
+     * @param segment the first path segment to check for
+     * @return true if {@code firstSegment(key)} equals {@code segment}, false otherwise
+     */
+    public static boolean hasFirstSegment(String key, String segment) {
+        int start = key.indexOf('/');
+        if (start < 0) {
+            return key.equals(segment);
+        }
+        int length = firstSegmentEnd(key, start) - start;
+        return length == segment.length() && key.regionMatches(start, segment, 0, length);
+    }
+
+    private static int firstSegmentEnd(String key, int start) {
+        int end = start + 1;
+        while (end < key.length() && "/,] ".indexOf(key.charAt(end)) < 0) {
+            end++;
+        }
+        return end;
+    }
+}
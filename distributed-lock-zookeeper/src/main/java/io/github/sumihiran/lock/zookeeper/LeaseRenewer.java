@@ -0,0 +1,194 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the leases of lock nodes created with a TTL alive.
+ *
+ * <p>A single periodic task renews all leases that have used up a third of their duration, by touching their
+ * nodes in {@code multi()} transactions of up to {@value #MAX_BATCH_SIZE} nodes. The task runs at a third of
+ * the shortest lease duration registered so far and stops while no lease is registered.</p>
+ *
+ * <p>A lease that could not be renewed for its duration expires. Its node is then deleted on a best-effort
+ * basis, since Zookeeper deletes it anyway once the TTL has passed.</p>
+ */
+final class LeaseRenewer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeaseRenewer.class);
+
+    static final int MAX_BATCH_SIZE = 128;
+
+    private static final long MIN_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final byte[] NO_DATA = new byte[0];
+
+    private final CuratorFramework client;
+    private final ScheduledExecutorService scheduler;
+    private final Set<LockLease> leases = ConcurrentHashMap.newKeySet();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private ScheduledFuture<?> task;
+    private long periodNanos = Long.MAX_VALUE;
+
+    /**
+     * Constructs a new renewer.
+     *
+     * @param client    the CuratorFramework client
+     * @param scheduler the scheduler running the renewal task
+     */
+    LeaseRenewer(CuratorFramework client, ScheduledExecutorService scheduler) {
+        this.client = client;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Starts renewing the lease of the given {@code node}.
+     *
+     * @param node           the full path of the lock node
+     * @param duration       the lease duration, which must match the TTL of the node
+     * @param createdAtNanos the {@link System#nanoTime()} at which the creation of the node was requested
+     * @return the lease, which must be cancelled once the node is deleted
+     */
+    LockLease register(String node, Duration duration, long createdAtNanos) {
+        LockLease lease = new LockLease(node, duration, createdAtNanos);
+        leases.add(lease);
+        lease.expired().whenComplete((result, error) -> leases.remove(lease));
+        schedule(lease.durationNanos() / 3);
+        return lease;
+    }
+
+    /**
+     * Returns the number of leases being renewed.
+     *
+     * @return the number of registered leases
+     */
+    int size() {
+        return leases.size();
+    }
+
+    /**
+     * Stops renewing all leases, which will expire in Zookeeper once their TTL has passed.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (task != null) {
+                task.cancel(false);
+                task = null;
+                periodNanos = Long.MAX_VALUE;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void renew() {
+        long nowNanos = System.nanoTime();
+        List<LockLease> due = new ArrayList<>();
+        for (LockLease lease : leases) {
+            if (lease.isExpiredAt(nowNanos)) {
+                LOGGER.warn("Lease expired for lock node: {}", lease.node());
+                lease.expire();
+                LockNodes.delete(client, lease.node());
+            } else if (nowNanos - lease.renewalDueAtNanos() >= 0 && lease.startRenewal()) {
+                due.add(lease);
+            }
+        }
+        for (int from = 0; from < due.size(); from += MAX_BATCH_SIZE) {
+            renew(new ArrayList<>(due.subList(from, Math.min(due.size(), from + MAX_BATCH_SIZE))), nowNanos);
+        }
+        stopIfIdle();
+    }
+
+    private void renew(List<LockLease> batch, long sentAtNanos) {
+        if (batch.size() == 1) {
+            renewEach(batch, sentAtNanos);
+            return;
+        }
+        try {
+            List<CuratorOp> operations = new ArrayList<>(batch.size());
+            for (LockLease lease : batch) {
+                operations.add(client.transactionOp().setData().forPath(lease.node(), NO_DATA));
+            }
+            client.transaction().inBackground((c, event) -> {
+                if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+                    batch.forEach(lease -> lease.renewed(sentAtNanos));
+                } else {
+                    renewEach(batch, sentAtNanos);
+                }
+            }).forOperations(operations);
+        } catch (Exception e) {
+            LOGGER.debug("Failed to renew {} leases", batch.size(), e);
+            batch.forEach(LockLease::renewalFailed);
+        }
+    }
+
+    private void renewEach(List<LockLease> batch, long sentAtNanos) {
+        for (LockLease lease : batch) {
+            try {
+                client.setData().inBackground((c, event) -> {
+                    KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+                    if (code == KeeperException.Code.OK) {
+                        lease.renewed(sentAtNanos);
+                    } else if (code == KeeperException.Code.NONODE) {
+                        if (lease.isActive()) {
+                            LOGGER.warn("Lock node of lease is gone: {}", lease.node());
+                        }
+                        lease.expire();
+                    } else {
+                        LOGGER.debug("Failed to renew lease of lock node: {} ({})", lease.node(), code);
+                        lease.renewalFailed();
+                    }
+                }).forPath(lease.node(), NO_DATA);
+            } catch (Exception e) {
+                LOGGER.debug("Failed to renew lease of lock node: {}", lease.node(), e);
+                lease.renewalFailed();
+            }
+        }
+    }
+
+    private void schedule(long leasePeriodNanos) {
+        long period = Math.max(MIN_PERIOD_NANOS, leasePeriodNanos);
+        lock.lock();
+        try {
+            if (task != null && period >= periodNanos) {
+                return;
+            }
+            if (task != null) {
+                task.cancel(false);
+            }
+            periodNanos = period;
+            task = scheduler.scheduleWithFixedDelay(this::renew, period, period, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void stopIfIdle() {
+        lock.lock();
+        try {
+            if (leases.isEmpty() && task != null) {
+                task.cancel(false);
+                task = null;
+                periodNanos = Long.MAX_VALUE;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.framework.recipes.cache.CuratorCacheStorage;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Answers which keys are locked, by whom, and how many contenders are waiting, from an in-memory mirror of
+ * the lock nodes below a root path, without any Zookeeper requests per query.
+ *
+ * <p>The mirror is a {@link CuratorCache} of the root, kept up to date by a single persistent recursive watch.
+ * Only the stats of the nodes are cached, not their data. The inspector indexes the children of every node,
+ * so that a query only looks at the nodes of the queried lock: {@link #isLocked(String)},
+ * {@link #holder(String)} and {@link #queueLength(String)} take O(k) for k contenders of the key. The lock
+ * paths of all held locks are kept in a sorted set, updated whenever a lock node is created or deleted, so
+ * {@link #listHeld(String)} takes O(log n + k log k) for k held locks below the prefix, regardless of how many
+ * other nodes are mirrored. Answers are as recent as the last notification received from Zookeeper.</p>
+ *
+ * <p>Locks built on Curator's semaphores, such as the default {@code InterProcessSemaphoreMutex} and
+ * {@link ZookeeperDistributedLock#acquirePermits}, are held by their oldest lease, and waiters queue up on
+ * their internal lock below {@code locks}. Locks on sequential lock nodes, such as those of
+ * {@link ZookeeperDistributedLock#acquireAsync} and {@link FairLockFactory}, share that layout, but hold the
+ * lock with their node below {@code locks} rather than with a lease: without a lease, the oldest node below
+ * {@code locks} is the holder, and the other nodes are waiting. Read/write locks report their oldest node as the holder and all other nodes as
+ * waiting, although several readers may hold the lock at the same time.</p>
+ *
+ * <p>The inspector requires Zookeeper 3.6 or later, and must use the same {@link LockPathStrategy} as the
+ * locks it inspects. The root should be the parent of the lock keys, since every node below it is
+ * mirrored.</p>
+ */
+public class LockInspector implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockInspector.class);
+
+    private static final String LEASES = "leases";
+    private static final String LOCKS = "locks";
+    private static final int SEQUENCE_LENGTH = 10;
+    private static final Pattern CONTENDER_NAME = Pattern.compile(".*(lock-|lease-|__READ__|__WRIT__)\\d{10}");
+    private static final long EXTENDED_OWNER_MASK = 0xff00000000000000L;
+
+    private final CuratorCache cache;
+    private final LockPathStrategy lockPaths;
+    private final Map<String, Set<String>> children = new ConcurrentHashMap<>();
+    private final NavigableSet<String> heldPaths = new ConcurrentSkipListSet<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final CountDownLatch initialized = new CountDownLatch(1);
+
+    /**
+     * Constructs a new inspector of the locks below {@code root}, whose lock paths are the keys.
+     *
+     * @param client the CuratorFramework client
+     * @param root   the path below which the lock keys are located
+     */
+    public LockInspector(CuratorFramework client, String root) {
+        this(client, root, LockPathStrategy.identity());
+    }
+
+    /**
+     * Constructs a new inspector of the locks below {@code root}, whose lock paths are mapped from the keys
+     * by {@code lockPaths}.
+     *
+     * @param client    the CuratorFramework client
+     * @param root      the path below which the lock keys are located
+     * @param lockPaths the strategy mapping lock keys to lock paths, as used by the inspected locks
+     */
+    public LockInspector(CuratorFramework client, String root, LockPathStrategy lockPaths) {
+        this(CuratorCache.builder(client, root).withStorage(CuratorCacheStorage.dataNotCached()).build(), lockPaths);
+    }
+
+    LockInspector(CuratorCache cache, LockPathStrategy lockPaths) {
+        this.cache = cache;
+        this.lockPaths = lockPaths;
+        cache.listenable().addListener(CuratorCacheListener.builder()
+            .forCreates(this::created)
+            .forDeletes(this::deleted)
+            .forInitialized(initialized::countDown)
+            .build());
+    }
+
+    /**
+     * Starts mirroring the lock nodes. Queries answer from the nodes loaded so far until the mirror has been
+     * initialized.
+     */
+    public void start() {
+        cache.start();
+    }
+
+    /**
+     * Waits until all nodes below the root have been loaded.
+     *
+     * @param timeout the duration to wait
+     * @return true if the mirror has been initialized, false if the timeout passed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitInitialized(Duration timeout) throws InterruptedException {
+        return initialized.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Checks if the lock of the specified key is held.
+     *
+     * @param key the lock key
+     * @return true if the lock is held by any process, false otherwise
+     */
+    public boolean isLocked(String key) {
+        return holderNode(lockPaths.lockPath(key)) != null;
+    }
+
+    /**
+     * Returns the holder of the lock of the specified key.
+     *
+     * @param key the lock key
+     * @return the holder, or empty if the lock is not held
+     */
+    public Optional<Holder> holder(String key) {
+        String node = holderNode(lockPaths.lockPath(key));
+        if (node == null) {
+            return Optional.empty();
+        }
+        return cache.get(node).map(data -> new Holder(node, data.getStat()));
+    }
+
+    /**
+     * Returns the number of contenders waiting for the lock of the specified key.
+     *
+     * @param key the lock key
+     * @return the number of waiting contenders
+     */
+    public int queueLength(String key) {
+        String path = lockPaths.lockPath(key);
+        int locks = countContenders(children.get(ZKPaths.makePath(path, LOCKS)));
+        if (locks == 0) {
+            return Math.max(0, countContenders(children.get(path)) - 1);
+        }
+        // without a lease, the oldest node below locks holds the lock
+        return countContenders(children.get(ZKPaths.makePath(path, LEASES))) > 0 ? locks : locks - 1;
+    }
+
+    /**
+     * Returns the keys of all held locks whose lock paths are located at or below the specified path prefix.
+     *
+     * @param prefix the path below which to look for held locks, e.g. {@code /orders}
+     * @return the keys of the held locks, in lexicographic order
+     */
+    public List<String> listHeld(String prefix) {
+        List<String> held = new ArrayList<>();
+        if (heldPaths.contains(prefix)) {
+            held.add(lockPaths.key(prefix));
+        }
+        // the paths below the prefix sort between the prefix followed by '/' and the prefix followed by '0'
+        String below = prefix.endsWith(ZKPaths.PATH_SEPARATOR) ? prefix : prefix + ZKPaths.PATH_SEPARATOR;
+        for (String path : heldPaths.subSet(below, below.substring(0, below.length() - 1) + '0')) {
+            held.add(lockPaths.key(path));
+        }
+        // keys sort differently from their lock paths when hash buckets are inserted
+        Collections.sort(held);
+        return held;
+    }
+
+    /**
+     * Adds a listener notified whenever a lock below the root is acquired or released, or a contender starts
+     * or stops waiting, once the mirror has been initialized.
+     *
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stops mirroring the lock nodes and removes the watch from Zookeeper.
+     */
+    @Override
+    public void close() {
+        cache.close();
+    }
+
+    void created(ChildData node) {
+        ZKPaths.PathAndNode pathAndNode = ZKPaths.getPathAndNode(node.getPath());
+        if (pathAndNode.getNode().isEmpty()) {
+            return;
+        }
+        children.computeIfAbsent(pathAndNode.getPath(), path -> ConcurrentHashMap.newKeySet()).add(pathAndNode.getNode());
+        lockChanged(pathAndNode);
+    }
+
+    void deleted(ChildData node) {
+        ZKPaths.PathAndNode pathAndNode = ZKPaths.getPathAndNode(node.getPath());
+        children.remove(node.getPath());
+        Set<String> siblings = children.get(pathAndNode.getPath());
+        if (siblings != null) {
+            siblings.remove(pathAndNode.getNode());
+        }
+        lockChanged(pathAndNode);
+    }
+
+    /**
+     * Updates the held lock paths and notifies the listeners once a contender node has been created or
+     * deleted. Called on the single thread of the cache, so updates of the same lock path never race.
+     */
+    private void lockChanged(ZKPaths.PathAndNode pathAndNode) {
+        if (!isContender(pathAndNode.getNode())) {
+            return;
+        }
+        String lockPath = pathAndNode.getPath();
+        ZKPaths.PathAndNode parent = ZKPaths.getPathAndNode(lockPath);
+        if (LEASES.equals(parent.getNode()) || LOCKS.equals(parent.getNode())) {
+            // the lease and lock nodes of Curator's semaphores are located below the lock path
+            lockPath = parent.getPath();
+        }
+        if (holderNode(lockPath) != null) {
+            heldPaths.add(lockPath);
+        } else {
+            heldPaths.remove(lockPath);
+        }
+        if (initialized.getCount() > 0 || listeners.isEmpty()) {
+            return;
+        }
+        String key = lockPaths.key(lockPath);
+        for (Listener listener : listeners) {
+            try {
+                listener.lockChanged(key);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Lock inspector listener failed for key: {}", key, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the path of the node holding the lock of the given path, or null if the lock is not held.
+     */
+    private String holderNode(String path) {
+        String leasesPath = ZKPaths.makePath(path, LEASES);
+        String lease = oldestContender(children.get(leasesPath));
+        if (lease != null) {
+            return ZKPaths.makePath(leasesPath, lease);
+        }
+        String locksPath = ZKPaths.makePath(path, LOCKS);
+        String lock = oldestContender(children.get(locksPath));
+        if (lock != null) {
+            return ZKPaths.makePath(locksPath, lock);
+        }
+        String node = oldestContender(children.get(path));
+        return node == null ? null : ZKPaths.makePath(path, node);
+    }
+
+    private static String oldestContender(Set<String> names) {
+        if (names == null) {
+            return null;
+        }
+        String oldest = null;
+        for (String name : names) {
+            if (isContender(name) && (oldest == null || sequence(name).compareTo(sequence(oldest)) < 0)) {
+                oldest = name;
+            }
+        }
+        return oldest;
+    }
+
+    private static int countContenders(Set<String> names) {
+        if (names == null) {
+            return 0;
+        }
+        int count = 0;
+        for (String name : names) {
+            if (isContender(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isContender(String name) {
+        return name.length() > SEQUENCE_LENGTH && CONTENDER_NAME.matcher(name).matches();
+    }
+
+    private static String sequence(String name) {
+        return name.substring(name.length() - SEQUENCE_LENGTH);
+    }
+
+    /**
+     * Receives changes of the locks below the root of a {@link LockInspector}.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Called on the thread of the cache when a lock node of the key has been created or deleted, so the
+         * lock may have been acquired or released, or its queue may have changed. Must not block.
+         *
+         * @param key the lock key
+         */
+        void lockChanged(String key);
+    }
+
+    /**
+     * The node holding a lock, as last seen by a {@link LockInspector}.
+     */
+    public static final class Holder {
+
+        private final String lockNode;
+        private final Stat stat;
+
+        Holder(String lockNode, Stat stat) {
+            this.lockNode = lockNode;
+            this.stat = stat;
+        }
+
+        /**
+         * Returns the full path of the lock node.
+         *
+         * @return the lock node path
+         */
+        public String lockNode() {
+            return lockNode;
+        }
+
+        /**
+         * Returns the id of the Zookeeper session holding the lock.
+         *
+         * @return the session id, or empty if the lock node is not ephemeral, as for lease locks
+         */
+        public OptionalLong sessionId() {
+            long owner = stat.getEphemeralOwner();
+            // TTL and container nodes encode their type in the highest byte of the owner instead of a session
+            if (owner == 0 || (owner & EXTENDED_OWNER_MASK) == EXTENDED_OWNER_MASK) {
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of(owner);
+        }
+
+        /**
+         * Returns the zxid that created the lock node, which is the {@link Acquisition#fencingToken()} of
+         * the holder for locks on sequential lock nodes.
+         *
+         * @return the creation zxid of the lock node
+         */
+        public long fencingToken() {
+            return stat.getCzxid();
+        }
+
+        /**
+         * Returns the time the lock node was created, which is when the holder started waiting for the lock.
+         *
+         * @return the creation time of the lock node
+         */
+        public Instant createdAt() {
+            return Instant.ofEpochMilli(stat.getCtime());
+        }
+
+        @Override
+        public String toString() {
+            return "Holder{lockNode=" + lockNode + ", sessionId=0x" + Long.toHexString(stat.getEphemeralOwner()) + "}";
+        }
+    }
+}
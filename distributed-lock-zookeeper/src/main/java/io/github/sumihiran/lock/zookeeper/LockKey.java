@@ -0,0 +1,245 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.utils.PathUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A lock key made of a namespace and an arbitrary name, encoded once into a valid Zookeeper path.
+ *
+ * <p>Plain string keys are used as paths as they are, so a key containing {@code /} creates nested paths and
+ * characters Zookeeper rejects only fail once the lock nodes are created. A {@code LockKey} encodes its name
+ * into a single node name below the namespace: letters, digits, {@code -}, {@code _} and {@code .} are kept,
+ * and all other characters are escaped as {@code %XX} of their UTF-8 bytes. Names whose encoding exceeds
+ * {@value #MAX_NODE_NAME_LENGTH} characters are shortened to a prefix of the encoding followed by {@code ~}
+ * and a SHA-256 hash of the name, so distinct names keep distinct paths.</p>
+ *
+ * <p>Namespaces are validated once, and the path of a key is built once, with a single allocation for names
+ * that need no escaping, so keys can be kept and reused for every acquisition of the same lock.</p>
+ *
+ * <pre>{@code
+ * LockKey.Namespace orders = LockKey.namespace("/locks/order");
+ * distributedLock.acquire(orders.key(orderId), Duration.ofSeconds(5));
+ * }</pre>
+ */
+public final class LockKey {
+
+    /**
+     * The maximum length of the node name a name is encoded into.
+     */
+    public static final int MAX_NODE_NAME_LENGTH = 128;
+
+    private static final int HASH_LENGTH = 32;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final Namespace namespace;
+    private final String name;
+    private final String path;
+
+    private LockKey(Namespace namespace, String name, String path) {
+        this.namespace = namespace;
+        this.name = name;
+        this.path = path;
+    }
+
+    /**
+     * Returns the key of the given {@code name} in the namespace of the given path.
+     *
+     * @param namespace the path of the namespace
+     * @param name      the name of the key, which may contain any character
+     * @return the key
+     * @throws IllegalArgumentException if {@code namespace} is not a valid Zookeeper path or {@code name} is
+     *                                  empty
+     */
+    public static LockKey of(String namespace, String name) {
+        return namespace(namespace).key(name);
+    }
+
+    /**
+     * Returns the namespace of the given path, which keys are created in.
+     *
+     * @param path the path of the namespace, e.g. {@code /locks/order}
+     * @return the namespace
+     * @throws IllegalArgumentException if {@code path} is not a valid Zookeeper path
+     */
+    public static Namespace namespace(String path) {
+        return new Namespace(path);
+    }
+
+    /**
+     * Returns the namespace of this key.
+     *
+     * @return the namespace
+     */
+    public Namespace namespace() {
+        return namespace;
+    }
+
+    /**
+     * Returns the name of this key, as it was given.
+     *
+     * @return the name
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the path of this key, which is the key passed to {@link DistributedLock}.
+     *
+     * @return the path of the namespace followed by the encoded name
+     */
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof LockKey && path.equals(((LockKey) other).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private static boolean isSafe(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_' || c == '.';
+    }
+
+    /**
+     * Checks if the name can be used as the node name as it is.
+     */
+    private static boolean isPlain(String name) {
+        if (name.length() > MAX_NODE_NAME_LENGTH || isReserved(name)) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (!isSafe(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the name is one of the node names Zookeeper reserves for path navigation.
+     */
+    private static boolean isReserved(String name) {
+        return name.equals(".") || name.equals("..");
+    }
+
+    /**
+     * Appends the encoding of the name bytes, or the longest prefix of it that fits into {@code maxLength}
+     * characters without splitting a character.
+     */
+    private static void appendEncoded(StringBuilder path, byte[] bytes, boolean reserved, int maxLength) {
+        final int start = path.length();
+        int characterStart = start;
+        for (byte b : bytes) {
+            boolean literal = isSafe(b) && !reserved;
+            if ((b & 0xc0) != 0x80) {
+                // not a continuation byte of a multibyte character
+                characterStart = path.length();
+            }
+            if (path.length() - start + (literal ? 1 : 3) > maxLength) {
+                path.setLength(characterStart);
+                return;
+            }
+            if (literal) {
+                path.append((char) b);
+            } else {
+                path.append('%').append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+            }
+        }
+    }
+
+    private static void appendHash(StringBuilder path, byte[] bytes) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (int i = 0; i < HASH_LENGTH / 2; i++) {
+            path.append(HEX_DIGITS[(hash[i] >> 4) & 0xf]).append(HEX_DIGITS[hash[i] & 0xf]);
+        }
+    }
+
+    /**
+     * A validated path that lock keys are created in.
+     */
+    public static final class Namespace {
+
+        private final String path;
+        private final String prefix;
+
+        private Namespace(String path) {
+            PathUtils.validatePath(path);
+            this.path = path;
+            this.prefix = path.equals("/") ? path : path + '/';
+        }
+
+        /**
+         * Returns the key of the given {@code name} in this namespace.
+         *
+         * @param name the name of the key, which may contain any character
+         * @return the key
+         * @throws IllegalArgumentException if {@code name} is empty
+         */
+        public LockKey key(String name) {
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("name must not be empty");
+            }
+            if (isPlain(name)) {
+                return new LockKey(this, name, prefix.concat(name));
+            }
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            boolean reserved = isReserved(name);
+            int encodedLength = 0;
+            for (byte b : bytes) {
+                encodedLength += isSafe(b) && !reserved ? 1 : 3;
+            }
+            boolean hashed = encodedLength > MAX_NODE_NAME_LENGTH;
+            StringBuilder key = new StringBuilder(prefix.length() + Math.min(encodedLength, MAX_NODE_NAME_LENGTH));
+            key.append(prefix);
+            appendEncoded(key, bytes, reserved, hashed ? MAX_NODE_NAME_LENGTH - HASH_LENGTH - 1 : encodedLength);
+            if (hashed) {
+                key.append('~');
+                appendHash(key, bytes);
+            }
+            return new LockKey(this, name, key.toString());
+        }
+
+        /**
+         * Returns the path of this namespace.
+         *
+         * @return the path
+         */
+        public String path() {
+            return path;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || other instanceof Namespace && path.equals(((Namespace) other).path);
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return path;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The lease of a lock node created with a TTL, kept alive by a {@link LeaseRenewer}.
+ *
+ * <p>The lease is considered expired once it has not been renewed for its duration, measured from the time
+ * the last successful renewal was sent. Zookeeper deletes the node at the earliest at the same point in
+ * time. Acquisitions check {@link #isExpiredAt(long)} against the clock whenever their state is read, rather
+ * than waiting for the renewal task to notice, so a holder never believes to hold a lease that other
+ * processes already consider expired.</p>
+ */
+final class LockLease {
+
+    private final String node;
+    private final long durationNanos;
+    private final CompletableFuture<Void> expired = new CompletableFuture<>();
+    private final AtomicBoolean renewing = new AtomicBoolean();
+    private volatile long renewedAtNanos;
+
+    LockLease(String node, Duration duration, long createdAtNanos) {
+        this.node = node;
+        this.durationNanos = duration.toNanos();
+        this.renewedAtNanos = createdAtNanos;
+    }
+
+    /**
+     * Returns the full path of the lock node.
+     *
+     * @return the lock node path
+     */
+    String node() {
+        return node;
+    }
+
+    /**
+     * Returns the time left until the lease expires.
+     *
+     * @return the remaining lease, or {@link Duration#ZERO} once the lease has expired or has been cancelled
+     */
+    Duration remaining() {
+        if (expired.isDone()) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, renewedAtNanos + durationNanos - System.nanoTime()));
+    }
+
+    /**
+     * Returns a future completed once the lease expires. It is cancelled if the lease is cancelled first.
+     *
+     * @return the expiry future
+     */
+    CompletableFuture<Void> expired() {
+        return expired;
+    }
+
+    /**
+     * Stops renewing the lease, e.g. because its node has been deleted.
+     */
+    void cancel() {
+        expired.cancel(false);
+    }
+
+    boolean isActive() {
+        return !expired.isDone();
+    }
+
+    boolean isExpiredAt(long nowNanos) {
+        return nowNanos - renewedAtNanos >= durationNanos;
+    }
+
+    long renewalDueAtNanos() {
+        return renewedAtNanos + durationNanos / 3;
+    }
+
+    long durationNanos() {
+        return durationNanos;
+    }
+
+    boolean startRenewal() {
+        return renewing.compareAndSet(false, true);
+    }
+
+    void renewed(long sentAtNanos) {
+        renewedAtNanos = sentAtNanos;
+        renewing.set(false);
+    }
+
+    void renewalFailed() {
+        renewing.set(false);
+    }
+
+    void expire() {
+        expired.complete(null);
+    }
+}
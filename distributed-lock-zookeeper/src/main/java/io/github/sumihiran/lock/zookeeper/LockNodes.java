@@ -0,0 +1,101 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.zookeeper.KeeperException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Background deletes of lock nodes.
+ *
+ * <p>All deletes treat a node that is already gone as deleted, since ephemeral lock nodes vanish with the
+ * session that created them.</p>
+ */
+final class LockNodes {
+
+    private LockNodes() {
+    }
+
+    /**
+     * Deletes a single lock node, retrying in the background until the client gives up or the session ends.
+     *
+     * @param client the CuratorFramework client
+     * @param node   the full path of the lock node
+     * @return a future completed once the node is deleted
+     */
+    static CompletableFuture<Void> delete(CuratorFramework client, String node) {
+        CompletableFuture<Void> deleted = new CompletableFuture<>();
+        try {
+            client.delete().guaranteed().inBackground((c, event) -> {
+                KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+                if (code == KeeperException.Code.OK || code == KeeperException.Code.NONODE) {
+                    deleted.complete(null);
+                } else {
+                    deleted.completeExceptionally(KeeperException.create(code, event.getPath()));
+                }
+            }).forPath(node);
+        } catch (Exception e) {
+            deleted.completeExceptionally(e);
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes the given lock nodes with one request per node.
+     *
+     * @param client the CuratorFramework client
+     * @param nodes  the full paths of the lock nodes
+     * @return a future completed once all nodes are deleted
+     */
+    static CompletableFuture<Void> deleteEach(CuratorFramework client, List<String> nodes) {
+        List<CompletableFuture<Void>> deletes = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            deletes.add(delete(client, node));
+        }
+        return CompletableFuture.allOf(deletes.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Deletes the given lock nodes in a single transaction, falling back to {@link #deleteEach} if the
+     * transaction fails, e.g. because one of the nodes is already gone.
+     *
+     * @param client the CuratorFramework client
+     * @param nodes  the full paths of the lock nodes
+     * @return a future completed once all nodes are deleted
+     */
+    static CompletableFuture<Void> deleteAll(CuratorFramework client, List<String> nodes) {
+        if (nodes.size() < 2) {
+            return deleteEach(client, nodes);
+        }
+        CompletableFuture<Void> deleted = new CompletableFuture<>();
+        try {
+            List<CuratorOp> operations = new ArrayList<>(nodes.size());
+            for (String node : nodes) {
+                operations.add(client.transactionOp().delete().forPath(node));
+            }
+            client.transaction().inBackground((c, event) -> {
+                if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+                    deleted.complete(null);
+                } else {
+                    propagate(deleteEach(client, nodes), deleted);
+                }
+            }).forOperations(operations);
+        } catch (Exception e) {
+            propagate(deleteEach(client, nodes), deleted);
+        }
+        return deleted;
+    }
+
+    private static void propagate(CompletableFuture<Void> source, CompletableFuture<Void> target) {
+        source.whenComplete((result, error) -> {
+            if (error == null) {
+                target.complete(null);
+            } else {
+                target.completeExceptionally(error);
+            }
+        });
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.utils.PathUtils;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates lock paths and their parents up front, in a few round trips.
+ *
+ * <p>Paths that do not exist yet are found with pipelined existence checks, and created as container nodes in
+ * transactions of a bounded number of nodes, parents before their children. A transaction that fails, e.g.
+ * because another process has created one of its nodes meanwhile, is retried with one pipelined request per
+ * node, which treats a node that already exists as created.</p>
+ */
+final class LockPathBootstrap {
+
+    static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+    private static final byte[] NO_DATA = new byte[0];
+
+    private LockPathBootstrap() {
+    }
+
+    /**
+     * Creates the given paths and all their parents that do not exist yet.
+     *
+     * @param client       the CuratorFramework client
+     * @param paths        the full paths to create
+     * @param maxBatchSize the maximum number of nodes created by a single transaction
+     * @return a future completed with the number of nodes created
+     */
+    static CompletableFuture<Integer> createAll(CuratorFramework client, Collection<String> paths, int maxBatchSize) {
+        return missing(client, withParents(paths))
+            .thenCompose(missing -> createInBatches(client, missing, maxBatchSize, 0, 0));
+    }
+
+    /**
+     * Returns the given paths along with all their parents, in an order where every parent comes before its
+     * children.
+     */
+    static List<String> withParents(Collection<String> paths) {
+        // a parent is a prefix of its children, so it sorts before them
+        TreeSet<String> all = new TreeSet<>();
+        for (String path : paths) {
+            PathUtils.validatePath(path);
+            for (int separator = path.indexOf('/', 1); separator > 0; separator = path.indexOf('/', separator + 1)) {
+                all.add(path.substring(0, separator));
+            }
+            if (path.length() > 1) {
+                all.add(path);
+            }
+        }
+        return new ArrayList<>(all);
+    }
+
+    private static CompletableFuture<List<String>> missing(CuratorFramework client, List<String> paths) {
+        CompletableFuture<List<String>> missing = new CompletableFuture<>();
+        if (paths.isEmpty()) {
+            missing.complete(paths);
+            return missing;
+        }
+        boolean[] exists = new boolean[paths.size()];
+        AtomicInteger pending = new AtomicInteger(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            final int index = i;
+            try {
+                client.checkExists().inBackground((c, event) -> {
+                    KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+                    if (code != KeeperException.Code.OK && code != KeeperException.Code.NONODE) {
+                        missing.completeExceptionally(KeeperException.create(code, event.getPath()));
+                        return;
+                    }
+                    exists[index] = code == KeeperException.Code.OK;
+                    if (pending.decrementAndGet() == 0) {
+                        List<String> result = new ArrayList<>();
+                        for (int j = 0; j < exists.length; j++) {
+                            if (!exists[j]) {
+                                result.add(paths.get(j));
+                            }
+                        }
+                        missing.complete(result);
+                    }
+                }).forPath(paths.get(i));
+            } catch (Exception e) {
+                missing.completeExceptionally(e);
+                break;
+            }
+        }
+        return missing;
+    }
+
+    private static CompletableFuture<Integer> createInBatches(CuratorFramework client, List<String> paths,
+                                                             int maxBatchSize, int from, int created) {
+        if (from >= paths.size()) {
+            return CompletableFuture.completedFuture(created);
+        }
+        // one batch after the other, so that the parents of a batch exist once it is created
+        List<String> batch = paths.subList(from, Math.min(from + maxBatchSize, paths.size()));
+        return createBatch(client, batch)
+            .thenCompose(count -> createInBatches(client, paths, maxBatchSize, from + batch.size(), created + count));
+    }
+
+    private static CompletableFuture<Integer> createBatch(CuratorFramework client, List<String> batch) {
+        CompletableFuture<Integer> created = new CompletableFuture<>();
+        try {
+            List<CuratorOp> operations = new ArrayList<>(batch.size());
+            for (String path : batch) {
+                operations.add(client.transactionOp().create().withMode(CreateMode.CONTAINER).forPath(path, NO_DATA));
+            }
+            client.transaction().inBackground((c, event) -> {
+                if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+                    created.complete(batch.size());
+                } else {
+                    propagate(createEach(client, batch), created);
+                }
+            }).forOperations(operations);
+        } catch (Exception e) {
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    private static CompletableFuture<Integer> createEach(CuratorFramework client, List<String> batch) {
+        CompletableFuture<Integer> created = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(batch.size());
+        AtomicInteger count = new AtomicInteger();
+        for (String path : batch) {
+            try {
+                client.create().withMode(CreateMode.CONTAINER).inBackground((c, event) -> {
+                    KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+                    if (code == KeeperException.Code.OK) {
+                        count.incrementAndGet();
+                    } else if (code != KeeperException.Code.NODEEXISTS) {
+                        created.completeExceptionally(KeeperException.create(code, event.getPath()));
+                        return;
+                    }
+                    if (pending.decrementAndGet() == 0) {
+                        created.complete(count.get());
+                    }
+                }).forPath(path, NO_DATA);
+            } catch (Exception e) {
+                created.completeExceptionally(e);
+                break;
+            }
+        }
+        return created;
+    }
+
+    private static void propagate(CompletableFuture<Integer> source, CompletableFuture<Integer> target) {
+        source.whenComplete((result, error) -> {
+            if (error == null) {
+                target.complete(result);
+            } else {
+                target.completeExceptionally(error);
+            }
+        });
+    }
+}
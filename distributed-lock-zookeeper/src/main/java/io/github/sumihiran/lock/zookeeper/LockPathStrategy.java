@@ -0,0 +1,60 @@
+package io.github.sumihiran.lock.zookeeper;
+
+/**
+ * Maps lock keys to the Zookeeper paths their lock nodes are created under.
+ *
+ * <p>All processes locking the same keys must use the same strategy, since the same key maps to different
+ * paths under different strategies and the locks would not exclude each other. Metrics and logs still refer
+ * to the key.</p>
+ */
+@FunctionalInterface
+public interface LockPathStrategy {
+
+    /**
+     * Returns the path of the given lock {@code key}.
+     *
+     * @param key the lock key
+     * @return the path to create the lock nodes of the key under
+     */
+    String lockPath(String key);
+
+    /**
+     * Returns the key of the given lock path, the inverse of {@link #lockPath(String)}, which is used to
+     * report keys found in Zookeeper, e.g. by {@link LockInspector#listHeld(String)}. Strategies that do not
+     * use the key as the path should override the default, which returns the path itself.
+     *
+     * @param lockPath the path of a lock
+     * @return the key of the lock
+     */
+    default String key(String lockPath) {
+        return lockPath;
+    }
+
+    /**
+     * Returns a strategy using the key itself as the lock path, which is the default.
+     *
+     * @return the identity strategy
+     */
+    static LockPathStrategy identity() {
+        return key -> key;
+    }
+
+    /**
+     * Returns a strategy that inserts hash buckets in front of the last path segment of the key, e.g.
+     * {@code /locks/order/3f/42} for {@code /locks/order/42} with one level.
+     *
+     * <p>Every lock path is created in Zookeeper as a node below its parent. Locking millions of distinct
+     * keys below a single parent grows its child list without bound, which slows down listing it, watching
+     * it and snapshotting the data tree. Each level spreads the keys over 256 buckets named by two hex digits
+     * of a hash of the last segment, so that a parent holds at most 256 buckets, and each bucket about
+     * {@code n / 256^levels} of {@code n} keys. Like the lock paths, the buckets are created as container
+     * nodes on demand, and Zookeeper deletes them once they are empty.</p>
+     *
+     * @param levels the number of bucket levels, between 1 and 3
+     * @return the hash bucket strategy
+     * @throws IllegalArgumentException if {@code levels} is not between 1 and 3
+     */
+    static LockPathStrategy hashBuckets(int levels) {
+        return new HashBucketPathStrategy(levels);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import java.time.Duration;
+
+/**
+ * The priority class of a waiter for a lock acquired with
+ * {@link ZookeeperDistributedLock#acquire(String, LockPriority, Duration)}.
+ *
+ * <p>The priority is encoded in the name of the lock node, e.g. {@code high-lock-0000000042}, so it is
+ * visible to all waiters. The lock is still held by the lock node with the lowest sequence number, but
+ * waiters of a lower priority class give way to waiters of a higher one that queued after them, by queueing
+ * again behind them. The holder of a lock is never preempted.</p>
+ */
+public enum LockPriority {
+
+    /**
+     * Gives way to waiters of every other class, e.g. for bulk or backfill jobs.
+     */
+    LOW("low-"),
+
+    /**
+     * Gives way to {@link #HIGH} waiters only. Lock nodes of other acquisitions of this library and Curator's
+     * {@code InterProcessMutex} count as this class, but do not give way themselves.
+     */
+    NORMAL(""),
+
+    /**
+     * Never gives way, e.g. for latency-sensitive requests.
+     */
+    HIGH("high-");
+
+    private final String marker;
+
+    LockPriority(String marker) {
+        this.marker = marker;
+    }
+
+    /**
+     * Returns the name of the lock nodes of this class, to which Zookeeper appends the sequence number.
+     */
+    String lockName() {
+        return marker + SequentialNodeLock.LOCK_NAME;
+    }
+
+    /**
+     * Returns the priority class encoded in the name of the given lock node.
+     *
+     * @param nodeName the name of a lock node
+     * @return the priority class, {@link #NORMAL} for lock nodes without priority
+     */
+    static LockPriority of(String nodeName) {
+        if (nodeName.contains(HIGH.lockName())) {
+            return HIGH;
+        }
+        return nodeName.contains(LOW.lockName()) ? LOW : NORMAL;
+    }
+}
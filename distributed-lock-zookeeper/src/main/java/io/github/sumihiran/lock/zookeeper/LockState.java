@@ -0,0 +1,23 @@
+package io.github.sumihiran.lock.zookeeper;
+
+/**
+ * The state of an acquired lock, as known to the process holding it.
+ */
+public enum LockState {
+
+    /**
+     * The lock is held.
+     */
+    HELD,
+
+    /**
+     * The connection to Zookeeper has been suspended while the lock was held, so it is not known whether the
+     * lock is still held. Work protected by the lock should pause until the state is resolved.
+     */
+    IN_DOUBT,
+
+    /**
+     * The lock has been released or lost.
+     */
+    NOT_HELD
+}
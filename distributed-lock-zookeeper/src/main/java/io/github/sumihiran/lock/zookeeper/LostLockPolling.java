@@ -0,0 +1,78 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the lost lock callbacks of acquisitions that do not report lost locks themselves, by polling
+ * {@link Acquisition#isAcquired()} on a single shared daemon thread.
+ */
+final class LostLockPolling implements Runnable {
+
+    static final long POLL_INTERVAL_MILLIS = 100;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LostLockPolling.class);
+
+    private static final ScheduledThreadPoolExecutor POLLER = newPoller();
+
+    private final Acquisition acquisition;
+    private final Runnable callback;
+    private volatile ScheduledFuture<?> task;
+
+    private LostLockPolling(Acquisition acquisition, Runnable callback) {
+        this.acquisition = acquisition;
+        this.callback = callback;
+    }
+
+    /**
+     * Runs the {@code callback} on the common fork-join pool once the {@code acquisition} is no longer
+     * acquired, checking it every {@value #POLL_INTERVAL_MILLIS} milliseconds.
+     *
+     * @param acquisition the acquisition to poll
+     * @param callback    the callback to run once the acquisition is no longer acquired
+     */
+    static void poll(Acquisition acquisition, Runnable callback) {
+        LostLockPolling polling = new LostLockPolling(acquisition, callback);
+        if (!acquisition.isAcquired()) {
+            polling.runCallback();
+            return;
+        }
+        polling.task = POLLER.scheduleWithFixedDelay(polling, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+        if (acquisition.isAcquired()) {
+            return;
+        }
+        ScheduledFuture<?> scheduled = task;
+        if (scheduled != null && scheduled.cancel(false)) {
+            runCallback();
+        }
+    }
+
+    private void runCallback() {
+        ForkJoinPool.commonPool().execute(() -> {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Lock lost callback failed", e);
+            }
+        });
+    }
+
+    private static ScheduledThreadPoolExecutor newPoller() {
+        ScheduledThreadPoolExecutor poller = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "zookeeper-distributed-lock-lost-lock-polling");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.setRemoveOnCancelPolicy(true);
+        return poller;
+    }
+}
@@ -0,0 +1,334 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.api.transaction.CuratorTransactionResult;
+import org.apache.curator.framework.imps.ProtectedUtils;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock over several paths that is acquired and released as a whole.
+ *
+ * <p>The lock nodes of all paths are created in a single Zookeeper transaction, so an uncontended acquisition
+ * takes one round trip to create the nodes plus one pipelined round trip to check them and to read the zxid
+ * of the transaction, regardless of the number of paths. Since the nodes of a transaction are queued atomically, two multi-path locks that share
+ * paths are queued in the same order on every shared path and cannot deadlock each other. The lock nodes are
+ * deleted in a single transaction as well.</p>
+ *
+ * <p>Each path is locked with the same node layout as {@link SequentialNodeLock}, which is that of Curator's
+ * {@code InterProcessSemaphoreMutex}.</p>
+ */
+final class MultiKeyLock implements NodeBackedLock, AsyncLock {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiKeyLock.class);
+
+    private static final byte[] NO_DATA = new byte[0];
+    private static final long NO_ZXID = -1;
+
+    private final CuratorFramework client;
+    private final List<String> paths;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<Attempt> current = new AtomicReference<>();
+
+    /**
+     * Constructs a new lock over the given {@code paths}.
+     *
+     * @param client    the CuratorFramework client
+     * @param paths     the distinct lock paths, in the order their lock nodes are created
+     * @param scheduler the scheduler enforcing acquisition timeouts
+     */
+    MultiKeyLock(CuratorFramework client, List<String> paths, ScheduledExecutorService scheduler) {
+        this.client = client;
+        this.paths = Collections.unmodifiableList(new ArrayList<>(paths));
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Starts acquiring the locks of all paths without blocking the calling thread.
+     *
+     * <p>The returned future completes with true once all locks are held, or with false if they could not be
+     * acquired within the timeout. Locks are never held partially: once the attempt fails, the lock nodes of
+     * all paths are deleted.</p>
+     *
+     * @param time the maximum time to wait for the locks
+     * @param unit the time unit of the {@code time} argument
+     * @return a future completed with the outcome of the attempt
+     * @throws IllegalStateException if the lock is already held or being acquired
+     */
+    @Override
+    public CompletableFuture<Boolean> acquireAsync(long time, TimeUnit unit) {
+        Attempt attempt = new Attempt();
+        if (!current.compareAndSet(null, attempt)) {
+            throw new IllegalStateException("Lock is already acquired or being acquired for paths: " + paths);
+        }
+        attempt.start(unit.toNanos(time));
+        return attempt.future;
+    }
+
+    @Override
+    public void acquire() throws Exception {
+        if (!acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+            throw new IllegalStateException("Failed to acquire lock for paths: " + paths);
+        }
+    }
+
+    @Override
+    public boolean acquire(long time, TimeUnit unit) throws Exception {
+        CompletableFuture<Boolean> attempt = acquireAsync(time, unit);
+        try {
+            return attempt.get();
+        } catch (InterruptedException e) {
+            attempt.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @Override
+    public void release() throws Exception {
+        try {
+            LockNodes.deleteAll(client, releaseNodes()).get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+        LOGGER.debug("Deleted lock nodes for paths: {}", paths);
+    }
+
+    @Override
+    public List<String> releaseNodes() {
+        Attempt attempt = current.get();
+        if (attempt == null || !attempt.isAcquired() || !current.compareAndSet(attempt, null)) {
+            throw new IllegalStateException("Lock is not acquired for paths: " + paths);
+        }
+        return attempt.detach();
+    }
+
+    @Override
+    public List<String> lockNodes() {
+        Attempt attempt = current.get();
+        return attempt == null || !attempt.isAcquired() ? Collections.emptyList() : attempt.lockNodes();
+    }
+
+    /**
+     * Returns the zxid of the transaction that created the lock nodes of all paths.
+     */
+    @Override
+    public OptionalLong fencingToken() {
+        Attempt attempt = current.get();
+        if (attempt == null || !attempt.isAcquired() || attempt.czxid == NO_ZXID) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(attempt.czxid);
+    }
+
+    @Override
+    public boolean isAcquiredInThisProcess() {
+        Attempt attempt = current.get();
+        return attempt != null && attempt.isAcquired();
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof Exception ? (Exception) cause : e;
+    }
+
+    /**
+     * A single attempt to acquire the locks of all paths, which owns one lock node per path once the
+     * transaction creating them has succeeded.
+     */
+    private final class Attempt {
+
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private final String protectedId = UUID.randomUUID().toString();
+        private final AtomicReference<List<SequentialNodeLock>> locks = new AtomicReference<>();
+        private volatile List<CompletableFuture<Boolean>> attempts = Collections.emptyList();
+        private volatile ScheduledFuture<?> timeout;
+        private volatile long czxid = NO_ZXID;
+
+        void start(long timeoutNanos) {
+            future.whenComplete((acquired, error) -> {
+                ScheduledFuture<?> scheduled = timeout;
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                if (!Boolean.TRUE.equals(acquired)) {
+                    abandon(error);
+                }
+            });
+            if (timeoutNanos != Long.MAX_VALUE) {
+                timeout = scheduler.schedule(() -> future.complete(false), timeoutNanos, TimeUnit.NANOSECONDS);
+            }
+            createNodes(true);
+        }
+
+        boolean isAcquired() {
+            return future.isDone() && !future.isCompletedExceptionally() && future.join();
+        }
+
+        /**
+         * Returns the lock nodes of this attempt, keeping them.
+         */
+        List<String> lockNodes() {
+            List<SequentialNodeLock> held = locks.get();
+            List<String> nodes = new ArrayList<>();
+            if (held != null) {
+                for (SequentialNodeLock lock : held) {
+                    nodes.addAll(lock.lockNodes());
+                }
+            }
+            return nodes;
+        }
+
+        /**
+         * Gives up the lock nodes of this attempt without deleting them.
+         */
+        List<String> detach() {
+            List<SequentialNodeLock> detached = locks.getAndSet(null);
+            List<String> nodes = new ArrayList<>();
+            if (detached != null) {
+                for (SequentialNodeLock lock : detached) {
+                    String node = lock.detach();
+                    if (node != null) {
+                        nodes.add(node);
+                    }
+                }
+            }
+            return nodes;
+        }
+
+        private void createNodes(boolean createParentsOnNoNode) {
+            try {
+                List<CuratorOp> operations = new ArrayList<>(paths.size());
+                for (String path : paths) {
+                    String node = ProtectedUtils.toProtectedZNodePath(
+                        ZKPaths.makePath(path, SequentialNodeLock.LOCKS, SequentialNodeLock.LOCK_NAME), protectedId);
+                    operations.add(client.transactionOp().create()
+                        .withMode(CreateMode.EPHEMERAL_SEQUENTIAL)
+                        .forPath(node, NO_DATA));
+                }
+                client.transaction()
+                    .inBackground((c, event) -> created(event, createParentsOnNoNode))
+                    .forOperations(operations);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void created(CuratorEvent event, boolean createParentsOnNoNode) {
+            KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+            if (code == KeeperException.Code.NONODE && createParentsOnNoNode && !future.isDone()) {
+                // transactions do not create parents, so create the missing parents of the lock nodes and try once more
+                createParents().whenComplete((result, error) -> {
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                    } else {
+                        createNodes(false);
+                    }
+                });
+                return;
+            }
+            if (code != KeeperException.Code.OK) {
+                future.completeExceptionally(KeeperException.create(code, paths.toString()));
+                return;
+            }
+
+            // start waiting before publishing the locks, so that an abandoning thread finds their nodes
+            List<SequentialNodeLock> created = new ArrayList<>(paths.size());
+            List<CompletableFuture<Boolean>> started = new ArrayList<>(paths.size());
+            List<CuratorTransactionResult> results = event.getOpResults();
+            for (int i = 0; i < results.size(); i++) {
+                SequentialNodeLock lock = new SequentialNodeLock(client, paths.get(i), scheduler);
+                CompletableFuture<Boolean> attempt =
+                    lock.acquireAsync(results.get(i).getResultPath(), Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                attempt.whenComplete((acquired, error) -> {
+                    if (error != null) {
+                        future.completeExceptionally(error);
+                    }
+                });
+                created.add(lock);
+                started.add(attempt);
+            }
+            attempts = started;
+            locks.set(created);
+            if (future.isDone()) {
+                // timed out or cancelled while the nodes were being created
+                abandon(null);
+                return;
+            }
+            // all nodes of the transaction share its zxid, but transaction results carry no stat
+            CompletableFuture<Boolean> czxidRead = readCzxid(results.get(0).getResultPath());
+            CompletableFuture.allOf(started.toArray(new CompletableFuture<?>[0]))
+                .thenCombine(czxidRead, (acquired, read) -> future.complete(true));
+        }
+
+        private CompletableFuture<Boolean> readCzxid(String node) {
+            CompletableFuture<Boolean> read = new CompletableFuture<>();
+            try {
+                client.checkExists().inBackground((c, event) -> {
+                    KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+                    if (code == KeeperException.Code.OK) {
+                        czxid = event.getStat().getCzxid();
+                        read.complete(true);
+                    } else {
+                        future.completeExceptionally(KeeperException.create(code, node));
+                    }
+                }).forPath(node);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+            return read;
+        }
+
+        private CompletableFuture<Void> createParents() {
+            List<CompletableFuture<Void>> creates = new ArrayList<>(paths.size());
+            for (String path : paths) {
+                CompletableFuture<Void> create = new CompletableFuture<>();
+                creates.add(create);
+                try {
+                    client.create().creatingParentContainersIfNeeded().withMode(CreateMode.CONTAINER).inBackground((c, event) -> {
+                        KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+                        if (code == KeeperException.Code.OK || code == KeeperException.Code.NODEEXISTS) {
+                            create.complete(null);
+                        } else {
+                            create.completeExceptionally(KeeperException.create(code, event.getPath()));
+                        }
+                    }).forPath(ZKPaths.makePath(path, SequentialNodeLock.LOCKS));
+                } catch (Exception e) {
+                    create.completeExceptionally(e);
+                }
+            }
+            return CompletableFuture.allOf(creates.toArray(new CompletableFuture<?>[0]));
+        }
+
+        private void abandon(Throwable error) {
+            current.compareAndSet(this, null);
+            List<String> abandoned = detach();
+            attempts.forEach(attempt -> attempt.cancel(false));
+            if (!abandoned.isEmpty()) {
+                LockNodes.deleteAll(client, abandoned);
+            }
+            if (error != null && !(error instanceof CancellationException)) {
+                LOGGER.debug("Abandoned lock attempt for paths: {}", paths, error);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * A lock whose ownership is fully represented by lock nodes it created, so that it can be released by
+ * deleting those nodes from any thread.
+ */
+interface NodeBackedLock extends InterProcessLock {
+
+    /**
+     * Releases the lock within this process and hands its lock nodes over to the caller, which becomes
+     * responsible for deleting them.
+     *
+     * @return the full paths of the lock nodes, possibly empty
+     * @throws IllegalStateException if the lock is not acquired
+     */
+    List<String> releaseNodes();
+
+    /**
+     * Returns the lock nodes of the held lock, without releasing it.
+     *
+     * @return the full paths of the lock nodes, empty if the lock is not acquired
+     */
+    List<String> lockNodes();
+
+    /**
+     * Returns the fencing token of the held lock, the zxid of the transaction that created its lock nodes.
+     *
+     * @return the fencing token, empty if the lock is not acquired or its nodes do not order its holders
+     */
+    OptionalLong fencingToken();
+}
@@ -0,0 +1,130 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.locks.Lease;
+import org.apache.curator.utils.ZKPaths;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds a number of permits of a counting semaphore as a single lock, built on the leases of Curator's
+ * {@link InterProcessSemaphoreV2}.
+ *
+ * <p>All permits are acquired in a single call to the semaphore and returned by deleting all lease nodes in
+ * a single transaction, instead of closing the leases one by one.</p>
+ */
+final class PermitLock implements NodeBackedLock {
+
+    // the parent of the lease nodes, see InterProcessSemaphoreV2.LOCK_SCHEMA
+    private static final String LEASE_PARENT = "leases";
+
+    private final CuratorFramework client;
+    private final String path;
+    private final int permits;
+    private final InterProcessSemaphoreV2 semaphore;
+    private final AtomicReference<Collection<Lease>> leases = new AtomicReference<>();
+
+    /**
+     * Constructs a new lock holding {@code permits} out of the {@code permitLimit} permits of the given
+     * {@code path}.
+     *
+     * @param client      the CuratorFramework client
+     * @param path        the semaphore path
+     * @param permits     the number of permits to hold
+     * @param permitLimit the number of permits available on the path, which must be the same for all holders
+     */
+    PermitLock(CuratorFramework client, String path, int permits, int permitLimit) {
+        if (permits < 1 || permits > permitLimit) {
+            throw new IllegalArgumentException(
+                "permits must be between 1 and the permit limit of " + permitLimit + " for path: " + path);
+        }
+        this.client = client;
+        this.path = path;
+        this.permits = permits;
+        this.semaphore = new InterProcessSemaphoreV2(client, path, permitLimit);
+    }
+
+    @Override
+    public void acquire() throws Exception {
+        throwIfAcquired();
+        hold(semaphore.acquire(permits));
+    }
+
+    @Override
+    public boolean acquire(long time, TimeUnit unit) throws Exception {
+        throwIfAcquired();
+        Collection<Lease> acquired = semaphore.acquire(permits, time, unit);
+        if (acquired == null) {
+            return false;
+        }
+        hold(acquired);
+        return true;
+    }
+
+    @Override
+    public void release() throws Exception {
+        try {
+            LockNodes.deleteAll(client, releaseNodes()).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    @Override
+    public List<String> releaseNodes() {
+        Collection<Lease> released = leases.getAndSet(null);
+        if (released == null) {
+            throw new IllegalStateException("Permits are not acquired for path: " + path);
+        }
+        return nodesOf(released);
+    }
+
+    @Override
+    public List<String> lockNodes() {
+        Collection<Lease> held = leases.get();
+        return held == null ? Collections.emptyList() : nodesOf(held);
+    }
+
+    /**
+     * Returns empty, since permits are held by several holders at the same time.
+     */
+    @Override
+    public OptionalLong fencingToken() {
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public boolean isAcquiredInThisProcess() {
+        return leases.get() != null;
+    }
+
+    private void throwIfAcquired() {
+        if (leases.get() != null) {
+            throw new IllegalStateException("Permits are already acquired for path: " + path);
+        }
+    }
+
+    private void hold(Collection<Lease> acquired) {
+        if (!leases.compareAndSet(null, acquired)) {
+            semaphore.returnAll(acquired);
+            throw new IllegalStateException("Permits are already acquired for path: " + path);
+        }
+    }
+
+    private List<String> nodesOf(Collection<Lease> held) {
+        List<String> nodes = new ArrayList<>(held.size());
+        for (Lease lease : held) {
+            nodes.add(ZKPaths.makePath(path, LEASE_PARENT, lease.getNodeName()));
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockLostException;
+
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The locks held by a single thread, counting how often each key has been acquired.
+ *
+ * <p>Keys are looked up in an open addressing table of their hash codes, so that looking up a key neither
+ * allocates nor dereferences entries of other keys. Only acquiring a key that is not held yet creates an
+ * entry, and every acquisition creates a small hold, which releases the underlying lock once the last hold
+ * of its key has been released.</p>
+ *
+ * <p>The table is confined to its thread: holds must be released by the thread that acquired them.</p>
+ */
+final class ReentrantHolds {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final Thread owner;
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private Entry[] entries = new Entry[INITIAL_CAPACITY];
+    private int size;
+
+    ReentrantHolds() {
+        this.owner = Thread.currentThread();
+    }
+
+    /**
+     * Returns another hold of the given {@code key} if it is held by this thread.
+     *
+     * @param key the lock key
+     * @return a new hold of the key, or null if the key is not held or its lock has been lost
+     */
+    Acquisition reenter(String key) {
+        int slot = find(key, key.hashCode());
+        if (slot < 0) {
+            return null;
+        }
+        Entry entry = entries[slot];
+        if (!entry.acquisition.isAcquired()) {
+            // the lock has been lost, so the next acquisition must acquire it again
+            remove(slot);
+            return null;
+        }
+        entry.holds++;
+        return new Hold(entry);
+    }
+
+    /**
+     * Registers the first hold of the given {@code key}, just acquired with {@code acquisition}.
+     *
+     * @param key         the lock key
+     * @param acquisition the acquisition of the lock
+     * @return the first hold of the key
+     */
+    Acquisition enter(String key, Acquisition acquisition) {
+        if (size >= entries.length / 2) {
+            resize(entries.length * 2);
+        }
+        int hash = key.hashCode();
+        int slot = find(key, hash);
+        if (slot >= 0) {
+            // replaces the entry of a lost lock, whose holds no longer find it
+            remove(slot);
+        }
+        slot = hash & (entries.length - 1);
+        while (entries[slot] != null) {
+            slot = (slot + 1) & (entries.length - 1);
+        }
+        Entry entry = new Entry(key, acquisition);
+        hashes[slot] = hash;
+        entries[slot] = entry;
+        size++;
+        return new Hold(entry);
+    }
+
+    /**
+     * Returns the number of keys held by this thread.
+     */
+    int size() {
+        return size;
+    }
+
+    private void exit(Entry entry) {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalMonitorStateException(
+                "Reentrant lock for key: " + entry.key + " must be released by the acquiring thread");
+        }
+        if (--entry.holds == 0) {
+            int slot = find(entry.key, entry.key.hashCode());
+            if (slot >= 0 && entries[slot] == entry) {
+                remove(slot);
+            }
+        }
+    }
+
+    private int find(String key, int hash) {
+        int mask = entries.length - 1;
+        for (int slot = hash & mask; entries[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && entries[slot].key.equals(key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the entry of the given slot, shifting the following entries of the same cluster back so that
+     * lookups do not need tombstones.
+     */
+    private void remove(int slot) {
+        int mask = entries.length - 1;
+        entries[slot] = null;
+        size--;
+        int free = slot;
+        for (int next = (slot + 1) & mask; entries[next] != null; next = (next + 1) & mask) {
+            int home = hashes[next] & mask;
+            // move the entry back unless its home slot lies cyclically between the free slot and itself
+            boolean between = free <= next ? free < home && home <= next : free < home || home <= next;
+            if (!between) {
+                hashes[free] = hashes[next];
+                entries[free] = entries[next];
+                entries[next] = null;
+                free = next;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldHashes = hashes;
+        Entry[] oldEntries = entries;
+        hashes = new int[capacity];
+        entries = new Entry[capacity];
+        for (int i = 0; i < oldEntries.length; i++) {
+            if (oldEntries[i] != null) {
+                int slot = oldHashes[i] & (capacity - 1);
+                while (entries[slot] != null) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                hashes[slot] = oldHashes[i];
+                entries[slot] = oldEntries[i];
+            }
+        }
+    }
+
+    /**
+     * The lock of a key and the number of its holds that have not been released yet.
+     */
+    private static final class Entry {
+
+        final String key;
+        final Acquisition acquisition;
+        int holds = 1;
+
+        Entry(String key, Acquisition acquisition) {
+            this.key = key;
+            this.acquisition = acquisition;
+        }
+    }
+
+    /**
+     * A single acquisition of a reentrant lock.
+     */
+    private final class Hold implements Acquisition {
+
+        private final Entry entry;
+        private volatile boolean released;
+
+        Hold(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void release() throws Exception {
+            if (released) {
+                return;
+            }
+            exit(entry);
+            released = true;
+            if (entry.holds == 0) {
+                entry.acquisition.release();
+            }
+        }
+
+        @Override
+        public CompletableFuture<Void> releaseAsync() {
+            if (released) {
+                return CompletableFuture.completedFuture(null);
+            }
+            exit(entry);
+            released = true;
+            return entry.holds == 0 ? entry.acquisition.releaseAsync() : CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public boolean isAcquired() {
+            return !released && entry.acquisition.isAcquired();
+        }
+
+        @Override
+        public LockState state() {
+            return released ? LockState.NOT_HELD : entry.acquisition.state();
+        }
+
+        @Override
+        public void checkpoint() {
+            if (released) {
+                throw new ZookeeperLockLostException("Lock released for key: " + entry.key);
+            }
+            entry.acquisition.checkpoint();
+        }
+
+        @Override
+        public void onLost(Runnable callback) {
+            entry.acquisition.onLost(() -> {
+                if (!released) {
+                    callback.run();
+                }
+            });
+        }
+
+        @Override
+        public OptionalLong fencingToken() {
+            return entry.acquisition.fencingToken();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Releases locks in the background by coalescing the deletes of their lock nodes into Zookeeper
+ * transactions.
+ *
+ * <p>Released lock nodes are collected into a batch, which is deleted in a single {@code multi()} request
+ * once it holds {@code maxBatchSize} nodes or {@code maxDelay} after its first node was added, whichever
+ * comes first. If a batch fails, e.g. because one of its nodes is already gone with an expired session, the
+ * nodes of each release are deleted individually instead, so that one release does not fail the others.</p>
+ *
+ * <p>Only the nodes of a {@link NodeBackedLock} are known to this library and can be batched. Curator's
+ * {@link InterProcessSemaphoreMutex}, the default lock, is not bound to the acquiring thread either, and is
+ * released one by one on a background executor, so that the calling thread does not wait for Zookeeper. So
+ * are the locks of a {@link WrappingLock}, such as an {@link InterProcessLockCache}, that can be released by
+ * any thread, since their release has to go through the wrapper. Other locks, such as Curator's
+ * {@code InterProcessMutex}, may be bound to the acquiring thread and are released synchronously on the
+ * calling thread.</p>
+ */
+final class ReleasePipeline implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReleasePipeline.class);
+
+    static final int DEFAULT_MAX_BATCH_SIZE = 128;
+    static final Duration DEFAULT_MAX_DELAY = Duration.ofMillis(5);
+    static final int DEFAULT_BACKGROUND_RELEASE_THREADS = 16;
+
+    private final CuratorFramework client;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService backgroundReleases;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private List<PendingRelease> batch = new ArrayList<>();
+    private int batchNodes;
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Constructs a new pipeline.
+     *
+     * @param client             the CuratorFramework client
+     * @param scheduler          the scheduler flushing batches after {@code maxDelay}
+     * @param backgroundReleases the executor releasing semaphore mutexes, which is shut down
+     *                           once this pipeline is closed
+     * @param maxBatchSize       the maximum number of lock nodes deleted in a single transaction
+     * @param maxDelay           the maximum time a released lock node waits for its batch to fill up
+     */
+    ReleasePipeline(CuratorFramework client, ScheduledExecutorService scheduler, ExecutorService backgroundReleases,
+                    int maxBatchSize, Duration maxDelay) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.client = client;
+        this.scheduler = scheduler;
+        this.backgroundReleases = backgroundReleases;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+    }
+
+    /**
+     * Releases the given {@code lock}.
+     *
+     * <p>The lock is released within this process before this method returns, while the deletion of its lock
+     * nodes is queued for the next batch, or the lock is released on the background executor.</p>
+     *
+     * @param lock the lock to release
+     * @return a future completed once the lock nodes are deleted
+     */
+    CompletableFuture<Void> release(InterProcessLock lock) {
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        if (!(lock instanceof NodeBackedLock)) {
+            if (!isReleasableByAnyThread(lock)) {
+                releaseNow(lock, released);
+                return released;
+            }
+            try {
+                backgroundReleases.execute(() -> releaseNow(lock, released));
+            } catch (RejectedExecutionException e) {
+                // the pipeline is closed, so release on the calling thread
+                releaseNow(lock, released);
+            }
+            return released;
+        }
+
+        List<String> nodes;
+        try {
+            nodes = ((NodeBackedLock) lock).releaseNodes();
+        } catch (Exception e) {
+            released.completeExceptionally(e);
+            return released;
+        }
+        if (nodes.isEmpty()) {
+            released.complete(null);
+            return released;
+        }
+        enqueue(new PendingRelease(nodes, released));
+        return released;
+    }
+
+    /**
+     * Deletes the lock nodes of all pending releases without waiting for their batch to fill up.
+     */
+    void flush() {
+        List<PendingRelease> flushed;
+        lock.lock();
+        try {
+            flushed = takeBatch();
+        } finally {
+            lock.unlock();
+        }
+        delete(flushed);
+    }
+
+    /**
+     * Flushes all pending releases, and lets the background executor finish the releases handed to it.
+     */
+    @Override
+    public void close() {
+        flush();
+        backgroundReleases.shutdown();
+    }
+
+    /**
+     * Checks if the given lock can be released by any thread, rather than only by the thread that acquired
+     * it.
+     *
+     * @param lock the lock
+     * @return true if the lock is known to be releasable by any thread, false otherwise
+     */
+    static boolean isReleasableByAnyThread(InterProcessLock lock) {
+        if (lock instanceof WrappingLock) {
+            return ((WrappingLock) lock).isReleasableByAnyThread();
+        }
+        return lock instanceof InterProcessSemaphoreMutex || lock instanceof NodeBackedLock;
+    }
+
+    private static void releaseNow(InterProcessLock lock, CompletableFuture<Void> released) {
+        try {
+            Blocking.release(lock);
+            released.complete(null);
+        } catch (Exception e) {
+            released.completeExceptionally(e);
+        }
+    }
+
+    private void enqueue(PendingRelease release) {
+        List<PendingRelease> flushed = null;
+        lock.lock();
+        try {
+            batch.add(release);
+            batchNodes += release.nodes.size();
+            if (batchNodes >= maxBatchSize) {
+                flushed = takeBatch();
+            } else if (scheduledFlush == null) {
+                try {
+                    scheduledFlush = scheduler.schedule(this::flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // the scheduler is shut down, so do not wait for the batch to fill up
+                    flushed = takeBatch();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        delete(flushed);
+    }
+
+    private List<PendingRelease> takeBatch() {
+        final List<PendingRelease> taken = batch;
+        batch = new ArrayList<>();
+        batchNodes = 0;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return taken;
+    }
+
+    private void delete(List<PendingRelease> releases) {
+        if (releases == null || releases.isEmpty()) {
+            return;
+        }
+        if (releases.size() == 1) {
+            PendingRelease release = releases.get(0);
+            complete(release, LockNodes.deleteAll(client, release.nodes));
+            return;
+        }
+
+        try {
+            List<CuratorOp> operations = new ArrayList<>();
+            for (PendingRelease release : releases) {
+                for (String node : release.nodes) {
+                    operations.add(client.transactionOp().delete().forPath(node));
+                }
+            }
+            client.transaction().inBackground((c, event) -> {
+                if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+                    LOGGER.debug("Deleted {} lock nodes of {} releases", operations.size(), releases.size());
+                    releases.forEach(release -> release.released.complete(null));
+                } else {
+                    deleteEach(releases);
+                }
+            }).forOperations(operations);
+        } catch (Exception e) {
+            deleteEach(releases);
+        }
+    }
+
+    private void deleteEach(List<PendingRelease> releases) {
+        for (PendingRelease release : releases) {
+            complete(release, LockNodes.deleteEach(client, release.nodes));
+        }
+    }
+
+    private static void complete(PendingRelease release, CompletableFuture<Void> deleted) {
+        deleted.whenComplete((result, error) -> {
+            if (error == null) {
+                release.released.complete(null);
+            } else {
+                release.released.completeExceptionally(error);
+            }
+        });
+    }
+
+    /**
+     * The lock nodes of a single release and the future completed once they are deleted.
+     */
+    private static final class PendingRelease {
+
+        private final List<String> nodes;
+        private final CompletableFuture<Void> released;
+
+        PendingRelease(List<String> nodes, CompletableFuture<Void> released) {
+            this.nodes = nodes;
+            this.released = released;
+        }
+    }
+}
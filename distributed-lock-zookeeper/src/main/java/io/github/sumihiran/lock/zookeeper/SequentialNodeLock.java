@@ -0,0 +1,682 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.imps.ProtectedUtils;
+import org.apache.curator.framework.recipes.locks.StandardLockInternalsDriver;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * A mutex built on ephemeral sequential nodes, driven entirely by Zookeeper watches and Curator's background
+ * callbacks.
+ *
+ * <p>Each contender creates an ephemeral sequential node below the {@code locks} child of the lock path and
+ * holds the lock once its node has the lowest sequence number. Waiters only watch their immediate predecessor,
+ * so no thread is parked per waiter and a release wakes up a single waiter. Timeouts are enforced by a shared
+ * scheduler.</p>
+ *
+ * <p>Lock nodes use the same layout as Curator's {@code InterProcessSemaphoreMutex}, the default lock of
+ * {@link ZookeeperDistributedLock}, so both are mutually exclusive on the same path: the semaphore queues on
+ * the nodes below {@code locks} for a node below {@code leases}, which it holds the lock with. A contender whose
+ * node is the oldest below {@code locks} therefore waits until no lease is left, and then holds the lock with
+ * that node instead of taking a lease, which keeps semaphores queued behind it.</p>
+ *
+ * <p>Locks with a {@link LockPriority} encode it in the name of their lock node. Their waiters give way to
+ * waiters of a higher priority class that queued after them by creating a new lock node behind them. Like
+ * all waiters, they only watch their predecessor, and look for such waiters whenever it has gone away, so
+ * they give way before they would take the lock. A waiter whose queue is longer than the expected hold time
+ * allows within its timeout gives up right away, without creating a lock node.</p>
+ *
+ * <p>The {@link #readLock read} and {@link #writeLock write} locks instead use the layout of Curator's
+ * {@code InterProcessReadWriteLock}, with their lock nodes directly below the lock path, so that they exclude
+ * and share with its locks on the same path. A write lock is held by the oldest lock node, and a read lock
+ * once no write lock node is older than its own, which is the only one it watches.</p>
+ */
+final class SequentialNodeLock implements NodeBackedLock, AsyncLock {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SequentialNodeLock.class);
+
+    static final String LOCK_NAME = "lock-";
+    // the children of the lock path that Curator's semaphores create their nodes below, see
+    // InterProcessSemaphoreV2
+    static final String LOCKS = "locks";
+    static final String LEASES = "leases";
+    // the names of the lock nodes of Curator's InterProcessReadWriteLock
+    static final String READ_LOCK_NAME = "__READ__";
+    static final String WRITE_LOCK_NAME = "__WRIT__";
+
+    private static final byte[] NO_DATA = new byte[0];
+    private static final long NO_ZXID = -1;
+    private static final Comparator<String> SEQUENCE_ORDER =
+        Comparator.comparing(child -> StandardLockInternalsDriver.standardFixForSorting(child, LOCK_NAME));
+    private static final Comparator<String> READ_WRITE_ORDER =
+        Comparator.comparing(child -> StandardLockInternalsDriver.standardFixForSorting(
+            child, child.contains(READ_LOCK_NAME) ? READ_LOCK_NAME : WRITE_LOCK_NAME));
+
+    private final CuratorFramework client;
+    private final String path;
+    private final Kind kind;
+    // the parent of the lock nodes
+    private final String locksPath;
+    private final String leasesPath;
+    private final ScheduledExecutorService scheduler;
+    private final LeaseRenewer leaseRenewer;
+    private final Duration leaseDuration;
+    private final LockPriority priority;
+    private final LongSupplier expectedHoldNanos;
+    private final AtomicReference<Attempt> current = new AtomicReference<>();
+
+    /**
+     * Constructs a new lock for the given {@code path}.
+     *
+     * @param client    the CuratorFramework client
+     * @param path      the lock path
+     * @param scheduler the scheduler enforcing acquisition timeouts
+     */
+    SequentialNodeLock(CuratorFramework client, String path, ScheduledExecutorService scheduler) {
+        this(client, path, Kind.MUTEX, scheduler, null, null, null, () -> 0);
+    }
+
+    /**
+     * Constructs a new lock for the given {@code path} whose lock node is created with a TTL instead of being
+     * ephemeral.
+     *
+     * <p>The lock node outlives the session of its creator and is kept alive by the {@code leaseRenewer}.
+     * Once the creator stops renewing it, e.g. because the process crashed or is paused, Zookeeper deletes the
+     * node after {@code leaseDuration} regardless of the session timeout. TTL nodes require Zookeeper 3.5.3 or
+     * later with {@code zookeeper.extendedTypesEnabled=true}, and are deleted by the server's container
+     * cleanup task, which runs every {@code znode.container.checkIntervalMs}.</p>
+     *
+     * @param client        the CuratorFramework client
+     * @param path          the lock path
+     * @param scheduler     the scheduler enforcing acquisition timeouts
+     * @param leaseRenewer  the renewer keeping the lock node alive, or null for an ephemeral lock node
+     * @param leaseDuration the TTL of the lock node
+     */
+    SequentialNodeLock(CuratorFramework client, String path, ScheduledExecutorService scheduler,
+                       LeaseRenewer leaseRenewer, Duration leaseDuration) {
+        this(client, path, Kind.MUTEX, scheduler, leaseRenewer, leaseDuration, null, () -> 0);
+    }
+
+    /**
+     * Constructs a new lock for the given {@code path} whose waiters are queued by {@code priority}.
+     *
+     * @param client            the CuratorFramework client
+     * @param path              the lock path
+     * @param scheduler         the scheduler enforcing acquisition timeouts
+     * @param priority          the priority class of the lock node
+     * @param expectedHoldNanos the expected time each lock node ahead in the queue holds the lock, or zero if
+     *                          unknown, to give up right away on queues that cannot be passed within the timeout
+     */
+    SequentialNodeLock(CuratorFramework client, String path, ScheduledExecutorService scheduler,
+                       LockPriority priority, LongSupplier expectedHoldNanos) {
+        this(client, path, Kind.MUTEX, scheduler, null, null, priority, expectedHoldNanos);
+    }
+
+    private SequentialNodeLock(CuratorFramework client, String path, Kind kind, ScheduledExecutorService scheduler,
+                               LeaseRenewer leaseRenewer, Duration leaseDuration, LockPriority priority,
+                               LongSupplier expectedHoldNanos) {
+        this.client = client;
+        this.path = path;
+        this.kind = kind;
+        this.locksPath = kind == Kind.MUTEX ? ZKPaths.makePath(path, LOCKS) : path;
+        this.leasesPath = ZKPaths.makePath(path, LEASES);
+        this.scheduler = scheduler;
+        this.leaseRenewer = leaseRenewer;
+        this.leaseDuration = leaseDuration;
+        this.priority = priority;
+        this.expectedHoldNanos = expectedHoldNanos;
+    }
+
+    /**
+     * Creates the read lock of a read/write lock on the given {@code path}, which is shared with other read
+     * locks and excluded by write locks, including those of Curator's {@code InterProcessReadWriteLock}.
+     *
+     * @param client    the CuratorFramework client
+     * @param path      the lock path
+     * @param scheduler the scheduler enforcing acquisition timeouts
+     * @return the read lock
+     */
+    static SequentialNodeLock readLock(CuratorFramework client, String path, ScheduledExecutorService scheduler) {
+        return new SequentialNodeLock(client, path, Kind.READ, scheduler, null, null, null, () -> 0);
+    }
+
+    /**
+     * Creates the write lock of a read/write lock on the given {@code path}, which excludes all other read and
+     * write locks, including those of Curator's {@code InterProcessReadWriteLock}.
+     *
+     * @param client    the CuratorFramework client
+     * @param path      the lock path
+     * @param scheduler the scheduler enforcing acquisition timeouts
+     * @return the write lock
+     */
+    static SequentialNodeLock writeLock(CuratorFramework client, String path, ScheduledExecutorService scheduler) {
+        return new SequentialNodeLock(client, path, Kind.WRITE, scheduler, null, null, null, () -> 0);
+    }
+
+    /**
+     * Starts acquiring the lock without blocking the calling thread.
+     *
+     * <p>The returned future completes with true once the lock is held, or with false if it could not be
+     * acquired within the timeout. Cancelling the future abandons the attempt and deletes its lock node.</p>
+     *
+     * @param time the maximum time to wait for the lock
+     * @param unit the time unit of the {@code time} argument
+     * @return a future completed with the outcome of the attempt
+     * @throws IllegalStateException if the lock is already held or being acquired
+     */
+    @Override
+    public CompletableFuture<Boolean> acquireAsync(long time, TimeUnit unit) {
+        return acquireAsync(null, time, unit);
+    }
+
+    /**
+     * Starts acquiring the lock with a lock node that has already been created below the {@code locks} child
+     * of the lock path, for example as part of a transaction.
+     *
+     * @param node the full path of the lock node, or null to create one
+     * @param time the maximum time to wait for the lock
+     * @param unit the time unit of the {@code time} argument
+     * @return a future completed with the outcome of the attempt
+     * @throws IllegalStateException if the lock is already held or being acquired
+     */
+    CompletableFuture<Boolean> acquireAsync(String node, long time, TimeUnit unit) {
+        Attempt attempt = new Attempt();
+        if (!current.compareAndSet(null, attempt)) {
+            throw new IllegalStateException("Lock is already acquired or being acquired for path: " + path);
+        }
+        attempt.start(node, unit.toNanos(time));
+        return attempt.future;
+    }
+
+    @Override
+    public void acquire() throws Exception {
+        if (!acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+            throw new IllegalStateException("Failed to acquire lock for path: " + path);
+        }
+    }
+
+    @Override
+    public boolean acquire(long time, TimeUnit unit) throws Exception {
+        CompletableFuture<Boolean> attempt = acquireAsync(time, unit);
+        try {
+            return attempt.get();
+        } catch (InterruptedException e) {
+            attempt.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @Override
+    public void release() throws Exception {
+        List<String> nodes = releaseNodes();
+        if (nodes.isEmpty()) {
+            return;
+        }
+        try {
+            LockNodes.delete(client, nodes.get(0)).get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+        LOGGER.debug("Deleted lock node: {}", nodes.get(0));
+    }
+
+    @Override
+    public List<String> releaseNodes() {
+        if (!isAcquiredInThisProcess()) {
+            throw new IllegalStateException("Lock is not acquired for path: " + path);
+        }
+        String node = detach();
+        return node == null ? Collections.emptyList() : Collections.singletonList(node);
+    }
+
+    @Override
+    public List<String> lockNodes() {
+        String node = isAcquiredInThisProcess() ? lockNodePath() : null;
+        return node == null ? Collections.emptyList() : Collections.singletonList(node);
+    }
+
+    /**
+     * Returns the zxid that created the lock node, which is greater than that of every previous holder of the
+     * lock, since lock nodes are ordered by their creation. Locks started with a lock node created by the
+     * caller have no fencing token.
+     */
+    @Override
+    public OptionalLong fencingToken() {
+        Attempt attempt = current.get();
+        if (attempt == null || !attempt.isAcquired() || attempt.czxid == NO_ZXID) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(attempt.czxid);
+    }
+
+    @Override
+    public boolean isAcquiredInThisProcess() {
+        Attempt attempt = current.get();
+        return attempt != null && attempt.isAcquired();
+    }
+
+    /**
+     * Returns the full path of the lock node while the lock is held or being acquired.
+     *
+     * @return the lock node path, or null if no node has been created
+     */
+    String lockNodePath() {
+        Attempt attempt = current.get();
+        return attempt == null ? null : attempt.node.get();
+    }
+
+    /**
+     * Gives up the lock node of the current attempt without deleting it, leaving the deletion to the caller.
+     *
+     * <p>A pending attempt keeps running until its future is completed, but no longer owns a lock node.</p>
+     *
+     * @return the lock node path, or null if no node has been created
+     */
+    String detach() {
+        Attempt attempt = current.getAndSet(null);
+        if (attempt == null) {
+            return null;
+        }
+        attempt.cancelLease();
+        return attempt.node.getAndSet(null);
+    }
+
+    /**
+     * Returns the lease of the lock node while the lock is held or being acquired with a TTL lock node.
+     *
+     * @return the lease, or null if the lock node is ephemeral or has not been created
+     */
+    LockLease lease() {
+        Attempt attempt = current.get();
+        return attempt == null ? null : attempt.lease;
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof Exception ? (Exception) cause : e;
+    }
+
+    /**
+     * A single attempt to acquire the lock, which owns at most one lock node.
+     */
+    private final class Attempt implements Watcher {
+
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private final AtomicReference<String> node = new AtomicReference<>();
+        private volatile ScheduledFuture<?> timeout;
+        private volatile LockLease lease;
+        private volatile long czxid = NO_ZXID;
+        private long createdAtNanos;
+        private long deadlineNanos = Long.MAX_VALUE;
+
+        void start(String existingNode, long timeoutNanos) {
+            future.whenComplete((acquired, error) -> {
+                ScheduledFuture<?> scheduled = timeout;
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                if (!Boolean.TRUE.equals(acquired)) {
+                    abandon(error);
+                }
+            });
+            if (timeoutNanos != Long.MAX_VALUE) {
+                deadlineNanos = System.nanoTime() + timeoutNanos;
+                timeout = scheduler.schedule(() -> future.complete(false), timeoutNanos, TimeUnit.NANOSECONDS);
+            }
+
+            if (existingNode != null) {
+                node.set(existingNode);
+                checkLock();
+                return;
+            }
+            long holdNanos = priority == null || deadlineNanos == Long.MAX_VALUE ? 0 : expectedHoldNanos.getAsLong();
+            if (holdNanos > 0) {
+                checkQueue(holdNanos);
+            } else {
+                create();
+            }
+        }
+
+        /**
+         * Creates the lock node unless the lock nodes queued ahead are expected to hold the lock for longer
+         * than the timeout allows.
+         */
+        private void checkQueue(long holdNanos) {
+            try {
+                client.getChildren().inBackground((c, event) -> {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    if (event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+                        // no lock node has been created on the path yet
+                        create();
+                    } else if (isOk(event) && isQueueTooLong(event.getChildren(), holdNanos)) {
+                        LOGGER.debug("Giving up on lock path: {} behind {} lock nodes", path, event.getChildren().size());
+                        future.complete(false);
+                    } else if (!future.isDone()) {
+                        create();
+                    }
+                }).forPath(locksPath);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void create() {
+            try {
+                if (leaseRenewer == null) {
+                    client.create()
+                        .creatingParentContainersIfNeeded()
+                        .withProtection()
+                        .withMode(CreateMode.EPHEMERAL_SEQUENTIAL)
+                        .inBackground((c, event) -> created(event))
+                        .forPath(ZKPaths.makePath(locksPath, priority == null ? kind.nodeName : priority.lockName()), NO_DATA);
+                } else {
+                    createdAtNanos = System.nanoTime();
+                    client.create()
+                        .withTtl(leaseDuration.toMillis())
+                        .creatingParentContainersIfNeeded()
+                        .withProtection()
+                        .withMode(CreateMode.PERSISTENT_SEQUENTIAL_WITH_TTL)
+                        .inBackground((c, event) -> created(event))
+                        .forPath(ZKPaths.makePath(locksPath, LOCK_NAME), NO_DATA);
+                }
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        boolean isAcquired() {
+            return future.isDone() && !future.isCompletedExceptionally() && future.join();
+        }
+
+        @Override
+        public void process(WatchedEvent event) {
+            if (event.getType() == Event.EventType.None || future.isDone()) {
+                return;
+            }
+            if (event.getType() == Event.EventType.NodeDataChanged) {
+                // the predecessor renewed its lease, so keep watching it
+                watchPredecessor(event.getPath());
+            } else {
+                checkLock();
+            }
+        }
+
+        void cancelLease() {
+            LockLease current = lease;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        private void created(CuratorEvent event) {
+            if (!isOk(event)) {
+                return;
+            }
+            node.set(event.getName());
+            if (leaseRenewer != null) {
+                lease = leaseRenewer.register(event.getName(), leaseDuration, createdAtNanos);
+                lease.expired().thenRun(() -> future.completeExceptionally(
+                    new IllegalStateException("Lease expired for lock node: " + event.getName())));
+            }
+            if (future.isDone()) {
+                // timed out or cancelled while the node was being created
+                abandon(null);
+                return;
+            }
+            queued(event.getName(), event.getStat());
+        }
+
+        private void queued(String ourNode, Stat stat) {
+            if (stat != null) {
+                czxid = stat.getCzxid();
+                checkLock();
+            } else {
+                // a protected create recovered after a connection loss may not report the stat of its node
+                readCzxid(ourNode);
+            }
+        }
+
+        /**
+         * Queues again behind waiters of a higher priority class, by creating a new lock node before deleting
+         * the current one.
+         */
+        private void requeue(String ourNode) {
+            try {
+                client.create()
+                    .withProtection()
+                    .withMode(CreateMode.EPHEMERAL_SEQUENTIAL)
+                    .inBackground((c, event) -> {
+                        if (!isOk(event)) {
+                            return;
+                        }
+                        if (!node.compareAndSet(ourNode, event.getName())) {
+                            // abandoned meanwhile, which has deleted the previous node
+                            LockNodes.delete(client, event.getName());
+                            return;
+                        }
+                        LockNodes.delete(client, ourNode);
+                        LOGGER.debug("Queued lock node: {} again behind a higher priority waiter", event.getName());
+                        queued(event.getName(), event.getStat());
+                    })
+                    .forPath(ZKPaths.makePath(locksPath, priority.lockName()), NO_DATA);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void readCzxid(String ourNode) {
+            try {
+                client.checkExists().inBackground((c, event) -> {
+                    if (isOk(event)) {
+                        czxid = event.getStat().getCzxid();
+                        checkLock();
+                    }
+                }).forPath(ourNode);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void checkLock() {
+            try {
+                client.getChildren().inBackground((c, event) -> childrenListed(event)).forPath(locksPath);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void childrenListed(CuratorEvent event) {
+            if (future.isDone() || !isOk(event)) {
+                return;
+            }
+            String ourNode = node.get();
+            if (ourNode == null) {
+                return;
+            }
+
+            String ourName = ZKPaths.getNodeFromPath(ourNode);
+            Optional<String> protectedId = ProtectedUtils.extractProtectedId(ourName);
+            List<String> children = new ArrayList<>(event.getChildren().size());
+            for (String child : event.getChildren()) {
+                if (kind != Kind.MUTEX && !child.contains(READ_LOCK_NAME) && !child.contains(WRITE_LOCK_NAME)) {
+                    continue;
+                }
+                if (!child.equals(ourName) && protectedId.isPresent()
+                    && protectedId.equals(ProtectedUtils.extractProtectedId(child))) {
+                    // left behind by a create that was retried after its response got lost
+                    LockNodes.delete(client, ZKPaths.makePath(locksPath, child));
+                } else {
+                    children.add(child);
+                }
+            }
+            children.sort(kind == Kind.MUTEX ? SEQUENCE_ORDER : READ_WRITE_ORDER);
+            int index = children.indexOf(ourName);
+            if (index < 0) {
+                future.completeExceptionally(new KeeperException.NoNodeException(ourNode));
+            } else if (givesWay() && isBehindHigherPriority(children, index)) {
+                requeue(ourNode);
+            } else if (kind == Kind.READ) {
+                int writer = firstWriter(children, index);
+                if (writer < 0) {
+                    future.complete(true);
+                } else {
+                    watchPredecessor(ZKPaths.makePath(locksPath, children.get(writer)));
+                }
+            } else if (index == 0 && kind == Kind.WRITE) {
+                future.complete(true);
+            } else if (index == 0) {
+                checkLeases();
+            } else {
+                watchPredecessor(ZKPaths.makePath(locksPath, children.get(index - 1)));
+            }
+        }
+
+        /**
+         * Holds the lock once no semaphore on the same path holds a lease, watching the leases otherwise.
+         * Semaphores only take a lease while their node is the oldest below {@code locks}, so none can take
+         * one while this node is.
+         */
+        private void checkLeases() {
+            try {
+                client.getChildren().usingWatcher(this).inBackground((c, event) -> {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    if (event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+                        // no semaphore has used the path yet
+                        future.complete(true);
+                    } else if (isOk(event) && event.getChildren().isEmpty()) {
+                        future.complete(true);
+                    }
+                }).forPath(leasesPath);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private int firstWriter(List<String> children, int index) {
+            for (int i = 0; i < index; i++) {
+                if (children.get(i).contains(WRITE_LOCK_NAME)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean givesWay() {
+            return priority != null && priority != LockPriority.HIGH;
+        }
+
+        private boolean isBehindHigherPriority(List<String> children, int index) {
+            for (int i = index + 1; i < children.size(); i++) {
+                if (LockPriority.of(children.get(i)).compareTo(priority) > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Checks whether the lock nodes queued ahead of a new lock node are expected to hold the lock for
+         * longer than the timeout allows. Waiters of a lower priority class, other than the holder, are not
+         * counted, since they give way to this one.
+         */
+        private boolean isQueueTooLong(List<String> children, long holdNanos) {
+            if (children.isEmpty()) {
+                return false;
+            }
+            List<String> queue = new ArrayList<>(children);
+            queue.sort(SEQUENCE_ORDER);
+            int ahead = 1;
+            for (int i = 1; i < queue.size(); i++) {
+                if (LockPriority.of(queue.get(i)).compareTo(priority) >= 0) {
+                    ahead++;
+                }
+            }
+            return (deadlineNanos - System.nanoTime()) / holdNanos < ahead;
+        }
+
+        private void watchPredecessor(String predecessor) {
+            try {
+                client.checkExists().usingWatcher(this).inBackground((c, event) -> {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    if (event.getResultCode() == KeeperException.Code.NONODE.intValue()) {
+                        // the predecessor went away before the watch was set
+                        checkLock();
+                    } else {
+                        isOk(event);
+                    }
+                }).forPath(predecessor);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        private boolean isOk(CuratorEvent event) {
+            KeeperException.Code code = KeeperException.Code.get(event.getResultCode());
+            if (code == KeeperException.Code.OK) {
+                return true;
+            }
+            future.completeExceptionally(KeeperException.create(code, event.getPath()));
+            return false;
+        }
+
+        private void abandon(Throwable error) {
+            current.compareAndSet(this, null);
+            cancelLease();
+            String abandoned = node.getAndSet(null);
+            if (abandoned != null) {
+                LockNodes.delete(client, abandoned);
+            }
+            if (error != null && !(error instanceof CancellationException)) {
+                LOGGER.debug("Abandoned lock attempt for path: {}", path, error);
+            }
+        }
+    }
+
+    /**
+     * The kinds of locks, which decide the names of their lock nodes and which older lock nodes they wait for.
+     */
+    private enum Kind {
+
+        MUTEX(LOCK_NAME),
+        READ(READ_LOCK_NAME),
+        WRITE(WRITE_LOCK_NAME);
+
+        private final String nodeName;
+
+        Kind(String nodeName) {
+            this.nodeName = nodeName;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.sumihiran.lock.zookeeper;
+
+/**
+ * Decides what happens to held locks while the connection to Zookeeper is suspended, i.e. after the
+ * connection has been interrupted but before the session is known to have expired.
+ */
+public enum SuspensionPolicy {
+
+    /**
+     * Considers held locks lost as soon as the connection is suspended. This is the safest choice, since
+     * another process may acquire a lock once the session of its holder has expired, but it gives up locks on
+     * every short network interruption.
+     */
+    LOSE,
+
+    /**
+     * Considers held locks {@link LockState#IN_DOUBT in doubt} while the connection is suspended. Once the
+     * connection has been re-established, the lock nodes of all locks in doubt are checked at once, and locks
+     * whose nodes still exist are {@link LockState#HELD held} again. Locks are only lost once the connection
+     * is lost, or if their nodes are gone.
+     */
+    IN_DOUBT
+}
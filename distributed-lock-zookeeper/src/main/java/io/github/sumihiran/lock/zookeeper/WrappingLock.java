@@ -0,0 +1,17 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+
+/**
+ * A lock wrapping the locks of another lock function, such as the locks of an {@link InterProcessLockCache}
+ * or a {@link CoalescingLockFactory}, which tells whether it is bound to the thread that acquired it.
+ */
+interface WrappingLock extends InterProcessLock {
+
+    /**
+     * Checks if the lock can be released by any thread, rather than only by the thread that acquired it.
+     *
+     * @return true if the lock can be released by any thread, false otherwise
+     */
+    boolean isReleasableByAnyThread();
+}
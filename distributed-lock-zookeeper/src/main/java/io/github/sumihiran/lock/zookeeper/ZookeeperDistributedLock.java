@@ -3,27 +3,76 @@ package io.github.sumihiran.lock.zookeeper;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.imps.CuratorFrameworkState;
 import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
 import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.utils.ZKPaths;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
 
+import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperDistributedLockException;
 import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockAcquisitionException;
+import io.github.sumihiran.lock.zookeeper.metrics.LockMetrics;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 /**
  * Provides factory methods to acquire distributed locks using Zookeeper's InterProcessLock implementations.
  *
  * @author Nuwan Bandara
  */
-public class ZookeeperDistributedLock {
+public class ZookeeperDistributedLock implements DistributedLock {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ZookeeperDistributedLock.class);
 
+    private static final String LOCK_FOR_KEY = "lock for key";
+    private static final String LOCKS_FOR_KEYS = "locks for keys";
+
+    // the parents of the lock and lease nodes below the path of Curator's semaphores and of the locks on
+    // sequential lock nodes, see InterProcessSemaphoreV2.LOCK_SCHEMA
+    private static final List<String> SEMAPHORE_NODE_PARENTS =
+        Collections.unmodifiableList(Arrays.asList(SequentialNodeLock.LOCKS, SequentialNodeLock.LEASES));
+
     private final CuratorFramework client;
     private final Function<String, InterProcessLock> lockFunction;
+    private final boolean defaultLockFunction;
+    private final List<String> lockNodeParents;
+    private final LockPathStrategy lockPaths;
+    private final ThreadLocal<ReentrantHolds> holds;
+    private final ToIntFunction<String> permitLimits;
+    private final LockMetrics metrics;
+    private final HoldTimes holdTimes = new HoldTimes();
+    // only priority acquisitions estimate their wait from hold times, so only they pay for recording them
+    private final LockMetrics priorityMetrics;
+    private final FailureLog failureLog;
+    private final ConnectionStateRegistry connectionStateRegistry;
+    private final AtomicReference<ScheduledExecutorService> scheduler = new AtomicReference<>();
+    private final AtomicReference<ReleasePipeline> releasePipeline = new AtomicReference<>();
+    private final AtomicReference<LeaseRenewer> leaseRenewer = new AtomicReference<>();
+    private volatile boolean closed;
 
     /**
      * Constructs a new instance with the specified CuratorFramework client.
@@ -31,18 +80,45 @@ public class ZookeeperDistributedLock {
      * @param client the CuratorFramework client
      */
     public ZookeeperDistributedLock(CuratorFramework client) {
-        this(client, path -> new InterProcessSemaphoreMutex(client, path));
+        this(builder(client));
     }
 
     /**
      * Constructs a new instance with the specified CuratorFramework client and a lock factory.
      *
+     * <p>All acquisitions handed out by this instance share a single connection state listener registered
+     * with the {@code client}.</p>
+     *
      * @param client       the CuratorFramework client
      * @param lockFunction the function to create InterProcessLock instances
      */
     public ZookeeperDistributedLock(CuratorFramework client, Function<String, InterProcessLock> lockFunction) {
-        this.client = client;
-        this.lockFunction = lockFunction;
+        this(builder(client).lockFunction(lockFunction));
+    }
+
+    private ZookeeperDistributedLock(Builder builder) {
+        this.client = builder.client;
+        this.lockFunction = builder.lockFunction;
+        this.defaultLockFunction = builder.defaultLockFunction;
+        this.lockNodeParents = builder.lockNodeParents;
+        this.lockPaths = builder.lockPaths;
+        this.holds = builder.reentrant ? ThreadLocal.withInitial(ReentrantHolds::new) : null;
+        this.permitLimits = builder.permitLimits;
+        this.metrics = builder.metrics;
+        this.priorityMetrics = holdTimes.andThen(builder.metrics);
+        this.failureLog = new FailureLog(builder.timeoutLogLevel, builder.failureLogLevel,
+            builder.logSampleInterval, KeyPrefixes::firstSegment, this::scheduler);
+        this.connectionStateRegistry = new ConnectionStateRegistry(client, builder.suspensionPolicy);
+    }
+
+    /**
+     * Returns a builder for an instance with the specified CuratorFramework client.
+     *
+     * @param client the CuratorFramework client
+     * @return a new builder
+     */
+    public static Builder builder(CuratorFramework client) {
+        return new Builder(client);
     }
 
     /**
@@ -52,6 +128,7 @@ public class ZookeeperDistributedLock {
      * @return an Acquisition representing the acquired lock
      * @throws ZookeeperLockAcquisitionException if the lock could not be acquired
      */
+    @Override
     public Acquisition acquire(String key) throws ZookeeperLockAcquisitionException {
         return acquire(key, Duration.ofMillis(Long.MAX_VALUE));
     }
@@ -59,28 +136,652 @@ public class ZookeeperDistributedLock {
     /**
      * Acquires a distributed lock for the specified key, with a timeout.
      *
+     * <p>If this instance is {@link Builder#reentrant(boolean) reentrant} and the calling thread already
+     * holds the lock of the key, the lock is acquired again without talking to Zookeeper, and only released
+     * in Zookeeper once all its Acquisitions have been released.</p>
+     *
      * @param key     the lock key
      * @param timeout the duration to wait for the lock
      * @return an Acquisition representing the acquired lock
      * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
      */
+    @Override
     public Acquisition acquire(String key, Duration timeout) throws ZookeeperLockAcquisitionException {
+        if (holds == null) {
+            return acquireLock(key, timeout, lockFunction());
+        }
+        ReentrantHolds threadHolds = holds.get();
+        Acquisition nested = threadHolds.reenter(key);
+        return nested != null ? nested : threadHolds.enter(key, acquireLock(key, timeout, lockFunction()));
+    }
+
+    /**
+     * Acquires a distributed lock for the specified key with a priority class, with a timeout.
+     *
+     * <p>The priority is encoded in the name of the lock node, so that all waiters see it. The lock is held
+     * by the lock node that has queued first, and is never taken away from its holder. Waiters of a lower
+     * priority class, however, give way to waiters of a higher one that queued after them by queueing again
+     * behind them, so {@link LockPriority#HIGH} waiters only wait for the holder and each other, rather than
+     * for every waiter that queued before them. Waiters of all classes only watch their predecessor, and
+     * waiters of a lower class look for waiters of a higher one behind them once their predecessor has gone
+     * away, so a release still notifies a single waiter.</p>
+     *
+     * <p>A waiter gives up right away, without waiting out the timeout and without creating a lock node, if
+     * the lock nodes queued ahead of it would hold the lock for longer than the timeout allows, going by how
+     * long locks with the same key prefix have been held on average by priority acquisitions of this
+     * instance. The lock nodes ahead are listed before creating the lock node.</p>
+     *
+     * <p>Like {@link #acquireAsync(String, Duration)}, the locks use the node layout of the default
+     * {@code InterProcessSemaphoreMutex} and exclude all other acquisitions of the same key but read/write
+     * locks and permits. Asynchronous acquisitions and the default lock count as {@link LockPriority#NORMAL}
+     * waiters that never give way.</p>
+     *
+     * @param key      the lock key
+     * @param priority the priority class of the waiter
+     * @param timeout  the duration to wait for the lock
+     * @return an Acquisition representing the acquired lock
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
+     */
+    public Acquisition acquire(String key, LockPriority priority, Duration timeout) throws ZookeeperLockAcquisitionException {
+        Objects.requireNonNull(priority, "priority");
+        SequentialNodeLock lock = acquireRecorded(key, LOCK_FOR_KEY, key, timeout, priorityMetrics,
+            () -> newSequentialNodeLock(key, priority));
+        if (lock == null) {
+            throw timedOut(key, LOCK_FOR_KEY, key, timeout);
+        }
+        LOGGER.debug("Lock acquired for key: {} with priority: {}", key, priority);
+        return monitor(key, lock, priorityMetrics, null);
+    }
+
+    /**
+     * Tries to acquire a distributed lock for the specified key, waiting at most for the timeout.
+     *
+     * <p>Unlike {@link #acquire(String, Duration)}, a lock that could not be acquired within the timeout is
+     * not an error: no exception is created and nothing is logged above debug level, which suits callers
+     * that skip their work whenever the lock is taken. Errors talking to Zookeeper are still thrown. Like
+     * {@link #acquire(String, Duration)}, it acquires locks held by the calling thread again if this instance
+     * is reentrant.</p>
+     *
+     * @param key     the lock key
+     * @param timeout the duration to wait for the lock, which may be zero to not wait at all
+     * @return an Acquisition representing the acquired lock, or empty if the lock could not be acquired
+     *     within the timeout
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired due to an error
+     */
+    @Override
+    public Optional<Acquisition> tryAcquire(String key, Duration timeout) throws ZookeeperLockAcquisitionException {
+        ReentrantHolds threadHolds = holds != null ? holds.get() : null;
+        if (threadHolds != null) {
+            Acquisition nested = threadHolds.reenter(key);
+            if (nested != null) {
+                return Optional.of(nested);
+            }
+        }
+        Acquisition acquisition = tryAcquireLock(key, timeout, lockFunction());
+        if (acquisition == null) {
+            LOGGER.debug("Lock not acquired for key: {} within timeout: {}", key, timeout);
+            return Optional.empty();
+        }
+        return Optional.of(threadHolds != null ? threadHolds.enter(key, acquisition) : acquisition);
+    }
+
+    /**
+     * Acquires the read lock of a distributed read/write lock for the specified key, with a timeout.
+     *
+     * <p>Any number of readers can hold the read lock at the same time, as long as no writer holds or waits
+     * for the write lock ahead of them. Readers only watch the closest writer ahead of them, so they neither
+     * wake up nor wait for each other.</p>
+     *
+     * <p>The lock is built on Curator's {@link InterProcessReadWriteLock}, which is bound to the acquiring
+     * thread: the returned Acquisition must be released by the same thread. Virtual threads instead acquire
+     * the lock with nodes of the same layout that are watched in the background, so their Acquisitions are not
+     * bound to them. Read/write locks only exclude each other, not locks acquired with
+     * {@link #acquire(String, Duration)} on the same key.</p>
+     *
+     * @param key     the lock key
+     * @param timeout the duration to wait for the lock
+     * @return an Acquisition representing the acquired read lock
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
+     */
+    @Override
+    public Acquisition acquireRead(String key, Duration timeout) throws ZookeeperLockAcquisitionException {
+        return acquireLock(key, timeout, readLockFunction());
+    }
+
+    /**
+     * Acquires the write lock of a distributed read/write lock for the specified key, with a timeout.
+     *
+     * <p>The write lock excludes all readers and other writers of the key. Like the read lock, it is bound to
+     * the acquiring thread unless that is a virtual thread.</p>
+     *
+     * @param key     the lock key
+     * @param timeout the duration to wait for the lock
+     * @return an Acquisition representing the acquired write lock
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
+     * @see #acquireRead(String, Duration)
+     */
+    @Override
+    public Acquisition acquireWrite(String key, Duration timeout) throws ZookeeperLockAcquisitionException {
+        return acquireLock(key, timeout, writeLockFunction());
+    }
+
+    /**
+     * Acquires a number of permits of a distributed counting semaphore for the specified key, with a timeout.
+     *
+     * <p>The semaphore is built on Curator's {@link InterProcessSemaphoreV2}, with the number of permits per
+     * key configured by {@link Builder#permitLimit(int)} or {@link Builder#permitLimits(ToIntFunction)}. All
+     * processes using the semaphore of a key must agree on its permit limit. The requested permits are
+     * acquired as a whole and returned as a whole: releasing the returned Acquisition deletes all lease nodes
+     * in a single transaction, and {@link Acquisition#releaseAsync()} coalesces them with other releases.</p>
+     *
+     * @param key     the lock key
+     * @param permits the number of permits to acquire
+     * @param timeout the duration to wait for the permits
+     * @return an Acquisition representing the acquired permits
+     * @throws IllegalArgumentException          if {@code permits} is not between 1 and the permit limit
+     * @throws IllegalStateException             if no permit limit is configured
+     * @throws ZookeeperLockAcquisitionException if the permits could not be acquired within the timeout
+     */
+    @Override
+    public Acquisition acquirePermits(String key, int permits, Duration timeout) throws ZookeeperLockAcquisitionException {
+        if (permitLimits == null) {
+            throw new IllegalStateException("No permit limit configured");
+        }
+        int permitLimit = permitLimits.applyAsInt(key);
+        if (permits < 1 || permits > permitLimit) {
+            throw new IllegalArgumentException(
+                "permits must be between 1 and the permit limit of " + permitLimit + " for key: " + key);
+        }
+        return acquireLock(key, timeout, path -> new PermitLock(client, path, permits, permitLimit));
+    }
+
+    private Acquisition acquireLock(String key, Duration timeout, Function<String, InterProcessLock> lockFunction)
+        throws ZookeeperLockAcquisitionException {
+        Acquisition acquisition = tryAcquireLock(key, timeout, lockFunction);
+        if (acquisition == null) {
+            throw timedOut(key, LOCK_FOR_KEY, key, timeout);
+        }
+        return acquisition;
+    }
+
+    /**
+     * Acquires the lock created by {@code lockFunction} for the specified key, with a timeout.
+     *
+     * @return an Acquisition representing the acquired lock, or null if the lock could not be acquired within
+     *     the timeout
+     */
+    private Acquisition tryAcquireLock(String key, Duration timeout, Function<String, InterProcessLock> lockFunction)
+        throws ZookeeperLockAcquisitionException {
+        InterProcessLock lock = acquireRecorded(key, LOCK_FOR_KEY, key, timeout, metrics,
+            () -> lockFunction.apply(lockPaths.lockPath(key)));
+        if (lock == null) {
+            return null;
+        }
+        LOGGER.debug("Lock acquired for key: {}", key);
+        return monitor(key, lock, metrics, null);
+    }
+
+    /**
+     * Creates a lock and acquires it with a timeout, recording the acquisition with {@code metrics} and
+     * logging failures to acquire it.
+     *
+     * @param key       the key the acquisition is recorded and logged for
+     * @param what      what is acquired, for the message of the exception
+     * @param subject   the keys acquired, for the message of the exception
+     * @param timeout   the duration to wait for the lock
+     * @param metrics   the metrics to record the acquisition with
+     * @param newLock   creates the lock to acquire
+     * @return the acquired lock, or null if the lock could not be acquired within the timeout
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired due to an error
+     */
+    private <L extends InterProcessLock> L acquireRecorded(String key, String what, Object subject, Duration timeout,
+                                                           LockMetrics metrics, Callable<L> newLock)
+        throws ZookeeperLockAcquisitionException {
+        throwIfClosed();
+        final long startedAtNanos = System.nanoTime();
+        metrics.acquireStarted(key);
+        L lock;
+        boolean acquired;
         try {
             throwIfClientNotStarted();
-            InterProcessLock lock = lockFunction.apply(key);
+            lock = newLock.call();
+            acquired = Blocking.acquire(lock, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            metrics.acquireFailed(key, System.nanoTime() - startedAtNanos);
+            failureLog.failed(LOGGER, key, e);
+            throw new ZookeeperLockAcquisitionException("Failed to acquire " + what + ": " + subject, e);
+        }
 
-            boolean acquired = lock.acquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
-            if (acquired) {
-                LOGGER.debug("Lock acquired for key: {}", key);
-                return new ZookeeperMonitoredLockAcquisition(client, key, lock);
+        if (!acquired) {
+            metrics.acquireTimedOut(key, System.nanoTime() - startedAtNanos);
+            return null;
+        }
+        metrics.acquired(key, System.nanoTime() - startedAtNanos);
+        return lock;
+    }
+
+    private ZookeeperLockAcquisitionException timedOut(String key, String what, Object subject, Duration timeout) {
+        failureLog.timedOut(LOGGER, key, timeout);
+        return new ZookeeperLockAcquisitionException(
+            "Failed to acquire " + what + ": " + subject + " within timeout: " + timeout);
+    }
+
+    /**
+     * Acquires a distributed lock for the specified key, held by a lease rather than by the session of the
+     * client, with a timeout.
+     *
+     * <p>The lock node is created with a TTL of {@code leaseDuration} instead of being ephemeral, and renewed
+     * in the background while the lock is held. The leases of all acquisitions of this instance are renewed
+     * by a single task, which touches all lock nodes due for renewal in batched transactions once a third of
+     * their lease has passed. If the holder crashes or stalls, e.g. in a long GC pause, other processes can
+     * acquire the lock once the lease has expired, without having to wait for the session of the holder to
+     * expire. A holder that could not renew its lease in time considers the lock lost before another process
+     * can take it over, and its remaining lease drops to zero.</p>
+     *
+     * <p>Lease locks use the same lock node layout as {@link #acquireAsync(String, Duration)} and exclude the
+     * same acquisitions of the key. They require Zookeeper 3.5.3 or later started with
+     * {@code zookeeper.extendedTypesEnabled=true}. Zookeeper deletes expired nodes in its container cleanup
+     * task, so expired leases are only detected within {@code znode.container.checkIntervalMs} of the
+     * server, which should be well below the lease duration.</p>
+     *
+     * @param key           the lock key
+     * @param leaseDuration the duration the lock is held for without being renewed
+     * @param timeout       the duration to wait for the lock
+     * @return an Acquisition representing the acquired lock, with its {@link Acquisition#remainingLease()}
+     * @throws IllegalArgumentException          if {@code leaseDuration} is shorter than one millisecond
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
+     */
+    @Override
+    public Acquisition acquireWithLease(String key, Duration leaseDuration, Duration timeout)
+        throws ZookeeperLockAcquisitionException {
+        if (leaseDuration.toMillis() < 1) {
+            throw new IllegalArgumentException("leaseDuration must be at least one millisecond");
+        }
+        SequentialNodeLock lock = acquireRecorded(key, LOCK_FOR_KEY, key, timeout, metrics,
+            () -> new SequentialNodeLock(client, lockPaths.lockPath(key), scheduler(), leaseRenewer(), leaseDuration));
+        if (lock == null) {
+            throw timedOut(key, LOCK_FOR_KEY, key, timeout);
+        }
+        LOGGER.debug("Lock acquired for key: {} with lease: {}", key, leaseDuration);
+        return monitor(key, lock, metrics, lock.lease());
+    }
+
+    /**
+     * Acquires the distributed locks for all specified keys as a whole, with a timeout.
+     *
+     * <p>The keys are sorted and de-duplicated, and the lock nodes of all keys are created in a single
+     * Zookeeper transaction. Since the lock nodes of a transaction are queued atomically, callers locking
+     * overlapping keys in a different order cannot deadlock each other. An uncontended acquisition takes about
+     * two round trips regardless of the number of keys, and releasing the returned Acquisition deletes all
+     * lock nodes in a single transaction. If the locks could not all be acquired, none of them is held.</p>
+     *
+     * <p>Like {@link #acquireAsync(String, Duration)}, the locks use the node layout of the default
+     * {@code InterProcessSemaphoreMutex} on each key and exclude the same acquisitions of the keys.</p>
+     *
+     * @param keys    the lock keys
+     * @param timeout the duration to wait for all locks
+     * @return an Acquisition representing all acquired locks
+     * @throws IllegalArgumentException          if {@code keys} is empty
+     * @throws ZookeeperLockAcquisitionException if the locks could not be acquired within the timeout
+     */
+    @Override
+    public Acquisition acquireAll(Collection<String> keys, Duration timeout) throws ZookeeperLockAcquisitionException {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("keys must not be empty");
+        }
+        List<String> sortedKeys = new ArrayList<>(new TreeSet<>(keys));
+        final String key = sortedKeys.toString();
+        MultiKeyLock lock = acquireRecorded(key, LOCKS_FOR_KEYS, sortedKeys, timeout, metrics, () -> {
+            List<String> paths = new ArrayList<>(sortedKeys.size());
+            for (String sortedKey : sortedKeys) {
+                paths.add(lockPaths.lockPath(sortedKey));
+            }
+            return new MultiKeyLock(client, paths, scheduler());
+        });
+        if (lock == null) {
+            throw timedOut(key, LOCKS_FOR_KEYS, sortedKeys, timeout);
+        }
+        LOGGER.debug("Locks acquired for keys: {}", sortedKeys);
+        return monitor(key, lock, metrics, null);
+    }
+
+    /**
+     * Acquires a distributed lock for the specified key without blocking the calling thread.
+     *
+     * <p>The acquisition is driven by Zookeeper watches and Curator's background callbacks, so pending
+     * acquisitions do not hold on to a thread. The timeout is enforced by a scheduler shared by all pending
+     * acquisitions of this instance, and cancelling the returned future deletes the lock node of the
+     * attempt.</p>
+     *
+     * <p>Asynchronous acquisitions create ephemeral sequential lock nodes below the {@code locks} child of the
+     * key, the same layout as the default {@code InterProcessSemaphoreMutex}, and hold the lock once their node
+     * is the oldest and no semaphore holds a lease below the {@code leases} child. They are mutually exclusive
+     * with each other, with {@link #acquire(String, Duration)} using the default lock function, and with
+     * {@link #acquireAll}, {@link #acquireWithLease} and priority acquisitions of the same key. Read/write
+     * locks, permits and custom lock functions with a different layout use separate nodes and are not
+     * excluded.</p>
+     *
+     * <p>The returned future is completed on the common fork-join pool.</p>
+     *
+     * @param key     the lock key
+     * @param timeout the duration to wait for the lock
+     * @return a future completed with an Acquisition representing the acquired lock, or exceptionally with
+     *     a {@link ZookeeperLockAcquisitionException} if the lock could not be acquired within the timeout
+     */
+    @Override
+    public CompletableFuture<Acquisition> acquireAsync(String key, Duration timeout) {
+        return acquireSequential(key, null, timeout);
+    }
+
+    /**
+     * Acquires a distributed lock for the specified key with a priority class, without blocking the calling
+     * thread.
+     *
+     * <p>Like {@link #acquireAsync(String, Duration)}, but waiters of a lower priority class give way to
+     * waiters of a higher one, as described for {@link #acquire(String, LockPriority, Duration)}.</p>
+     *
+     * @param key      the lock key
+     * @param priority the priority class of the waiter
+     * @param timeout  the duration to wait for the lock
+     * @return a future completed with an Acquisition representing the acquired lock, or exceptionally with
+     *     a {@link ZookeeperLockAcquisitionException} if the lock could not be acquired within the timeout
+     */
+    public CompletableFuture<Acquisition> acquireAsync(String key, LockPriority priority, Duration timeout) {
+        return acquireSequential(key, Objects.requireNonNull(priority, "priority"), timeout);
+    }
+
+    private CompletableFuture<Acquisition> acquireSequential(String key, LockPriority priority, Duration timeout) {
+        throwIfClosed();
+        // only priority acquisitions record their hold times
+        LockMetrics acquireMetrics = priority == null ? metrics : priorityMetrics;
+        CompletableFuture<Acquisition> result = new CompletableFuture<>();
+        CompletableFuture<Boolean> attempt;
+        SequentialNodeLock lock;
+        final long startedAtNanos = System.nanoTime();
+        acquireMetrics.acquireStarted(key);
+        try {
+            throwIfClientNotStarted();
+            lock = newSequentialNodeLock(key, priority);
+            attempt = lock.acquireAsync(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            acquireMetrics.acquireFailed(key, System.nanoTime() - startedAtNanos);
+            failureLog.failed(LOGGER, key, e);
+            result.completeExceptionally(new ZookeeperLockAcquisitionException("Failed to acquire lock for key: " + key, e));
+            return result;
+        }
+
+        result.whenComplete((acquisition, error) -> {
+            if (result.isCancelled()) {
+                attempt.cancel(false);
+            }
+        });
+        attempt.whenComplete((acquired, error) -> ForkJoinPool.commonPool().execute(() -> {
+            long waitNanos = System.nanoTime() - startedAtNanos;
+            if (error instanceof CancellationException) {
+                acquireMetrics.acquireFailed(key, waitNanos);
+                LOGGER.debug("Lock acquisition cancelled for key: {}", key);
+            } else if (error != null) {
+                acquireMetrics.acquireFailed(key, waitNanos);
+                failureLog.failed(LOGGER, key, error);
+                result.completeExceptionally(new ZookeeperLockAcquisitionException("Failed to acquire lock for key: " + key, error));
+            } else if (!acquired) {
+                acquireMetrics.acquireTimedOut(key, waitNanos);
+                failureLog.timedOut(LOGGER, key, timeout);
+                result.completeExceptionally(new ZookeeperLockAcquisitionException(
+                    "Failed to acquire lock for key: " + key + " within timeout: " + timeout));
             } else {
-                LOGGER.warn("Failed to acquire lock for key: {} within timeout: {}", key, timeout);
-                throw new ZookeeperLockAcquisitionException(
-                    "Failed to acquire lock for key: " + key + " within timeout: " + timeout);
+                acquireMetrics.acquired(key, waitNanos);
+                LOGGER.debug("Lock acquired for key: {}", key);
+                Acquisition acquisition;
+                try {
+                    acquisition = monitor(key, lock, acquireMetrics, null);
+                } catch (IllegalStateException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                if (!result.complete(acquisition)) {
+                    releaseQuietly(key, acquisition);
+                }
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Creates the lock paths of the given keys, their parents and the parents of the lock nodes below them up
+     * front, so that the first acquisition of each key creates its lock nodes without creating any parents.
+     *
+     * <p>Otherwise, missing parents are only created once creating a lock node has failed, checking and
+     * creating them one level at a time, which dominates the start of a process that fans out over many new
+     * keys. Here, the paths that do not exist yet are found with pipelined existence checks and created as
+     * container nodes in transactions of up to 500 nodes. Zookeeper only deletes container nodes once they
+     * have had children, so the lock paths remain until the locks on them have been used and released.</p>
+     *
+     * <p>The default {@code InterProcessSemaphoreMutex}, the locks on sequential lock nodes and the locks of
+     * {@link #acquirePermits(String, int, Duration)} create their nodes below the {@code locks} and
+     * {@code leases} children of the lock path, which are always created as well, along with the parents
+     * declared for a custom lock function with {@link Builder#lockFunction(Function, String...)}.</p>
+     *
+     * @param keys    the lock keys, e.g. the shards of work this process locks
+     * @param timeout the maximum time to wait for the lock paths to be created
+     * @return the number of nodes created, zero if all lock paths existed already
+     * @throws IllegalStateException             if the client is not started
+     * @throws ZookeeperDistributedLockException if the lock paths could not be created within the timeout
+     */
+    public int bootstrap(Collection<String> keys, Duration timeout) {
+        throwIfClosed();
+        throwIfClientNotStarted();
+        List<String> nodeParents = new ArrayList<>(lockNodeParents);
+        for (String nodeParent : SEMAPHORE_NODE_PARENTS) {
+            if (!nodeParents.contains(nodeParent)) {
+                nodeParents.add(nodeParent);
+            }
+        }
+        List<String> paths = new ArrayList<>(keys.size() * (1 + nodeParents.size()));
+        for (String key : keys) {
+            String lockPath = lockPaths.lockPath(key);
+            paths.add(lockPath);
+            for (String nodeParent : nodeParents) {
+                paths.add(ZKPaths.makePath(lockPath, nodeParent));
+            }
+        }
+        try {
+            int created = LockPathBootstrap.createAll(client, paths, LockPathBootstrap.DEFAULT_MAX_BATCH_SIZE)
+                .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            LOGGER.debug("Created {} lock paths and parents for {} keys", created, keys.size());
+            return created;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ZookeeperDistributedLockException("Interrupted while creating lock paths", e);
+        } catch (ExecutionException e) {
+            throw new ZookeeperDistributedLockException("Failed to create lock paths", e.getCause());
+        } catch (TimeoutException e) {
+            throw new ZookeeperDistributedLockException("Failed to create lock paths within timeout: " + timeout, e);
+        }
+    }
+
+    /**
+     * Stops monitoring the connection state of the client, logs the summaries of suppressed failures, flushes
+     * pending asynchronous releases, stops renewing leases and shuts down the timeout scheduler.
+     *
+     * <p>Acquisitions handed out by this instance are no longer notified of connection loss afterwards and
+     * should be released before closing. Locks still held with a lease expire once their lease has
+     * passed. Acquiring or bootstrapping locks afterwards throws an {@link IllegalStateException}.</p>
+     */
+    @Override
+    public void close() {
+        closed = true;
+        connectionStateRegistry.close();
+        failureLog.close();
+        ReleasePipeline pipeline = releasePipeline.getAndSet(null);
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        LeaseRenewer renewer = leaseRenewer.getAndSet(null);
+        if (renewer != null) {
+            renewer.close();
+        }
+        ScheduledExecutorService current = scheduler.getAndSet(null);
+        if (current != null) {
+            current.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the number of acquisitions monitored for connection state changes.
+     */
+    int monitoredAcquisitions() {
+        return connectionStateRegistry.size();
+    }
+
+    /**
+     * Returns the function creating the locks of {@link #acquire(String, Duration)} for the calling thread.
+     * Virtual threads acquire the default lock on sequential nodes, which exclude Curator's
+     * {@code InterProcessSemaphoreMutex} on the same path, but park the virtual thread rather than block a
+     * platform thread for it.
+     */
+    Function<String, InterProcessLock> lockFunction() {
+        if (defaultLockFunction && Blocking.isVirtualThread()) {
+            return path -> new SequentialNodeLock(client, path, scheduler());
+        }
+        return lockFunction;
+    }
+
+    /**
+     * Returns the function creating the read locks of {@link #acquireRead(String, Duration)} for the calling
+     * thread.
+     */
+    Function<String, InterProcessLock> readLockFunction() {
+        if (Blocking.isVirtualThread()) {
+            return path -> SequentialNodeLock.readLock(client, path, scheduler());
+        }
+        return path -> new InterProcessReadWriteLock(client, path).readLock();
+    }
+
+    /**
+     * Returns the function creating the write locks of {@link #acquireWrite(String, Duration)} for the calling
+     * thread.
+     */
+    Function<String, InterProcessLock> writeLockFunction() {
+        if (Blocking.isVirtualThread()) {
+            return path -> SequentialNodeLock.writeLock(client, path, scheduler());
+        }
+        return path -> new InterProcessReadWriteLock(client, path).writeLock();
+    }
+
+    private SequentialNodeLock newSequentialNodeLock(String key, LockPriority priority) {
+        String path = lockPaths.lockPath(key);
+        if (priority == null) {
+            return new SequentialNodeLock(client, path, scheduler());
+        }
+        return new SequentialNodeLock(client, path, scheduler(), priority, () -> holdTimes.expectedHoldNanos(key));
+    }
+
+    private ScheduledExecutorService scheduler() {
+        throwIfClosed();
+        ScheduledExecutorService current = scheduler.get();
+        if (current != null) {
+            return current;
+        }
+        ScheduledThreadPoolExecutor created = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "zookeeper-distributed-lock-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        created.setRemoveOnCancelPolicy(true);
+        if (!scheduler.compareAndSet(null, created)) {
+            created.shutdown();
+            return scheduler();
+        }
+        if (closed && scheduler.compareAndSet(created, null)) {
+            // closed concurrently, after close() shut down the scheduler it found
+            created.shutdownNow();
+            throwIfClosed();
+        }
+        return created;
+    }
+
+    private ReleasePipeline releasePipeline() {
+        throwIfClosed();
+        ReleasePipeline current = releasePipeline.get();
+        if (current != null) {
+            return current;
+        }
+        ThreadPoolExecutor backgroundReleases = new ThreadPoolExecutor(
+            ReleasePipeline.DEFAULT_BACKGROUND_RELEASE_THREADS, ReleasePipeline.DEFAULT_BACKGROUND_RELEASE_THREADS,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "zookeeper-distributed-lock-release");
+                thread.setDaemon(true);
+                return thread;
+            });
+        backgroundReleases.allowCoreThreadTimeOut(true);
+        ReleasePipeline created = new ReleasePipeline(client, scheduler(), backgroundReleases,
+            ReleasePipeline.DEFAULT_MAX_BATCH_SIZE, ReleasePipeline.DEFAULT_MAX_DELAY);
+        if (!releasePipeline.compareAndSet(null, created)) {
+            created.close();
+            return releasePipeline();
+        }
+        if (closed && releasePipeline.compareAndSet(created, null)) {
+            created.close();
+            throwIfClosed();
+        }
+        return created;
+    }
+
+    private LeaseRenewer leaseRenewer() {
+        throwIfClosed();
+        LeaseRenewer current = leaseRenewer.get();
+        if (current != null) {
+            return current;
+        }
+        LeaseRenewer created = new LeaseRenewer(client, scheduler());
+        if (!leaseRenewer.compareAndSet(null, created)) {
+            created.close();
+            return leaseRenewer();
+        }
+        if (closed && leaseRenewer.compareAndSet(created, null)) {
+            created.close();
+            throwIfClosed();
+        }
+        return created;
+    }
+
+    /**
+     * Hands out an acquired lock monitored for connection state changes, releasing it again if this
+     * instance has been closed while acquiring it.
+     *
+     * @throws IllegalStateException if this instance is closed
+     */
+    private Acquisition monitor(String key, InterProcessLock lock, LockMetrics metrics, LockLease lease) {
+        try {
+            return new ZookeeperMonitoredLockAcquisition(
+                connectionStateRegistry, releasePipeline(), metrics, failureLog, key, lock, lease);
+        } catch (IllegalStateException e) {
+            try {
+                lock.release();
+            } catch (Exception releaseError) {
+                e.addSuppressed(releaseError);
             }
+            throw e;
+        }
+    }
+
+    private static void releaseQuietly(String key, Acquisition acquisition) {
+        try {
+            acquisition.release();
         } catch (Exception e) {
-            LOGGER.error("Failed to acquire lock for key: {}", key, e);
-            throw new ZookeeperLockAcquisitionException("Failed to acquire lock for key: " + key, e);
+            LOGGER.warn("Failed to release abandoned lock for key: {}", key, e);
+        }
+    }
+
+    /**
+     * Throws an IllegalStateException if this instance is closed.
+     *
+     * @throws IllegalStateException if this instance is closed
+     */
+    private void throwIfClosed() {
+        if (closed) {
+            throw new IllegalStateException("ZookeeperDistributedLock is closed");
         }
     }
 
@@ -96,4 +797,217 @@ public class ZookeeperDistributedLock {
             throw new IllegalStateException("CuratorFramework client is not started");
         }
     }
+
+    /**
+     * Builds {@link ZookeeperDistributedLock} instances.
+     */
+    public static final class Builder {
+
+        private final CuratorFramework client;
+        private Function<String, InterProcessLock> lockFunction;
+        private boolean defaultLockFunction = true;
+        private List<String> lockNodeParents = SEMAPHORE_NODE_PARENTS;
+        private LockPathStrategy lockPaths = LockPathStrategy.identity();
+        private boolean reentrant;
+        private SuspensionPolicy suspensionPolicy = SuspensionPolicy.LOSE;
+        private ToIntFunction<String> permitLimits;
+        private LockMetrics metrics = LockMetrics.NOOP;
+        private Level timeoutLogLevel = Level.WARN;
+        private Level failureLogLevel = Level.ERROR;
+        private Duration logSampleInterval = Duration.ofSeconds(10);
+
+        private Builder(CuratorFramework client) {
+            this.client = client;
+            this.lockFunction = path -> new InterProcessSemaphoreMutex(client, path);
+        }
+
+        /**
+         * Sets the function to create the InterProcessLock instances used by
+         * {@link ZookeeperDistributedLock#acquire(String, Duration)}. Defaults to Curator's
+         * {@code InterProcessSemaphoreMutex}, which virtual threads replace with a lock on sequential nodes of
+         * the same layout.
+         *
+         * @param lockFunction the function to create InterProcessLock instances
+         * @return this builder
+         */
+        public Builder lockFunction(Function<String, InterProcessLock> lockFunction) {
+            return lockFunction(lockFunction, new String[0]);
+        }
+
+        /**
+         * Sets the function to create the InterProcessLock instances used by
+         * {@link ZookeeperDistributedLock#acquire(String, Duration)}, along with the names of the children of
+         * the lock path its locks create their nodes below, which
+         * {@link ZookeeperDistributedLock#bootstrap(Collection, Duration)} creates up front. The {@code locks}
+         * and {@code leases} children that Curator's semaphores, including an {@code InterProcessSemaphoreMutex}
+         * wrapped by an {@link InterProcessLockCache}, create their nodes below are always created.
+         *
+         * @param lockFunction    the function to create InterProcessLock instances
+         * @param lockNodeParents the names of the children of the lock path holding the lock nodes
+         * @return this builder
+         */
+        public Builder lockFunction(Function<String, InterProcessLock> lockFunction, String... lockNodeParents) {
+            for (String lockNodeParent : lockNodeParents) {
+                if (lockNodeParent.isEmpty() || lockNodeParent.indexOf('/') >= 0) {
+                    throw new IllegalArgumentException("Invalid lock node parent: " + lockNodeParent);
+                }
+            }
+            this.lockFunction = lockFunction;
+            this.defaultLockFunction = false;
+            this.lockNodeParents = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(lockNodeParents)));
+            return this;
+        }
+
+        /**
+         * Sets the strategy mapping lock keys to the paths of their lock nodes, for all kinds of locks handed
+         * out by the built instance. Defaults to {@link LockPathStrategy#identity()}, which uses the key as
+         * the path.
+         *
+         * <p>Use {@link LockPathStrategy#hashBuckets(int)} when locking large numbers of distinct keys below
+         * the same parent, such as entity ids, to keep the child lists of their parents small.</p>
+         *
+         * @param lockPaths the strategy mapping lock keys to lock paths
+         * @return this builder
+         */
+        public Builder lockPaths(LockPathStrategy lockPaths) {
+            this.lockPaths = lockPaths;
+            return this;
+        }
+
+        /**
+         * Sets whether {@link ZookeeperDistributedLock#acquire(String, Duration)} and
+         * {@link ZookeeperDistributedLock#tryAcquire(String, Duration)} are reentrant. Defaults to false.
+         *
+         * <p>The default lock function is not reentrant: a thread acquiring a lock it already holds waits for
+         * itself until the timeout. In reentrant mode, every thread counts the locks it holds in a table of
+         * its own. Acquiring a held lock again only increments its count, without talking to Zookeeper, and
+         * releasing an Acquisition only decrements it, until the last one releases the lock in Zookeeper.
+         * Acquisitions must then be released by the thread that acquired them, which is checked. A lock that
+         * has been lost is acquired in Zookeeper again by the next acquisition.</p>
+         *
+         * @param reentrant true to make exclusive locks reentrant per thread
+         * @return this builder
+         */
+        public Builder reentrant(boolean reentrant) {
+            this.reentrant = reentrant;
+            return this;
+        }
+
+        /**
+         * Sets what happens to held locks while the connection to Zookeeper is suspended. Defaults to
+         * {@link SuspensionPolicy#LOSE}, which considers them lost right away.
+         *
+         * <p>With {@link SuspensionPolicy#IN_DOUBT}, short network interruptions no longer cost the locks:
+         * {@link Acquisition#state()} reports {@link LockState#IN_DOUBT} while {@link Acquisition#isAcquired()}
+         * still returns true, and once reconnected the lock nodes of all locks in doubt are checked with a
+         * single Zookeeper transaction. Locks are lost once Curator reports the connection as lost, which it
+         * does once the session timeout has passed, or if their nodes are gone. Work protected by a lock
+         * should check for {@link LockState#HELD} before changing anything, since another process may
+         * acquire the lock as soon as the session has expired on the server.</p>
+         *
+         * @param suspensionPolicy the policy for locks held while the connection is suspended
+         * @return this builder
+         */
+        public Builder suspensionPolicy(SuspensionPolicy suspensionPolicy) {
+            this.suspensionPolicy = suspensionPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the number of permits of every key for
+         * {@link ZookeeperDistributedLock#acquirePermits(String, int, Duration)}.
+         *
+         * @param permitLimit the number of permits per key
+         * @return this builder
+         */
+        public Builder permitLimit(int permitLimit) {
+            if (permitLimit < 1) {
+                throw new IllegalArgumentException("permitLimit must be positive");
+            }
+            return permitLimits(key -> permitLimit);
+        }
+
+        /**
+         * Sets the function returning the number of permits of a key for
+         * {@link ZookeeperDistributedLock#acquirePermits(String, int, Duration)}.
+         *
+         * @param permitLimits the function returning the number of permits per key
+         * @return this builder
+         */
+        public Builder permitLimits(ToIntFunction<String> permitLimits) {
+            this.permitLimits = permitLimits;
+            return this;
+        }
+
+        /**
+         * Sets the metrics receiving the lifecycle events of all locks handed out by the built instance.
+         * Defaults to {@link LockMetrics#NOOP}.
+         *
+         * <p>Use {@link io.github.sumihiran.lock.zookeeper.metrics.MicrometerLockMetrics} to record them with
+         * Micrometer and {@link io.github.sumihiran.lock.zookeeper.metrics.JfrLockMetrics} to emit Flight
+         * Recorder events, or both combined with {@link LockMetrics#andThen(LockMetrics)}.</p>
+         *
+         * @param metrics the lock metrics
+         * @return this builder
+         */
+        public Builder metrics(LockMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Sets the level at which acquisition timeouts are logged. Defaults to {@link Level#WARN}.
+         *
+         * <p>Timeouts of {@link ZookeeperDistributedLock#tryAcquire(String, Duration)} are expected and only
+         * logged at debug level.</p>
+         *
+         * @param timeoutLogLevel the level of acquisition timeouts
+         * @return this builder
+         */
+        public Builder timeoutLogLevel(Level timeoutLogLevel) {
+            this.timeoutLogLevel = timeoutLogLevel;
+            return this;
+        }
+
+        /**
+         * Sets the level at which failures to acquire or release locks are logged, with their stack trace.
+         * Defaults to {@link Level#ERROR}.
+         *
+         * @param failureLogLevel the level of acquisition and release failures
+         * @return this builder
+         */
+        public Builder failureLogLevel(Level failureLogLevel) {
+            this.failureLogLevel = failureLogLevel;
+            return this;
+        }
+
+        /**
+         * Sets the interval within which failures are sampled. Defaults to 10 seconds.
+         *
+         * <p>Within each interval, only the first timeout, failure or lost lock is logged per key prefix, the
+         * first path segment of the key. The number of further ones is logged as a summary once the interval
+         * has passed, e.g. {@code Suppressed 42 timeouts for prefix: /orders in the last 10s}. Sampling keeps
+         * contended keys from flooding the log, since every waiter times out and every held lock is lost at
+         * the same time.</p>
+         *
+         * @param logSampleInterval the sampling interval, or {@link Duration#ZERO} to log every failure
+         * @return this builder
+         */
+        public Builder logSampleInterval(Duration logSampleInterval) {
+            if (logSampleInterval.isNegative()) {
+                throw new IllegalArgumentException("logSampleInterval must not be negative");
+            }
+            this.logSampleInterval = logSampleInterval;
+            return this;
+        }
+
+        /**
+         * Builds a new instance.
+         *
+         * @return a new ZookeeperDistributedLock
+         */
+        public ZookeeperDistributedLock build() {
+            return new ZookeeperDistributedLock(this);
+        }
+    }
 }
@@ -0,0 +1,308 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperDistributedLockException;
+import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockAcquisitionException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Routes locks to several Zookeeper ensembles by consistent hashing of their keys, so that lock throughput
+ * scales with the number of ensembles.
+ *
+ * <p>Every ensemble is configured as a named shard with its own CuratorFramework client, and gets its own
+ * {@link ZookeeperDistributedLock}. Each key belongs to exactly one shard, chosen by a consistent hash ring
+ * with a number of virtual nodes per shard, and all kinds of locks of the key are acquired on that shard.
+ * The ring only depends on the names of the shards: all processes locking the same keys must be configured
+ * with the same shard names, and adding or removing a shard only moves about {@code 1/n} of the keys to or
+ * from it. Locks are not excluded across processes using different shard configurations, so a change of
+ * shards must be rolled out to all processes at once.</p>
+ *
+ * <p>{@link #acquireAll(Collection, Duration)} acquires the keys of one shard at a time, in the order of the
+ * shard names. Since all callers lock shards in the same order, callers locking overlapping keys cannot
+ * deadlock each other across shards either.</p>
+ */
+public final class ZookeeperLockRouter implements DistributedLock {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZookeeperLockRouter.class);
+
+    private final Map<String, ZookeeperDistributedLock> shards;
+    private final ConsistentHashRing ring;
+
+    private ZookeeperLockRouter(Builder builder) {
+        Map<String, ZookeeperDistributedLock> locks = new TreeMap<>();
+        for (Map.Entry<String, CuratorFramework> shard : builder.clients.entrySet()) {
+            locks.put(shard.getKey(), builder.lockFactory.apply(shard.getValue()));
+        }
+        this.shards = Collections.unmodifiableMap(locks);
+        this.ring = new ConsistentHashRing(locks.keySet(), builder.virtualNodes);
+    }
+
+    /**
+     * Returns a builder for an instance without shards.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the name of the shard the specified key belongs to.
+     *
+     * @param key the lock key
+     * @return the name of the shard
+     */
+    public String shardOf(String key) {
+        return ring.shardOf(key);
+    }
+
+    @Override
+    public Acquisition acquire(String key) throws ZookeeperLockAcquisitionException {
+        return shard(key).acquire(key);
+    }
+
+    @Override
+    public Acquisition acquire(String key, Duration timeout) throws ZookeeperLockAcquisitionException {
+        return shard(key).acquire(key, timeout);
+    }
+
+    /**
+     * Acquires a distributed lock for the specified key with a priority class on the shard of the key.
+     *
+     * @param key      the lock key
+     * @param priority the priority class of the waiter
+     * @param timeout  the duration to wait for the lock
+     * @return an Acquisition representing the acquired lock
+     * @throws ZookeeperLockAcquisitionException if the lock could not be acquired within the timeout
+     * @see ZookeeperDistributedLock#acquire(String, LockPriority, Duration)
+     */
+    public Acquisition acquire(String key, LockPriority priority, Duration timeout) throws ZookeeperLockAcquisitionException {
+        return shard(key).acquire(key, priority, timeout);
+    }
+
+    @Override
+    public Optional<Acquisition> tryAcquire(String key, Duration timeout) throws ZookeeperLockAcquisitionException {
+        return shard(key).tryAcquire(key, timeout);
+    }
+
+    @Override
+    public Acquisition acquireRead(String key, Duration timeout) throws ZookeeperLockAcquisitionException {
+        return shard(key).acquireRead(key, timeout);
+    }
+
+    @Override
+    public Acquisition acquireWrite(String key, Duration timeout) throws ZookeeperLockAcquisitionException {
+        return shard(key).acquireWrite(key, timeout);
+    }
+
+    @Override
+    public Acquisition acquirePermits(String key, int permits, Duration timeout) throws ZookeeperLockAcquisitionException {
+        return shard(key).acquirePermits(key, permits, timeout);
+    }
+
+    @Override
+    public Acquisition acquireWithLease(String key, Duration leaseDuration, Duration timeout)
+        throws ZookeeperLockAcquisitionException {
+        return shard(key).acquireWithLease(key, leaseDuration, timeout);
+    }
+
+    /**
+     * Acquires the distributed locks for all specified keys as a whole, with a timeout.
+     *
+     * <p>The keys are grouped by shard, and the keys of each shard are acquired with
+     * {@link ZookeeperDistributedLock#acquireAll(Collection, Duration)}, one shard after the other in the
+     * order of the shard names, within the remaining timeout. If the keys of a shard could not be acquired,
+     * the keys already acquired on other shards are released before the error is thrown.</p>
+     *
+     * @param keys    the lock keys
+     * @param timeout the duration to wait for all locks
+     * @return an Acquisition representing all acquired locks
+     * @throws IllegalArgumentException          if {@code keys} is empty
+     * @throws ZookeeperLockAcquisitionException if the locks could not be acquired within the timeout
+     */
+    @Override
+    public Acquisition acquireAll(Collection<String> keys, Duration timeout) throws ZookeeperLockAcquisitionException {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("keys must not be empty");
+        }
+        Map<String, List<String>> keysByShard = new TreeMap<>();
+        for (String key : keys) {
+            keysByShard.computeIfAbsent(ring.shardOf(key), shard -> new ArrayList<>()).add(key);
+        }
+        if (keysByShard.size() == 1) {
+            Map.Entry<String, List<String>> only = keysByShard.entrySet().iterator().next();
+            return shards.get(only.getKey()).acquireAll(only.getValue(), timeout);
+        }
+
+        final long startedAtNanos = System.nanoTime();
+        List<Acquisition> acquired = new ArrayList<>(keysByShard.size());
+        for (Map.Entry<String, List<String>> shardKeys : keysByShard.entrySet()) {
+            Duration remaining = timeout.minusNanos(System.nanoTime() - startedAtNanos);
+            try {
+                acquired.add(shards.get(shardKeys.getKey())
+                    .acquireAll(shardKeys.getValue(), remaining.isNegative() ? Duration.ZERO : remaining));
+            } catch (RuntimeException e) {
+                releaseQuietly(acquired);
+                throw e;
+            }
+        }
+        return new CompositeAcquisition(acquired);
+    }
+
+    @Override
+    public CompletableFuture<Acquisition> acquireAsync(String key, Duration timeout) {
+        return shard(key).acquireAsync(key, timeout);
+    }
+
+    /**
+     * Acquires a distributed lock for the specified key with a priority class on the shard of the key, without
+     * blocking the calling thread.
+     *
+     * @param key      the lock key
+     * @param priority the priority class of the waiter
+     * @param timeout  the duration to wait for the lock
+     * @return a future completed with an Acquisition representing the acquired lock
+     * @see ZookeeperDistributedLock#acquireAsync(String, LockPriority, Duration)
+     */
+    public CompletableFuture<Acquisition> acquireAsync(String key, LockPriority priority, Duration timeout) {
+        return shard(key).acquireAsync(key, priority, timeout);
+    }
+
+    /**
+     * Creates the lock paths of the given keys and their parents up front on the shard of each key.
+     *
+     * <p>The keys are grouped by shard, and the keys of each shard are passed to
+     * {@link ZookeeperDistributedLock#bootstrap(Collection, Duration)}, one shard after the other in the order
+     * of the shard names, within the remaining timeout.</p>
+     *
+     * @param keys    the lock keys
+     * @param timeout the maximum time to wait for the lock paths to be created
+     * @return the number of nodes created on all shards
+     * @throws ZookeeperDistributedLockException if the lock paths could not be created within the timeout
+     */
+    public int bootstrap(Collection<String> keys, Duration timeout) {
+        Map<String, List<String>> keysByShard = new TreeMap<>();
+        for (String key : keys) {
+            keysByShard.computeIfAbsent(ring.shardOf(key), shard -> new ArrayList<>()).add(key);
+        }
+        final long startedAtNanos = System.nanoTime();
+        int created = 0;
+        for (Map.Entry<String, List<String>> shardKeys : keysByShard.entrySet()) {
+            Duration remaining = timeout.minusNanos(System.nanoTime() - startedAtNanos);
+            created += shards.get(shardKeys.getKey())
+                .bootstrap(shardKeys.getValue(), remaining.isNegative() ? Duration.ZERO : remaining);
+        }
+        return created;
+    }
+
+    /**
+     * Closes the {@link ZookeeperDistributedLock} of every shard, without closing their clients.
+     */
+    @Override
+    public void close() {
+        for (ZookeeperDistributedLock shard : shards.values()) {
+            shard.close();
+        }
+    }
+
+    private ZookeeperDistributedLock shard(String key) {
+        return shards.get(ring.shardOf(key));
+    }
+
+    private static void releaseQuietly(List<Acquisition> acquired) {
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            try {
+                acquired.get(i).release();
+            } catch (Exception e) {
+                LOGGER.warn("Failed to release locks of incomplete batch acquisition", e);
+            }
+        }
+    }
+
+    /**
+     * Builds {@link ZookeeperLockRouter} instances.
+     */
+    public static final class Builder {
+
+        static final int DEFAULT_VIRTUAL_NODES = 160;
+
+        private final Map<String, CuratorFramework> clients = new LinkedHashMap<>();
+        private int virtualNodes = DEFAULT_VIRTUAL_NODES;
+        private Function<CuratorFramework, ZookeeperDistributedLock> lockFactory = ZookeeperDistributedLock::new;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a shard backed by the Zookeeper ensemble of the specified client.
+         *
+         * @param name   the name of the shard, which determines the keys it holds
+         * @param client the CuratorFramework client of the ensemble
+         * @return this builder
+         * @throws IllegalArgumentException if a shard of the same name has been added already
+         */
+        public Builder shard(String name, CuratorFramework client) {
+            if (clients.putIfAbsent(name, client) != null) {
+                throw new IllegalArgumentException("Duplicate shard: " + name);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the number of virtual nodes of every shard on the hash ring. Defaults to 160.
+         *
+         * <p>More virtual nodes spread the keys more evenly over the shards, at the cost of a larger ring
+         * to look keys up in. All processes must use the same number.</p>
+         *
+         * @param virtualNodes the number of virtual nodes per shard
+         * @return this builder
+         */
+        public Builder virtualNodes(int virtualNodes) {
+            if (virtualNodes < 1) {
+                throw new IllegalArgumentException("virtualNodes must be positive");
+            }
+            this.virtualNodes = virtualNodes;
+            return this;
+        }
+
+        /**
+         * Sets the function creating the {@link ZookeeperDistributedLock} of every shard from its client,
+         * e.g. {@code client -> ZookeeperDistributedLock.builder(client).metrics(metrics).build()}. Defaults
+         * to {@link ZookeeperDistributedLock#ZookeeperDistributedLock(CuratorFramework)}.
+         *
+         * @param lockFactory the function creating the lock of a shard
+         * @return this builder
+         */
+        public Builder lockFactory(Function<CuratorFramework, ZookeeperDistributedLock> lockFactory) {
+            this.lockFactory = lockFactory;
+            return this;
+        }
+
+        /**
+         * Builds a new instance.
+         *
+         * @return a new ZookeeperLockRouter
+         * @throws IllegalArgumentException if no shard has been added
+         */
+        public ZookeeperLockRouter build() {
+            if (clients.isEmpty()) {
+                throw new IllegalArgumentException("At least one shard is required");
+            }
+            return new ZookeeperLockRouter(this);
+        }
+    }
+}
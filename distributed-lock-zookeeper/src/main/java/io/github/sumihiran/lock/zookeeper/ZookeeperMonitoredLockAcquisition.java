@@ -6,9 +6,20 @@ import org.apache.curator.framework.state.ConnectionState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockLostException;
 import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockReleaseException;
+import io.github.sumihiran.lock.zookeeper.metrics.LockMetrics;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Represents an acquired lock in Zookeeper and manages its lifecycle by monitoring the connection state.
@@ -18,31 +29,94 @@ public class ZookeeperMonitoredLockAcquisition implements Acquisition {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ZookeeperMonitoredLockAcquisition.class);
 
+    private static final AtomicReferenceFieldUpdater<ZookeeperMonitoredLockAcquisition, LockState> STATE =
+        AtomicReferenceFieldUpdater.newUpdater(ZookeeperMonitoredLockAcquisition.class, LockState.class, "state");
+
     private final InterProcessLock lock;
     private final String key;
-    private final CuratorFramework client;
+    private final ConnectionStateRegistry registry;
+    private final boolean ownsRegistry;
+    private final ReleasePipeline releasePipeline;
+    private final LockLease lease;
+    private final LockMetrics metrics;
+    private final FailureLog failureLog;
+    private final long acquiredAtNanos = System.nanoTime();
+    private final OptionalLong fencingToken;
 
-    private final AtomicBoolean isAcquired = new AtomicBoolean(true);
+    // the only field read by isAcquired(), state() and checkpoint(), written on release and connection events
+    private volatile LockState state = LockState.HELD;
     private final AtomicBoolean isLockLost = new AtomicBoolean(false);
+    private List<Runnable> lostCallbacks;
 
     /**
      * Constructs a new instance with the specified {@link CuratorFramework} {@code client}, {@code key},
      * and {@code lock}.
      *
+     * <p>The acquisition registers a dedicated connection state listener with the {@code client}, which is
+     * removed once the lock is released or lost.</p>
+     *
      * @param client the CuratorFramework client
      * @param key    the lock key
      * @param lock   the InterProcessLock representing the lock
      */
     public ZookeeperMonitoredLockAcquisition(CuratorFramework client, String key, InterProcessLock lock) {
-        this.client = client;
+        this(new ConnectionStateRegistry(client), true, null, LockMetrics.NOOP, FailureLog.UNSAMPLED, key, lock, null);
+    }
+
+    /**
+     * Constructs a new instance monitored by a shared {@link ConnectionStateRegistry}.
+     *
+     * @param registry        the registry dispatching connection state changes
+     * @param releasePipeline the pipeline used by {@link #releaseAsync()}
+     * @param key             the lock key
+     * @param lock            the InterProcessLock representing the lock
+     */
+    ZookeeperMonitoredLockAcquisition(
+        ConnectionStateRegistry registry, ReleasePipeline releasePipeline, String key, InterProcessLock lock) {
+        this(registry, false, releasePipeline, LockMetrics.NOOP, FailureLog.UNSAMPLED, key, lock, null);
+    }
+
+    /**
+     * Constructs a new instance reporting its release to {@code metrics} and its failures to
+     * {@code failureLog}, optionally backed by a lease, in which case the lock is considered lost once the
+     * lease expires.
+     *
+     * @param registry        the registry dispatching connection state changes
+     * @param releasePipeline the pipeline used by {@link #releaseAsync()}
+     * @param metrics         the metrics to report the release or loss of the lock to
+     * @param failureLog      the log of failed releases and lost locks
+     * @param key             the lock key
+     * @param lock            the InterProcessLock representing the lock
+     * @param lease           the lease of the lock node, or null if the lock is not backed by a lease
+     */
+    ZookeeperMonitoredLockAcquisition(ConnectionStateRegistry registry, ReleasePipeline releasePipeline,
+                                      LockMetrics metrics, FailureLog failureLog, String key,
+                                      InterProcessLock lock, LockLease lease) {
+        this(registry, false, releasePipeline, metrics, failureLog, key, lock, lease);
+    }
+
+    private ZookeeperMonitoredLockAcquisition(ConnectionStateRegistry registry, boolean ownsRegistry,
+                                              ReleasePipeline releasePipeline, LockMetrics metrics,
+                                              FailureLog failureLog, String key, InterProcessLock lock,
+                                              LockLease lease) {
+        this.registry = registry;
+        this.ownsRegistry = ownsRegistry;
+        this.releasePipeline = releasePipeline;
+        this.metrics = metrics;
+        this.failureLog = failureLog;
         this.lock = lock;
         this.key = key;
-        client.getConnectionStateListenable().addListener(this::handleConnectionStateChange);
+        this.lease = lease;
+        this.fencingToken = lock instanceof NodeBackedLock ? ((NodeBackedLock) lock).fencingToken() : OptionalLong.empty();
+        registry.register(this);
+        if (lease != null) {
+            lease.expired().thenRun(this::onLockLost);
+        }
     }
 
     @Override
     public void release() throws Exception {
-        if (!isAcquired.get()) {
+        if (state == LockState.NOT_HELD) {
             if (isLockLost.get()) {
                 throw new ZookeeperLockReleaseException(key, "Cannot release a lost lock");
             }
@@ -50,16 +124,122 @@ public class ZookeeperMonitoredLockAcquisition implements Acquisition {
             return;
         }
 
-        lock.release();
-        if (isAcquired.getAndSet(false)) {
+        Blocking.release(lock);
+        if (STATE.getAndSet(this, LockState.NOT_HELD) != LockState.NOT_HELD) {
+            metrics.released(key, System.nanoTime() - acquiredAtNanos);
             unregisterConnectionStateListener();
+            clearLostCallbacks();
             LOGGER.debug("Lock released for key: {}", key);
         }
     }
 
+    /**
+     * Releases the lock through the release pipeline of the {@link ZookeeperDistributedLock} that handed out
+     * this acquisition, which coalesces the deletes of many lock nodes into a few Zookeeper transactions.
+     *
+     * <p>The acquisition is marked as released immediately. Only the lock nodes of locks acquired with
+     * {@link ZookeeperDistributedLock#acquireAsync}, {@link ZookeeperDistributedLock#acquireAll} or
+     * {@link ZookeeperDistributedLock#acquirePermits} are deleted in batches. The default
+     * {@code InterProcessSemaphoreMutex} is released on a background thread, without batching, also when it is
+     * cached by an {@link InterProcessLockCache} or coalesced by a {@link CoalescingLockFactory}. Other locks,
+     * such as Curator's {@code InterProcessMutex}, are released synchronously on the calling thread.</p>
+     */
+    @Override
+    public CompletableFuture<Void> releaseAsync() {
+        if (releasePipeline == null) {
+            return Acquisition.super.releaseAsync();
+        }
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        if (STATE.getAndSet(this, LockState.NOT_HELD) == LockState.NOT_HELD) {
+            if (isLockLost.get()) {
+                released.completeExceptionally(new ZookeeperLockReleaseException(key, "Cannot release a lost lock"));
+            } else {
+                LOGGER.debug("Lock already released for key: {}", key);
+                released.complete(null);
+            }
+            return released;
+        }
+
+        metrics.released(key, System.nanoTime() - acquiredAtNanos);
+        unregisterConnectionStateListener();
+        clearLostCallbacks();
+        return releasePipeline.release(lock).whenComplete((result, error) -> {
+            if (error == null) {
+                LOGGER.debug("Lock released for key: {}", key);
+            } else {
+                failureLog.releaseFailed(LOGGER, key, error);
+            }
+        });
+    }
+
     @Override
     public boolean isAcquired() {
-        return isAcquired.get();
+        return state() != LockState.NOT_HELD;
+    }
+
+    /**
+     * Returns {@link LockState#IN_DOUBT} while the connection is suspended under
+     * {@link SuspensionPolicy#IN_DOUBT}, until the lock nodes have been checked after reconnecting.
+     *
+     * <p>A lock held by a lease is lost as soon as its lease has passed without a renewal, even before the
+     * renewal task notices it.</p>
+     */
+    @Override
+    public LockState state() {
+        LockState current = state;
+        if (lease != null && current != LockState.NOT_HELD && lease.isExpiredAt(System.nanoTime())) {
+            // Zookeeper may delete the node from now on, and the renewal task only notices on its next run
+            lease.expire();
+            return LockState.NOT_HELD;
+        }
+        return current;
+    }
+
+    /**
+     * Reads a single volatile field that is only written when the lock is released or a connection state
+     * change affects it, so checks in hot loops neither contend with other threads nor allocate. Locks held
+     * by a lease also check the lease against the clock.
+     */
+    @Override
+    public void checkpoint() {
+        if (state() == LockState.NOT_HELD) {
+            throw new ZookeeperLockLostException((isLockLost.get() ? "Lock lost for key: " : "Lock released for key: ") + key);
+        }
+    }
+
+    /**
+     * Callbacks registered once the lock has been released are ignored, and the callbacks registered before
+     * are dropped on release.
+     */
+    @Override
+    public void onLost(Runnable callback) {
+        synchronized (this) {
+            if (!isLockLost.get()) {
+                if (state == LockState.NOT_HELD) {
+                    LOGGER.debug("Ignoring lock lost callback of released lock for key: {}", key);
+                    return;
+                }
+                if (lostCallbacks == null) {
+                    lostCallbacks = new ArrayList<>(1);
+                }
+                lostCallbacks.add(callback);
+                return;
+            }
+        }
+        runLostCallback(callback);
+    }
+
+    @Override
+    public OptionalLong fencingToken() {
+        return fencingToken;
+    }
+
+    @Override
+    public Optional<Duration> remainingLease() {
+        if (lease == null) {
+            return Optional.empty();
+        }
+        return Optional.of(isAcquired() ? lease.remaining() : Duration.ZERO);
     }
 
     /**
@@ -71,21 +251,99 @@ public class ZookeeperMonitoredLockAcquisition implements Acquisition {
         return isLockLost.get();
     }
 
-    private void handleConnectionStateChange(CuratorFramework client, ConnectionState newState) {
+    void handleConnectionStateChange(ConnectionState newState) {
         if (!newState.isConnected()) {
             LOGGER.debug("Connection state changed: {} for key: {}", newState.name(), key);
             onLockLost();
         }
     }
 
+    /**
+     * Marks the held lock as in doubt, since the connection has been suspended.
+     */
+    void suspect() {
+        if (STATE.compareAndSet(this, LockState.HELD, LockState.IN_DOUBT)) {
+            LOGGER.debug("Lock in doubt for key: {}", key);
+        }
+    }
+
+    /**
+     * Checks if the lock is held but in doubt, so that it needs to be checked once reconnected.
+     */
+    boolean isInDoubt() {
+        return state == LockState.IN_DOUBT;
+    }
+
+    /**
+     * Resolves a lock in doubt after its lock nodes have been checked.
+     *
+     * @param held true if the lock nodes still exist, false if the lock has been lost
+     */
+    void resolve(boolean held) {
+        if (held) {
+            if (STATE.compareAndSet(this, LockState.IN_DOUBT, LockState.HELD)) {
+                LOGGER.debug("Lock confirmed after reconnecting for key: {}", key);
+            }
+        } else if (isAcquired()) {
+            onLockLost();
+        }
+    }
+
+    /**
+     * Checks if the lock is held by the Zookeeper session, rather than by a lease, so that it is lost along
+     * with the session.
+     */
+    boolean isSessionBound() {
+        return lease == null;
+    }
+
+    /**
+     * Returns the lock nodes of the held lock, empty unless the lock is a {@link NodeBackedLock}.
+     */
+    List<String> lockNodes() {
+        return lock instanceof NodeBackedLock ? ((NodeBackedLock) lock).lockNodes() : Collections.emptyList();
+    }
+
+    private synchronized void clearLostCallbacks() {
+        // callbacks registered from now on see the released state, and are ignored
+        lostCallbacks = null;
+    }
+
     private void unregisterConnectionStateListener() {
-        client.getConnectionStateListenable().removeListener(this::handleConnectionStateChange);
+        if (registry.unregister(this) && ownsRegistry) {
+            registry.close();
+        }
     }
 
     private void onLockLost() {
+        if (lease != null) {
+            // stop renewing, so that Zookeeper deletes the lock node once its TTL has passed
+            lease.cancel();
+        }
         unregisterConnectionStateListener();
-        isAcquired.set(false);
-        isLockLost.set(true);
-        LOGGER.warn("Lock is considered lost for key: {}", key);
+        boolean wasAcquired = STATE.getAndSet(this, LockState.NOT_HELD) != LockState.NOT_HELD;
+        if (wasAcquired) {
+            metrics.lost(key, System.nanoTime() - acquiredAtNanos);
+        }
+        List<Runnable> callbacks;
+        synchronized (this) {
+            isLockLost.set(true);
+            callbacks = lostCallbacks;
+            lostCallbacks = null;
+        }
+        failureLog.lost(LOGGER, key);
+        if (wasAcquired && callbacks != null) {
+            callbacks.forEach(this::runLostCallback);
+        }
+    }
+
+    private void runLostCallback(Runnable callback) {
+        ForkJoinPool.commonPool().execute(() -> {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Lock lost callback failed for key: {}", key, e);
+            }
+        });
     }
 }
@@ -0,0 +1,16 @@
+package io.github.sumihiran.lock.zookeeper.exceptions;
+
+/**
+ * Thrown when work under a lock finds that the lock is no longer held, because it has been lost or released.
+ */
+public final class ZookeeperLockLostException extends ZookeeperDistributedLockException {
+
+    /**
+     * Initialize the exception with given {@code message}.
+     *
+     * @param message a message describing the cause of the exception
+     */
+    public ZookeeperLockLostException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.sumihiran.lock.zookeeper.metrics;
+
+/**
+ * Commits the Flight Recorder events of {@link JfrLockMetrics}.
+ *
+ * <p>This is the baseline implementation, which commits nothing, so that the library compiles and runs on
+ * Java 8 runtimes without {@code jdk.jfr}. The multi-release jar contains a JDK 21 variant that commits the
+ * events.</p>
+ */
+final class JfrEvents {
+
+    /**
+     * Checks if this implementation commits Flight Recorder events.
+     *
+     * @return true if events are committed, false otherwise
+     */
+    static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Commits a lock acquire event, if enabled.
+     *
+     * @param key       the lock key
+     * @param outcome   one of acquired, timeout or failure
+     * @param waitNanos the time spent waiting for the lock
+     */
+    void commitAcquire(String key, String outcome, long waitNanos) {
+    }
+
+    /**
+     * Commits a lock release event, if enabled.
+     *
+     * @param key       the lock key
+     * @param lost      true if the lock has been lost rather than released
+     * @param holdNanos the time the lock was held
+     */
+    void commitRelease(String key, boolean lost, long holdNanos) {
+    }
+}
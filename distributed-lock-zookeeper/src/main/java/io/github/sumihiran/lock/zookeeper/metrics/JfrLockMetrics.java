@@ -0,0 +1,55 @@
+package io.github.sumihiran.lock.zookeeper.metrics;
+
+/**
+ * Emits JDK Flight Recorder events for lock acquisitions and releases, to correlate lock stalls with GC
+ * pauses, I/O and other events of a recording.
+ *
+ * <p>The {@code io.github.sumihiran.lock.zookeeper.LockAcquire} event is committed once an acquisition
+ * attempt completes, with the time spent waiting and its outcome. The
+ * {@code io.github.sumihiran.lock.zookeeper.LockRelease} event is committed once a lock is released or lost,
+ * with the time it was held. Both events are committed at the end of the measured period without a duration
+ * of their own, so their wait and hold times end at the event start time, and a threshold configured for
+ * them would drop all events. Events are only created while they are enabled in a running recording.</p>
+ *
+ * <p>The events are committed by the JDK 21 classes of the multi-release jar, so that the library neither
+ * needs {@code jdk.jfr} to compile nor to run on Java 8. On runtimes before JDK 21, {@link #isSupported()}
+ * returns false and instances record nothing.</p>
+ */
+public final class JfrLockMetrics implements LockMetrics {
+
+    private final JfrEvents events = new JfrEvents();
+
+    /**
+     * Checks if Flight Recorder events are emitted on the running JVM.
+     *
+     * @return true if Flight Recorder events are emitted, false otherwise
+     */
+    public static boolean isSupported() {
+        return JfrEvents.isSupported();
+    }
+
+    @Override
+    public void acquired(String key, long waitNanos) {
+        events.commitAcquire(key, "acquired", waitNanos);
+    }
+
+    @Override
+    public void acquireTimedOut(String key, long waitNanos) {
+        events.commitAcquire(key, "timeout", waitNanos);
+    }
+
+    @Override
+    public void acquireFailed(String key, long waitNanos) {
+        events.commitAcquire(key, "failure", waitNanos);
+    }
+
+    @Override
+    public void released(String key, long holdNanos) {
+        events.commitRelease(key, false, holdNanos);
+    }
+
+    @Override
+    public void lost(String key, long holdNanos) {
+        events.commitRelease(key, true, holdNanos);
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.sumihiran.lock.zookeeper.metrics;
+
+/**
+ * Receives the lifecycle events of the locks handed out by a
+ * {@link io.github.sumihiran.lock.zookeeper.ZookeeperDistributedLock}, to record them as metrics.
+ *
+ * <p>Every acquisition attempt reports {@link #acquireStarted(String)} followed by exactly one of
+ * {@link #acquired(String, long)}, {@link #acquireTimedOut(String, long)} or
+ * {@link #acquireFailed(String, long)}. Every acquired lock later reports either
+ * {@link #released(String, long)} or {@link #lost(String, long)}.</p>
+ *
+ * <p>The methods are called on the hot path of acquiring and releasing locks, from the acquiring thread or
+ * from Curator's event threads, so implementations must be thread-safe, must not block and should not
+ * allocate. Durations are passed as primitive nanoseconds for that reason. All methods do nothing by
+ * default.</p>
+ */
+public interface LockMetrics {
+
+    /**
+     * Discards all events.
+     */
+    LockMetrics NOOP = new LockMetrics() {
+    };
+
+    /**
+     * Called when a thread starts waiting for the lock of the given {@code key}.
+     *
+     * @param key the lock key
+     */
+    default void acquireStarted(String key) {
+    }
+
+    /**
+     * Called when the lock of the given {@code key} has been acquired.
+     *
+     * @param key       the lock key
+     * @param waitNanos the time spent waiting for the lock, in nanoseconds
+     */
+    default void acquired(String key, long waitNanos) {
+    }
+
+    /**
+     * Called when the lock of the given {@code key} could not be acquired within the timeout.
+     *
+     * @param key       the lock key
+     * @param waitNanos the time spent waiting for the lock, in nanoseconds
+     */
+    default void acquireTimedOut(String key, long waitNanos) {
+    }
+
+    /**
+     * Called when the lock of the given {@code key} could not be acquired for any other reason than a
+     * timeout, such as a Zookeeper error or a cancelled asynchronous acquisition.
+     *
+     * @param key       the lock key
+     * @param waitNanos the time spent waiting for the lock, in nanoseconds
+     */
+    default void acquireFailed(String key, long waitNanos) {
+    }
+
+    /**
+     * Called when the lock of the given {@code key} has been released by its holder.
+     *
+     * @param key       the lock key
+     * @param holdNanos the time the lock was held, in nanoseconds
+     */
+    default void released(String key, long holdNanos) {
+    }
+
+    /**
+     * Called when the lock of the given {@code key} is considered lost, e.g. because the connection to
+     * Zookeeper was lost or its lease expired.
+     *
+     * @param key       the lock key
+     * @param holdNanos the time the lock was held until it was lost, in nanoseconds
+     */
+    default void lost(String key, long holdNanos) {
+    }
+
+    /**
+     * Returns metrics passing all events to this instance and then to the {@code next} one.
+     *
+     * @param next the metrics receiving the events after this instance
+     * @return the combined metrics
+     */
+    default LockMetrics andThen(LockMetrics next) {
+        LockMetrics first = this;
+        return new LockMetrics() {
+            @Override
+            public void acquireStarted(String key) {
+                first.acquireStarted(key);
+                next.acquireStarted(key);
+            }
+
+            @Override
+            public void acquired(String key, long waitNanos) {
+                first.acquired(key, waitNanos);
+                next.acquired(key, waitNanos);
+            }
+
+            @Override
+            public void acquireTimedOut(String key, long waitNanos) {
+                first.acquireTimedOut(key, waitNanos);
+                next.acquireTimedOut(key, waitNanos);
+            }
+
+            @Override
+            public void acquireFailed(String key, long waitNanos) {
+                first.acquireFailed(key, waitNanos);
+                next.acquireFailed(key, waitNanos);
+            }
+
+            @Override
+            public void released(String key, long holdNanos) {
+                first.released(key, holdNanos);
+                next.released(key, holdNanos);
+            }
+
+            @Override
+            public void lost(String key, long holdNanos) {
+                first.lost(key, holdNanos);
+                next.lost(key, holdNanos);
+            }
+        };
+    }
+}
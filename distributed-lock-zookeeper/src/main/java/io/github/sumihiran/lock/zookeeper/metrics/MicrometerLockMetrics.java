@@ -0,0 +1,214 @@
+package io.github.sumihiran.lock.zookeeper.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import io.github.sumihiran.lock.zookeeper.KeyPrefixes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Records lock metrics with Micrometer, tagged with the prefix of the lock key.
+ *
+ * <p>The following meters are registered for every key prefix, tagged with {@code prefix}:</p>
+ * <ul>
+ *     <li>{@code zookeeper.lock.wait}: a timer of the time spent waiting for acquired locks,</li>
+ *     <li>{@code zookeeper.lock.hold}: a timer of the time locks were held until released or lost,</li>
+ *     <li>{@code zookeeper.lock.timeouts}: a counter of acquisitions that timed out,</li>
+ *     <li>{@code zookeeper.lock.failures}: a counter of acquisitions that failed otherwise,</li>
+ *     <li>{@code zookeeper.lock.lost}: a counter of locks considered lost,</li>
+ *     <li>{@code zookeeper.lock.waiting}: a gauge of the acquisitions currently waiting,</li>
+ *     <li>{@code zookeeper.lock.held}: a gauge of the locks currently held.</li>
+ * </ul>
+ *
+ * <p>The timers publish percentile histograms. The meters of a prefix are registered on its first use and
+ * looked up by key afterwards, for up to {@value #MAX_CACHED_KEYS} distinct keys. Further keys are matched
+ * against the known prefixes of the default first path segment without allocating, whereas a custom prefix
+ * function is called for each of them. The prefix function must map keys to a small number of prefixes,
+ * since every prefix is a separate time series.</p>
+ *
+ * <p>Several instances may record to the same registry, e.g. one per shard of a
+ * {@code ZookeeperLockRouter}, and share its meters, including the gauges.</p>
+ *
+ * <p>Micrometer is an optional dependency of this library and must be on the classpath to use this
+ * class.</p>
+ */
+public final class MicrometerLockMetrics implements LockMetrics {
+
+    static final int MAX_CACHED_KEYS = 10_000;
+
+    // a registry keeps reading the state of the first gauge registered under a name and tags, so all
+    // instances recording to the registry share that state
+    private static final Map<MeterRegistry, ConcurrentMap<String, AtomicLong>> GAUGE_STATES =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final MeterRegistry registry;
+    private final Function<String, String> keyPrefix;
+    private final boolean firstSegmentPrefix;
+    private final ConcurrentMap<String, PrefixMeters> metersByPrefix = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PrefixMeters> metersByKey = new ConcurrentHashMap<>();
+    // the values of metersByPrefix, scanned for keys that are not cached without allocating an iterator
+    private volatile PrefixMeters[] prefixes = new PrefixMeters[0];
+
+    /**
+     * Constructs a new instance tagging meters with the first path segment of the lock key, e.g.
+     * {@code /orders} for {@code /orders/42}.
+     *
+     * @param registry the registry to register the meters with
+     */
+    public MicrometerLockMetrics(MeterRegistry registry) {
+        this(registry, KeyPrefixes::firstSegment, true);
+    }
+
+    /**
+     * Constructs a new instance tagging meters with the prefix returned by {@code keyPrefix}.
+     *
+     * @param registry  the registry to register the meters with
+     * @param keyPrefix the function returning the prefix of a lock key
+     */
+    public MicrometerLockMetrics(MeterRegistry registry, Function<String, String> keyPrefix) {
+        this(registry, keyPrefix, false);
+    }
+
+    private MicrometerLockMetrics(MeterRegistry registry, Function<String, String> keyPrefix, boolean firstSegmentPrefix) {
+        this.registry = registry;
+        this.keyPrefix = keyPrefix;
+        this.firstSegmentPrefix = firstSegmentPrefix;
+    }
+
+    @Override
+    public void acquireStarted(String key) {
+        meters(key).waiting.incrementAndGet();
+    }
+
+    @Override
+    public void acquired(String key, long waitNanos) {
+        PrefixMeters meters = meters(key);
+        meters.waiting.decrementAndGet();
+        meters.held.incrementAndGet();
+        meters.wait.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void acquireTimedOut(String key, long waitNanos) {
+        PrefixMeters meters = meters(key);
+        meters.waiting.decrementAndGet();
+        meters.timeouts.increment();
+    }
+
+    @Override
+    public void acquireFailed(String key, long waitNanos) {
+        PrefixMeters meters = meters(key);
+        meters.waiting.decrementAndGet();
+        meters.failures.increment();
+    }
+
+    @Override
+    public void released(String key, long holdNanos) {
+        PrefixMeters meters = meters(key);
+        meters.held.decrementAndGet();
+        meters.hold.record(holdNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void lost(String key, long holdNanos) {
+        PrefixMeters meters = meters(key);
+        meters.held.decrementAndGet();
+        meters.hold.record(holdNanos, TimeUnit.NANOSECONDS);
+        meters.lost.increment();
+    }
+
+    private PrefixMeters meters(String key) {
+        PrefixMeters meters = metersByKey.get(key);
+        if (meters != null) {
+            return meters;
+        }
+        if (metersByKey.size() >= MAX_CACHED_KEYS && firstSegmentPrefix) {
+            for (PrefixMeters known : prefixes) {
+                if (KeyPrefixes.hasFirstSegment(key, known.prefix)) {
+                    return known;
+                }
+            }
+        }
+        meters = metersByPrefix.computeIfAbsent(keyPrefix.apply(key), this::newPrefixMeters);
+        if (metersByKey.size() < MAX_CACHED_KEYS) {
+            metersByKey.putIfAbsent(key, meters);
+        }
+        return meters;
+    }
+
+    private PrefixMeters newPrefixMeters(String prefix) {
+        PrefixMeters meters = new PrefixMeters(prefix);
+        synchronized (this) {
+            PrefixMeters[] extended = Arrays.copyOf(prefixes, prefixes.length + 1);
+            extended[prefixes.length] = meters;
+            prefixes = extended;
+        }
+        return meters;
+    }
+
+    private AtomicLong gauge(String name, String description, String prefix) {
+        ConcurrentMap<String, AtomicLong> states = GAUGE_STATES.computeIfAbsent(registry, r -> new ConcurrentHashMap<>());
+        return states.computeIfAbsent(name + ' ' + prefix, id -> {
+            AtomicLong state = new AtomicLong();
+            Gauge.builder(name, state, AtomicLong::get)
+                .description(description)
+                .tag("prefix", prefix)
+                .register(registry);
+            return state;
+        });
+    }
+
+    private final class PrefixMeters {
+
+        final String prefix;
+        final Timer wait;
+        final Timer hold;
+        final Counter timeouts;
+        final Counter failures;
+        final Counter lost;
+        // gauges only hold weak references to their state, which is kept by GAUGE_STATES
+        final AtomicLong waiting;
+        final AtomicLong held;
+
+        PrefixMeters(String prefix) {
+            this.prefix = prefix;
+            Tags tags = Tags.of("prefix", prefix);
+            wait = Timer.builder("zookeeper.lock.wait")
+                .description("Time spent waiting for acquired locks")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+            hold = Timer.builder("zookeeper.lock.hold")
+                .description("Time locks were held until released or lost")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry);
+            timeouts = Counter.builder("zookeeper.lock.timeouts")
+                .description("Lock acquisitions that timed out")
+                .tags(tags)
+                .register(registry);
+            failures = Counter.builder("zookeeper.lock.failures")
+                .description("Lock acquisitions that failed for other reasons than a timeout")
+                .tags(tags)
+                .register(registry);
+            lost = Counter.builder("zookeeper.lock.lost")
+                .description("Locks considered lost")
+                .tags(tags)
+                .register(registry);
+            waiting = gauge("zookeeper.lock.waiting", "Lock acquisitions currently waiting", prefix);
+            held = gauge("zookeeper.lock.held", "Locks currently held", prefix);
+        }
+    }
+}
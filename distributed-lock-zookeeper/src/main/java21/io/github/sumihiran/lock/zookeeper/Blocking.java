@@ -0,0 +1,331 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Performs the blocking calls of the acquire and release path without pinning virtual threads.
+ *
+ * <p>Curator's lock recipes and Zookeeper's synchronous API wait on object monitors, which pins the carrier
+ * thread of a virtual thread on JDK 21. {@link ZookeeperDistributedLock} therefore hands virtual threads an
+ * {@link AsyncLock} wherever it can, such as a {@link SequentialNodeLock} instead of the default lock or the
+ * locks of a read/write lock, which is called directly and parks the virtual thread on a future.</p>
+ *
+ * <p>Any other lock acquired from a virtual thread, such as those of a custom lock function, is acquired by a
+ * platform thread of its own, so that waiters on one key never queue behind waiters on another, while the
+ * virtual thread parks until the caller's deadline. An {@link InterProcessMutex} can only be released by the
+ * thread that acquired it, so its platform thread also holds it and waits for the release. Releases run on a
+ * separate, bounded pool, so that a release never queues behind acquisitions waiting for the very lock it
+ * releases. Releases of a {@link NodeBackedLock} are called directly.</p>
+ */
+final class Blocking {
+
+    private static final int RELEASE_THREADS = 256;
+
+    // the owner threads of mutexes acquired on behalf of virtual threads
+    private static final ConcurrentHashMap<InterProcessLock, MutexOwner> OWNERS = new ConcurrentHashMap<>();
+
+    private Blocking() {
+    }
+
+    /**
+     * Acquires the {@code lock} on behalf of the calling thread.
+     *
+     * @param lock the lock to acquire
+     * @param time the maximum time to wait for the lock
+     * @param unit the time unit of the {@code time} argument
+     * @return true if the lock was acquired, false otherwise
+     * @throws Exception if the lock could not be acquired due to an error
+     */
+    static boolean acquire(InterProcessLock lock, long time, TimeUnit unit) throws Exception {
+        if (!mayPinOnAcquire(lock)) {
+            return lock.acquire(time, unit);
+        }
+        long timeoutNanos = unit.toNanos(time);
+        long startNanos = System.nanoTime();
+        if (lock instanceof InterProcessMutex) {
+            return acquireOwned(lock, timeoutNanos, startNanos);
+        }
+
+        CompletableFuture<Boolean> acquisition = new CompletableFuture<>();
+        Future<?> task = PlatformThreads.ACQUIRE.submit(() -> acquireFor(acquisition, lock, timeoutNanos, startNanos));
+        try {
+            return awaitWithin(acquisition, timeoutNanos, startNanos);
+        } catch (InterruptedException e) {
+            if (!giveUp(acquisition, task) && isTrue(acquisition)) {
+                release(lock);
+            }
+            throw e;
+        } catch (TimeoutException e) {
+            // the lock ignored its timeout, so give up on it unless it has been acquired just before
+            return !giveUp(acquisition, task) && isTrue(acquisition);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Checks if the calling thread is a virtual thread.
+     *
+     * @return true if the calling thread is a virtual thread, false otherwise
+     */
+    static boolean isVirtualThread() {
+        return Thread.currentThread().isVirtual();
+    }
+
+    /**
+     * Releases the {@code lock} on behalf of the calling thread.
+     *
+     * @param lock the lock to release
+     * @throws Exception if the lock could not be released
+     */
+    static void release(InterProcessLock lock) throws Exception {
+        MutexOwner owner = lock instanceof InterProcessMutex ? OWNERS.remove(lock) : null;
+        if (owner != null) {
+            owner.releaseRequested.complete(null);
+            awaitRelease(owner.released);
+            return;
+        }
+        if (!mayPinOnRelease(lock)) {
+            lock.release();
+            return;
+        }
+
+        awaitRelease(PlatformThreads.RELEASE.submit(() -> {
+            lock.release();
+            return null;
+        }));
+    }
+
+    private static boolean acquireWithin(InterProcessLock lock, long timeoutNanos, long startNanos) throws Exception {
+        if (timeoutNanos == Long.MAX_VALUE) {
+            return lock.acquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        long remainingNanos = timeoutNanos - (System.nanoTime() - startNanos);
+        return remainingNanos > 0 && lock.acquire(remainingNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Acquires the {@code lock} on a platform thread on behalf of a virtual thread, and releases it again if
+     * the virtual thread has given up on it meanwhile.
+     */
+    private static void acquireFor(CompletableFuture<Boolean> acquisition, InterProcessLock lock, long timeoutNanos,
+                                   long startNanos) {
+        try {
+            boolean acquired = acquireWithin(lock, timeoutNanos, startNanos);
+            if (!acquisition.complete(acquired) && acquired) {
+                lock.release();
+            }
+        } catch (Exception e) {
+            acquisition.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Gives up on an acquisition, interrupting its platform thread.
+     *
+     * @return true if the acquisition has been given up, false if it has completed before
+     */
+    private static boolean giveUp(CompletableFuture<Boolean> acquisition, Future<?> task) {
+        if (!acquisition.complete(false)) {
+            return false;
+        }
+        task.cancel(true);
+        return true;
+    }
+
+    private static <T> T awaitWithin(Future<T> future, long timeoutNanos, long startNanos)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        if (timeoutNanos == Long.MAX_VALUE) {
+            return future.get();
+        }
+        return future.get(timeoutNanos - (System.nanoTime() - startNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Acquires a thread-bound lock on an owner thread, which holds it until it is released.
+     */
+    private static boolean acquireOwned(InterProcessLock lock, long timeoutNanos, long startNanos) throws Exception {
+        MutexOwner owner = new MutexOwner();
+        PlatformThreads.ACQUIRE.execute(() -> owner.run(lock, timeoutNanos, startNanos));
+
+        try {
+            return awaitWithin(owner.acquired, timeoutNanos, startNanos);
+        } catch (InterruptedException e) {
+            if (!owner.abandon() && ownerAcquired(owner)) {
+                release(lock);
+            }
+            throw e;
+        } catch (TimeoutException e) {
+            return !owner.abandon() && ownerAcquired(owner);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Waits for an interrupted owner thread to give up, which it does unless it has acquired the lock just
+     * before.
+     */
+    private static boolean ownerAcquired(MutexOwner owner) {
+        return owner.acquired.handle((acquired, error) -> Boolean.TRUE.equals(acquired)).join();
+    }
+
+    private static void awaitRelease(Future<?> release) throws Exception {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    release.get();
+                    return;
+                } catch (InterruptedException e) {
+                    // a release cannot be abandoned halfway, so wait for it and restore the interrupt
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw unwrap(e);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static boolean mayPinOnAcquire(InterProcessLock lock) {
+        return Thread.currentThread().isVirtual() && !(lock instanceof AsyncLock);
+    }
+
+    private static boolean mayPinOnRelease(InterProcessLock lock) {
+        return Thread.currentThread().isVirtual() && !(lock instanceof NodeBackedLock);
+    }
+
+    private static boolean isTrue(Future<Boolean> future) {
+        try {
+            return future.isDone() && !future.isCancelled() && future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return false;
+        }
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof Exception exception ? exception : e;
+    }
+
+    /**
+     * The platform thread that acquires, holds and releases a thread-bound lock.
+     */
+    private static final class MutexOwner {
+
+        final CompletableFuture<Boolean> acquired = new CompletableFuture<>();
+        final CompletableFuture<Void> releaseRequested = new CompletableFuture<>();
+        final CompletableFuture<Void> released = new CompletableFuture<>();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final ReentrantLock threadLock = new ReentrantLock();
+        private Thread thread;
+
+        /**
+         * Abandons the acquisition of the lock, and interrupts the owner thread if it is already acquiring it.
+         *
+         * @return true if the owner thread has not started acquiring the lock, false otherwise
+         */
+        boolean abandon() {
+            if (started.compareAndSet(false, true)) {
+                return true;
+            }
+            threadLock.lock();
+            try {
+                if (thread != null) {
+                    thread.interrupt();
+                }
+            } finally {
+                threadLock.unlock();
+            }
+            return false;
+        }
+
+        void run(InterProcessLock lock, long timeoutNanos, long startNanos) {
+            threadLock.lock();
+            try {
+                thread = Thread.currentThread();
+            } finally {
+                threadLock.unlock();
+            }
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                hold(lock, timeoutNanos, startNanos);
+            } finally {
+                threadLock.lock();
+                try {
+                    // an abandoning interrupt must not leak into the next task of the pooled thread
+                    thread = null;
+                    Thread.interrupted();
+                } finally {
+                    threadLock.unlock();
+                }
+            }
+        }
+
+        private void hold(InterProcessLock lock, long timeoutNanos, long startNanos) {
+            try {
+                if (!acquireWithin(lock, timeoutNanos, startNanos)) {
+                    acquired.complete(false);
+                    return;
+                }
+            } catch (Exception e) {
+                acquired.completeExceptionally(e);
+                return;
+            }
+            OWNERS.put(lock, this);
+            acquired.complete(true);
+
+            // not interruptible, so that the lock is only ever released on request
+            releaseRequested.join();
+            // an abandoning interrupt that came after the lock was acquired must not fail its release
+            Thread.interrupted();
+            try {
+                lock.release();
+                released.complete(null);
+            } catch (Exception e) {
+                released.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Lazily started pools of daemon platform threads for calls that would pin a virtual thread.
+     */
+    private static final class PlatformThreads {
+
+        // one thread per lock waited for, or held if it cannot change its owner thread, so that no
+        // acquisition waits for a thread and all can time out
+        static final ExecutorService ACQUIRE = Executors.newCachedThreadPool(
+            Thread.ofPlatform().name("zookeeper-distributed-lock-acquire-", 0).daemon().factory());
+
+        static final ThreadPoolExecutor RELEASE = newReleasePool();
+
+        private static ThreadPoolExecutor newReleasePool() {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                RELEASE_THREADS, RELEASE_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name("zookeeper-distributed-lock-release-", 0).daemon().factory());
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.sumihiran.lock.zookeeper.metrics;
+
+import jdk.jfr.EventType;
+
+/**
+ * Commits the Flight Recorder events of {@link JfrLockMetrics}.
+ *
+ * <p>This is the JDK 21 variant of the baseline implementation. Events are only created while they are
+ * enabled in a running recording.</p>
+ */
+final class JfrEvents {
+
+    private final EventType acquireEventType = EventType.getEventType(LockAcquireEvent.class);
+    private final EventType releaseEventType = EventType.getEventType(LockReleaseEvent.class);
+
+    static boolean isSupported() {
+        return true;
+    }
+
+    void commitAcquire(String key, String outcome, long waitNanos) {
+        if (!acquireEventType.isEnabled()) {
+            return;
+        }
+        LockAcquireEvent event = new LockAcquireEvent();
+        event.key = key;
+        event.outcome = outcome;
+        event.waitTime = waitNanos;
+        event.commit();
+    }
+
+    void commitRelease(String key, boolean lost, long holdNanos) {
+        if (!releaseEventType.isEnabled()) {
+            return;
+        }
+        LockReleaseEvent event = new LockReleaseEvent();
+        event.key = key;
+        event.lost = lost;
+        event.holdTime = holdNanos;
+        event.commit();
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.sumihiran.lock.zookeeper.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event for a completed lock acquisition attempt.
+ *
+ * @author Nuwan Bandara
+ */
+@Name(LockAcquireEvent.NAME)
+@Label("Lock Acquire")
+@Category({"Zookeeper", "Lock"})
+@Description("A distributed lock acquisition attempt, recorded once it completed")
+@StackTrace(false)
+final class LockAcquireEvent extends Event {
+
+    static final String NAME = "io.github.sumihiran.lock.zookeeper.LockAcquire";
+
+    @Label("Key")
+    String key;
+
+    @Label("Outcome")
+    @Description("One of acquired, timeout or failure")
+    String outcome;
+
+    @Label("Wait Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitTime;
+}
@@ -0,0 +1,34 @@
+package io.github.sumihiran.lock.zookeeper.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event for a lock that has been released or lost.
+ *
+ * @author Nuwan Bandara
+ */
+@Name(LockReleaseEvent.NAME)
+@Label("Lock Release")
+@Category({"Zookeeper", "Lock"})
+@Description("A distributed lock released by its holder or considered lost")
+@StackTrace(false)
+final class LockReleaseEvent extends Event {
+
+    static final String NAME = "io.github.sumihiran.lock.zookeeper.LockRelease";
+
+    @Label("Key")
+    String key;
+
+    @Label("Lost")
+    boolean lost;
+
+    @Label("Hold Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long holdTime;
+}
@@ -5,7 +5,22 @@ import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.retry.RetryOneTime;
 import org.junit.jupiter.api.Test;
 
+import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockAcquisitionException;
+
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -35,4 +50,631 @@ class ZookeeperDistributedLockIT extends AbstractZookeeperIntegrationTest {
         // Assert
         assertFalse(acquisition.isAcquired());
     }
+
+    @Test
+    void shouldAcquireAndReleaseLockAsynchronously() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+
+        // Act
+        Acquisition acquisition = distributedLock.acquireAsync("/test-async-lock", Duration.ofSeconds(5))
+            .get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(acquisition.isAcquired());
+        assertEquals(1, client.getChildren().forPath("/test-async-lock/locks").size());
+
+        // Act: release lock
+        acquisition.release();
+
+        // Assert
+        assertFalse(acquisition.isAcquired());
+        assertTrue(client.getChildren().forPath("/test-async-lock/locks").isEmpty());
+    }
+
+    @Test
+    void shouldCompleteWaitingAcquisitionWhenHolderReleases() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        Acquisition holder = distributedLock.acquireAsync("/test-async-handoff", Duration.ofSeconds(5))
+            .get(5, TimeUnit.SECONDS);
+
+        // Act
+        CompletableFuture<Acquisition> waiter = distributedLock.acquireAsync("/test-async-handoff", Duration.ofSeconds(10));
+        Thread.sleep(500);
+
+        // Assert
+        assertFalse(waiter.isDone());
+
+        // Act: release the holder
+        holder.release();
+
+        // Assert
+        Acquisition acquisition = waiter.get(5, TimeUnit.SECONDS);
+        assertTrue(acquisition.isAcquired());
+        acquisition.release();
+    }
+
+    @Test
+    void shouldFailAsynchronousAcquisitionOnTimeout() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        final Acquisition holder = distributedLock.acquireAsync("/test-async-timeout", Duration.ofSeconds(5))
+            .get(5, TimeUnit.SECONDS);
+
+        // Act
+        CompletableFuture<Acquisition> waiter = distributedLock.acquireAsync("/test-async-timeout", Duration.ofMillis(200));
+
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ZookeeperLockAcquisitionException.class, exception.getCause());
+        Thread.sleep(500);
+        assertEquals(1, client.getChildren().forPath("/test-async-timeout/locks").size());
+
+        // Cleanup
+        holder.release();
+    }
+
+    @Test
+    void shouldDeleteLockNodeWhenAsynchronousAcquisitionCancelled() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        final Acquisition holder = distributedLock.acquireAsync("/test-async-cancel", Duration.ofSeconds(5))
+            .get(5, TimeUnit.SECONDS);
+        CompletableFuture<Acquisition> waiter = distributedLock.acquireAsync("/test-async-cancel", Duration.ofSeconds(30));
+        Thread.sleep(500);
+        assertEquals(2, client.getChildren().forPath("/test-async-cancel/locks").size());
+
+        // Act
+        waiter.cancel(false);
+        Thread.sleep(500);
+
+        // Assert
+        assertEquals(1, client.getChildren().forPath("/test-async-cancel/locks").size());
+
+        // Cleanup
+        holder.release();
+    }
+
+    @Test
+    void shouldExcludeDefaultLockAndLocksOnSequentialNodesOfSameKey() throws Exception {
+        // Arrange
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(newStartedClient());
+        final Acquisition holder = distributedLock.acquire("/test-mixed", Duration.ofSeconds(5));
+
+        // Act & Assert
+        ExecutionException exception = assertThrows(ExecutionException.class,
+            () -> distributedLock.acquireAsync("/test-mixed", Duration.ofMillis(200)).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ZookeeperLockAcquisitionException.class, exception.getCause());
+        assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> distributedLock.acquireAll(Collections.singletonList("/test-mixed"), Duration.ofMillis(200)));
+        assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> distributedLock.acquire("/test-mixed", LockPriority.HIGH, Duration.ofMillis(200)));
+
+        // Act: hand the lock over to an asynchronous acquisition
+        CompletableFuture<Acquisition> waiter = distributedLock.acquireAsync("/test-mixed", Duration.ofSeconds(5));
+        Thread.sleep(200);
+        assertFalse(waiter.isDone());
+        holder.release();
+        Acquisition acquisition = waiter.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(acquisition.isAcquired());
+        assertFalse(distributedLock.tryAcquire("/test-mixed", Duration.ofMillis(200)).isPresent());
+        acquisition.release();
+        Optional<Acquisition> released = distributedLock.tryAcquire("/test-mixed", Duration.ofSeconds(5));
+        assertTrue(released.isPresent());
+        released.get().release();
+    }
+
+    @Test
+    void shouldReturnEmptyWhenTryAcquireFindsLockHeld() throws Exception {
+        // Arrange
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(newStartedClient());
+        Acquisition holder = distributedLock.acquire("/test-try-lock", Duration.ofSeconds(5));
+
+        // Act
+        Optional<Acquisition> contended = distributedLock.tryAcquire("/test-try-lock", Duration.ofMillis(100));
+
+        // Assert
+        assertFalse(contended.isPresent());
+
+        // Act: holder releases
+        holder.release();
+        Optional<Acquisition> acquisition = distributedLock.tryAcquire("/test-try-lock", Duration.ofSeconds(5));
+
+        // Assert
+        assertTrue(acquisition.isPresent());
+        acquisition.get().release();
+    }
+
+    @Test
+    void shouldAcquireAndReleaseAllLocksInBatch() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+
+        // Act
+        Acquisition acquisition = distributedLock.acquireAll(
+            Arrays.asList("/test-batch/account-b", "/test-batch/account-a"), Duration.ofSeconds(5));
+
+        // Assert
+        assertTrue(acquisition.isAcquired());
+        assertEquals(1, client.getChildren().forPath("/test-batch/account-a/locks").size());
+        assertEquals(1, client.getChildren().forPath("/test-batch/account-b/locks").size());
+
+        // Act: release locks
+        acquisition.release();
+
+        // Assert
+        assertFalse(acquisition.isAcquired());
+        assertTrue(client.getChildren().forPath("/test-batch/account-a/locks").isEmpty());
+        assertTrue(client.getChildren().forPath("/test-batch/account-b/locks").isEmpty());
+    }
+
+    @Test
+    void shouldNotHoldAnyLockWhenBatchAcquisitionTimesOut() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        final Acquisition holder = distributedLock.acquireAsync("/test-batch-timeout/account-b", Duration.ofSeconds(5))
+            .get(5, TimeUnit.SECONDS);
+
+        // Act & Assert
+        assertThrows(ZookeeperLockAcquisitionException.class, () -> distributedLock.acquireAll(
+            Arrays.asList("/test-batch-timeout/account-a", "/test-batch-timeout/account-b"), Duration.ofMillis(200)));
+        Thread.sleep(500);
+        assertTrue(client.getChildren().forPath("/test-batch-timeout/account-a/locks").isEmpty());
+        assertEquals(1, client.getChildren().forPath("/test-batch-timeout/account-b/locks").size());
+
+        // Cleanup
+        holder.release();
+    }
+
+    @Test
+    void shouldNotDeadlockWhenKeysAreRequestedInDifferentOrder() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        List<String> forward = Arrays.asList("/test-batch-order/account-a", "/test-batch-order/account-b");
+        List<String> backward = Arrays.asList("/test-batch-order/account-b", "/test-batch-order/account-a");
+
+        // Act
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            List<String> keys = i % 2 == 0 ? forward : backward;
+            workers.add(CompletableFuture.runAsync(() -> {
+                for (int j = 0; j < 10; j++) {
+                    try (Acquisition ignored = distributedLock.acquireAll(keys, Duration.ofSeconds(10))) {
+                        assertTrue(ignored.isAcquired());
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }));
+        }
+
+        // Assert
+        assertDoesNotThrow(() -> CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0]))
+            .get(30, TimeUnit.SECONDS));
+        assertTrue(client.getChildren().forPath("/test-batch-order/account-a/locks").isEmpty());
+    }
+
+    @Test
+    void shouldReleaseAsynchronouslyInBatches() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        List<Acquisition> acquisitions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            acquisitions.add(distributedLock.acquireAsync("/test-release-batch/key-" + i, Duration.ofSeconds(5))
+                .get(5, TimeUnit.SECONDS));
+        }
+
+        // Act
+        List<CompletableFuture<Void>> releases = new ArrayList<>();
+        for (Acquisition acquisition : acquisitions) {
+            releases.add(acquisition.releaseAsync());
+            assertFalse(acquisition.isAcquired());
+        }
+
+        // Assert
+        CompletableFuture.allOf(releases.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 300; i++) {
+            assertTrue(client.getChildren().forPath("/test-release-batch/key-" + i + "/locks").isEmpty());
+        }
+    }
+
+    @Test
+    void shouldShareReadLockBetweenReaders() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+
+        // Act
+        Acquisition first = distributedLock.acquireRead("/test-read-write/shared", Duration.ofSeconds(5));
+        Acquisition second = CompletableFuture.supplyAsync(
+            () -> acquireQuietly(() -> distributedLock.acquireRead("/test-read-write/shared", Duration.ofSeconds(5))))
+            .get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(first.isAcquired());
+        assertTrue(second.isAcquired());
+        assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> distributedLock.acquireWrite("/test-read-write/shared", Duration.ofMillis(200)));
+
+        // Cleanup
+        first.release();
+    }
+
+    @Test
+    void shouldExcludeReadersWhileWriteLockIsHeld() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        Acquisition writer = distributedLock.acquireWrite("/test-read-write/exclusive", Duration.ofSeconds(5));
+
+        // Act & Assert
+        assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> distributedLock.acquireRead("/test-read-write/exclusive", Duration.ofMillis(200)));
+
+        // Act: release writer
+        writer.release();
+
+        // Assert
+        Acquisition reader = distributedLock.acquireRead("/test-read-write/exclusive", Duration.ofSeconds(5));
+        assertTrue(reader.isAcquired());
+        reader.release();
+    }
+
+    @Test
+    void shouldShareAndExcludeReadWriteLocksOnSequentialNodesWithCuratorReadWriteLocks() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        String path = "/test-read-write/sequential";
+        Acquisition writer = distributedLock.acquireWrite(path, Duration.ofSeconds(5));
+
+        // Act & Assert
+        assertFalse(SequentialNodeLock.readLock(client, path, scheduler).acquire(200, TimeUnit.MILLISECONDS));
+
+        // Act: release the writer
+        writer.release();
+        SequentialNodeLock reader = SequentialNodeLock.readLock(client, path, scheduler);
+
+        // Assert
+        assertTrue(reader.acquire(5, TimeUnit.SECONDS));
+        final Acquisition curatorReader = distributedLock.acquireRead(path, Duration.ofSeconds(5));
+        assertFalse(SequentialNodeLock.writeLock(client, path, scheduler).acquire(200, TimeUnit.MILLISECONDS));
+        assertThrows(ZookeeperLockAcquisitionException.class, () -> distributedLock.acquireWrite(path, Duration.ofMillis(200)));
+
+        // Act: release both readers
+        reader.release();
+        curatorReader.release();
+        SequentialNodeLock sequentialWriter = SequentialNodeLock.writeLock(client, path, scheduler);
+
+        // Assert
+        assertTrue(sequentialWriter.acquire(5, TimeUnit.SECONDS));
+        assertThrows(ZookeeperLockAcquisitionException.class, () -> distributedLock.acquireRead(path, Duration.ofMillis(200)));
+        sequentialWriter.release();
+        distributedLock.acquireRead(path, Duration.ofSeconds(5)).release();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void shouldHandOutPermitsUpToPermitLimit() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = ZookeeperDistributedLock.builder(client)
+            .permitLimit(3)
+            .build();
+
+        // Act
+        Acquisition first = distributedLock.acquirePermits("/test-permits", 2, Duration.ofSeconds(5));
+        Acquisition second = distributedLock.acquirePermits("/test-permits", 1, Duration.ofSeconds(5));
+
+        // Assert
+        assertTrue(first.isAcquired());
+        assertTrue(second.isAcquired());
+        assertEquals(3, client.getChildren().forPath("/test-permits/leases").size());
+        assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> distributedLock.acquirePermits("/test-permits", 1, Duration.ofMillis(200)));
+
+        // Act: return permits
+        first.release();
+        second.releaseAsync().get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(client.getChildren().forPath("/test-permits/leases").isEmpty());
+        Acquisition all = distributedLock.acquirePermits("/test-permits", 3, Duration.ofSeconds(5));
+        assertTrue(all.isAcquired());
+        all.release();
+    }
+
+    @Test
+    void shouldCreateLockNodesBelowHashBuckets() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        LockPathStrategy lockPaths = LockPathStrategy.hashBuckets(1);
+        ZookeeperDistributedLock distributedLock = ZookeeperDistributedLock.builder(client)
+            .lockPaths(lockPaths)
+            .build();
+        String lockPath = lockPaths.lockPath("/test-sharded/order/42");
+        String bucket = lockPath.substring(0, lockPath.lastIndexOf('/'));
+
+        // Act
+        final Acquisition holder = distributedLock.acquire("/test-sharded/order/42", Duration.ofSeconds(5));
+        final Acquisition asyncHolder = distributedLock.acquireAsync("/test-sharded/order/43", Duration.ofSeconds(5))
+            .get(5, TimeUnit.SECONDS);
+        Optional<Acquisition> contended =
+            distributedLock.tryAcquire("/test-sharded/order/42", Duration.ofMillis(100));
+
+        // Assert
+        assertFalse(contended.isPresent());
+        assertTrue(client.getChildren().forPath(bucket).contains("42"));
+        assertFalse(client.getChildren().forPath(lockPath).isEmpty());
+        assertNull(client.checkExists().forPath("/test-sharded/order/42"));
+
+        holder.release();
+        asyncHolder.release();
+    }
+
+    @Test
+    void shouldReacquireHeldLockWhenReentrant() throws Exception {
+        // Arrange
+        ZookeeperDistributedLock reentrantLock = ZookeeperDistributedLock.builder(newStartedClient())
+            .reentrant(true)
+            .build();
+        ZookeeperDistributedLock otherLock = new ZookeeperDistributedLock(newStartedClient());
+        Acquisition outer = reentrantLock.acquire("/test-reentrant", Duration.ofSeconds(5));
+
+        // Act
+        Acquisition nested = reentrantLock.acquire("/test-reentrant", Duration.ZERO);
+        nested.release();
+
+        // Assert
+        assertTrue(outer.isAcquired());
+        assertFalse(otherLock.tryAcquire("/test-reentrant", Duration.ofMillis(100)).isPresent());
+
+        // Act: release outer lock
+        outer.release();
+
+        // Assert
+        Optional<Acquisition> acquisition = otherLock.tryAcquire("/test-reentrant", Duration.ofSeconds(5));
+        assertTrue(acquisition.isPresent());
+        acquisition.get().release();
+    }
+
+    @Test
+    void shouldHandFairLockOverToWaitersInArrivalOrder() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        FairLockFactory fairLocks = new FairLockFactory(client);
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client, fairLocks);
+        Acquisition holder = distributedLock.acquire("/test-fair", Duration.ofSeconds(5));
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Acquisition>> waiters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String name = "waiter-" + i;
+            waiters.add(CompletableFuture.supplyAsync(() -> {
+                Acquisition acquisition = acquireQuietly(() -> distributedLock.acquire("/test-fair", Duration.ofSeconds(10)));
+                order.add(name);
+                return acquisition;
+            }));
+            // wait for the lock node of the waiter, so that waiters queue up in a known order
+            while (client.getChildren().forPath("/test-fair/locks").size() < i + 2) {
+                Thread.sleep(10);
+            }
+        }
+
+        // Act
+        holder.release();
+        for (CompletableFuture<Acquisition> waiter : waiters) {
+            waiter.get(5, TimeUnit.SECONDS).release();
+        }
+
+        // Assert
+        assertEquals(Arrays.asList("waiter-0", "waiter-1", "waiter-2"), order);
+        fairLocks.close();
+    }
+
+    @Test
+    void shouldIssueIncreasingFencingTokens() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client, new FairLockFactory(client));
+
+        // Act
+        Acquisition first = distributedLock.acquireAsync("/test-fenced", Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+        first.release();
+        Acquisition second = distributedLock.acquire("/test-fenced", Duration.ofSeconds(5));
+        second.release();
+        Acquisition third = distributedLock.acquireAll(Arrays.asList("/test-fenced", "/test-fenced-other"), Duration.ofSeconds(5));
+        third.release();
+
+        // Assert
+        assertTrue(first.fencingToken().isPresent());
+        assertTrue(second.fencingToken().getAsLong() > first.fencingToken().getAsLong());
+        assertTrue(third.fencingToken().getAsLong() > second.fencingToken().getAsLong());
+    }
+
+    @Test
+    void shouldInspectHeldLocksAndWaiters() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        final ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        LockInspector inspector = new LockInspector(client, "/test-inspected");
+        List<String> changed = Collections.synchronizedList(new ArrayList<>());
+        inspector.addListener(changed::add);
+        inspector.start();
+        assertTrue(inspector.awaitInitialized(Duration.ofSeconds(5)));
+
+        // Act
+        Acquisition holder = distributedLock.acquireAsync("/test-inspected/job/1", Duration.ofSeconds(5))
+            .get(5, TimeUnit.SECONDS);
+        final CompletableFuture<Acquisition> waiter = distributedLock.acquireAsync("/test-inspected/job/1", Duration.ofSeconds(5));
+        final Acquisition other = distributedLock.acquireAsync("/test-inspected/job/2", Duration.ofSeconds(5))
+            .get(5, TimeUnit.SECONDS);
+        await(() -> inspector.queueLength("/test-inspected/job/1") == 1 && inspector.isLocked("/test-inspected/job/2"));
+
+        // Assert
+        assertTrue(inspector.isLocked("/test-inspected/job/1"));
+        assertEquals(holder.fencingToken().getAsLong(), inspector.holder("/test-inspected/job/1").get().fencingToken());
+        assertEquals(client.getZookeeperClient().getZooKeeper().getSessionId(),
+            inspector.holder("/test-inspected/job/1").get().sessionId().getAsLong());
+        assertEquals(Arrays.asList("/test-inspected/job/1", "/test-inspected/job/2"), inspector.listHeld("/test-inspected"));
+
+        // Act: hand the lock over to the waiter
+        holder.release();
+        waiter.get(5, TimeUnit.SECONDS).release();
+        other.release();
+        await(() -> inspector.listHeld("/test-inspected").isEmpty());
+
+        // Assert
+        assertFalse(inspector.isLocked("/test-inspected/job/1"));
+        assertTrue(changed.contains("/test-inspected/job/1"));
+        assertTrue(changed.contains("/test-inspected/job/2"));
+        inspector.close();
+    }
+
+    @Test
+    void shouldBootstrapLockPathsOfKeys() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        LockPathStrategy lockPaths = LockPathStrategy.hashBuckets(1);
+        ZookeeperDistributedLock distributedLock = ZookeeperDistributedLock.builder(client)
+            .lockPaths(lockPaths)
+            .build();
+        List<String> keys = new ArrayList<>();
+        for (int shard = 0; shard < 1000; shard++) {
+            keys.add("/test-bootstrap/shard/" + shard);
+        }
+        client.create().creatingParentsIfNeeded().forPath(lockPaths.lockPath(keys.get(0)));
+
+        // Act
+        int created = distributedLock.bootstrap(keys, Duration.ofSeconds(10));
+
+        // Assert
+        int buckets = client.getChildren().forPath("/test-bootstrap/shard").size();
+        assertEquals(buckets - 1 + keys.size() - 1 + 2 * keys.size(), created);
+        for (String key : keys) {
+            assertNotNull(client.checkExists().forPath(lockPaths.lockPath(key)));
+            assertNotNull(client.checkExists().forPath(lockPaths.lockPath(key) + "/locks"));
+        }
+        assertEquals(0, distributedLock.bootstrap(keys, Duration.ofSeconds(10)));
+        Acquisition acquisition = distributedLock.acquireAsync(keys.get(42), Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+        assertTrue(acquisition.isAcquired());
+        acquisition.release();
+    }
+
+    @Test
+    void shouldBootstrapLockNodeParentsOfDefaultLock() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        List<String> keys = Arrays.asList("/test-bootstrap-default/shard/1", "/test-bootstrap-default/shard/2");
+
+        // Act
+        int created = distributedLock.bootstrap(keys, Duration.ofSeconds(10));
+
+        // Assert
+        assertEquals(2 + 3 * keys.size(), created);
+        for (String key : keys) {
+            assertNotNull(client.checkExists().forPath(key + "/locks"));
+            assertNotNull(client.checkExists().forPath(key + "/leases"));
+        }
+        try (Acquisition acquisition = distributedLock.acquire(keys.get(0), Duration.ofSeconds(5))) {
+            assertTrue(acquisition.isAcquired());
+        }
+    }
+
+    @Test
+    void shouldHandLockToHighPriorityWaiterFirst() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        Acquisition holder = distributedLock.acquireAsync("/test-priority", Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+        final CompletableFuture<Acquisition> low = distributedLock.acquireAsync("/test-priority", LockPriority.LOW, Duration.ofSeconds(5));
+        await(() -> childrenOf(client, "/test-priority/locks").size() == 2);
+        final CompletableFuture<Acquisition> high =
+            distributedLock.acquireAsync("/test-priority", LockPriority.HIGH, Duration.ofSeconds(5));
+        await(() -> childrenOf(client, "/test-priority/locks").size() == 3);
+
+        // Act
+        holder.release();
+        Acquisition first = high.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(first.isAcquired());
+        assertFalse(low.isDone());
+        assertTrue(childrenOf(client, "/test-priority/locks").stream().anyMatch(child -> child.contains("-high-lock-")));
+
+        // Act: hand the lock over to the low priority waiter
+        first.release();
+
+        // Assert
+        Acquisition second = low.get(5, TimeUnit.SECONDS);
+        assertTrue(second.isAcquired());
+        assertTrue(second.fencingToken().getAsLong() > first.fencingToken().getAsLong());
+        second.release();
+    }
+
+    @Test
+    void shouldGiveUpRightAwayWhenQueueCannotBePassedWithinTimeout() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        Acquisition previous = distributedLock.acquire("/test-deadline/key", LockPriority.NORMAL, Duration.ofSeconds(5));
+        Thread.sleep(1500);
+        previous.release();
+        final Acquisition holder = distributedLock.acquireAsync("/test-deadline/key", Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+
+        // Act
+        final long startedAtNanos = System.nanoTime();
+        assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> distributedLock.acquire("/test-deadline/key", LockPriority.HIGH, Duration.ofSeconds(1)));
+
+        // Assert
+        assertTrue(System.nanoTime() - startedAtNanos < TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(1, client.getChildren().forPath("/test-deadline/key/locks").size());
+        holder.release();
+    }
+
+    private static List<String> childrenOf(CuratorFramework client, String path) {
+        try {
+            return client.getChildren().forPath(path);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met within 5 seconds");
+            Thread.sleep(20);
+        }
+    }
+
+    private static Acquisition acquireQuietly(Callable<Acquisition> acquire) {
+        try {
+            return acquire.call();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CuratorFramework newStartedClient() {
+        CuratorFramework client = CuratorFrameworkFactory.builder()
+            .connectString(getZkConnectionString())
+            .retryPolicy(new RetryOneTime(100))
+            .build();
+        client.start();
+        return client;
+    }
 }
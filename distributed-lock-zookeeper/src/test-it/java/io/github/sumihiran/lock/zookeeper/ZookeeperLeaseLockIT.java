@@ -0,0 +1,105 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a dedicated Zookeeper with TTL nodes enabled and a short container cleanup interval, so that
+ * expired leases are deleted within a second without affecting the container nodes of other tests.
+ */
+@Testcontainers
+class ZookeeperLeaseLockIT {
+
+    private static final int ZOOKEEPER_PORT = 2181;
+
+    @SuppressWarnings("resource")
+    @Container
+    static final GenericContainer<?> zookeeperContainer =
+        new GenericContainer<>(AbstractZookeeperIntegrationTest.ZOOKEEPER_IMAGE)
+            .withExposedPorts(ZOOKEEPER_PORT)
+            .withEnv("JVMFLAGS", "-Dzookeeper.extendedTypesEnabled=true -Dznode.container.checkIntervalMs=1000");
+
+    @Test
+    void shouldHoldLockWhileLeaseIsRenewed() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+
+        // Act
+        Acquisition acquisition =
+            distributedLock.acquireWithLease("/test-lease", Duration.ofSeconds(3), Duration.ofSeconds(5));
+        Thread.sleep(4000);
+
+        // Assert: the lock outlives its lease duration while the lease is renewed
+        assertTrue(acquisition.isAcquired());
+        assertTrue(acquisition.remainingLease().isPresent());
+        assertTrue(acquisition.remainingLease().get().compareTo(Duration.ZERO) > 0);
+        String node = client.getChildren().forPath("/test-lease/locks").get(0);
+        assertEquals(0, client.checkExists().forPath("/test-lease/locks/" + node).getEphemeralOwner());
+
+        // Act: release lock
+        acquisition.release();
+
+        // Assert
+        assertEquals(Duration.ZERO, acquisition.remainingLease().get());
+        assertTrue(client.getChildren().forPath("/test-lease/locks").isEmpty());
+    }
+
+    @Test
+    void shouldAcquireLockOfStaleHolderOnceLeaseExpires() throws Exception {
+        // Arrange: the holder stops renewing its lease but keeps its session
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock staleLock = new ZookeeperDistributedLock(client);
+        Acquisition stale =
+            staleLock.acquireWithLease("/test-lease-stale", Duration.ofSeconds(2), Duration.ofSeconds(5));
+        staleLock.close();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(newStartedClient());
+
+        // Act
+        Acquisition acquisition =
+            distributedLock.acquireWithLease("/test-lease-stale", Duration.ofSeconds(2), Duration.ofSeconds(10));
+
+        // Assert
+        assertTrue(acquisition.isAcquired());
+        assertTrue(stale.isAcquired());
+        assertEquals(1, client.getChildren().forPath("/test-lease-stale/locks").size());
+        acquisition.release();
+    }
+
+    @Test
+    void shouldConsiderLockLostWhenLeaseCannotBeRenewed() throws Exception {
+        // Arrange
+        CuratorFramework client = newStartedClient();
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+        Acquisition acquisition =
+            distributedLock.acquireWithLease("/test-lease-lost", Duration.ofSeconds(2), Duration.ofSeconds(5));
+
+        // Act: the lock node disappears, e.g. deleted by an operator
+        String node = client.getChildren().forPath("/test-lease-lost/locks").get(0);
+        client.delete().forPath("/test-lease-lost/locks/" + node);
+        Thread.sleep(2000);
+
+        // Assert
+        assertTrue(assertInstanceOf(ZookeeperMonitoredLockAcquisition.class, acquisition).isLockLost());
+        assertEquals(Duration.ZERO, acquisition.remainingLease().get());
+    }
+
+    private static CuratorFramework newStartedClient() {
+        CuratorFramework client = CuratorFrameworkFactory.builder()
+            .connectString(String.format(
+                "%s:%d", zookeeperContainer.getHost(), zookeeperContainer.getMappedPort(ZOOKEEPER_PORT)))
+            .retryPolicy(new RetryOneTime(100))
+            .build();
+        client.start();
+        return client;
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZookeeperLockRouterIT extends AbstractZookeeperIntegrationTest {
+
+    @Test
+    void shouldAcquireAllKeysAcrossShards() throws Exception {
+        // Arrange: two namespaces of the same ensemble stand in for two ensembles
+        CuratorFramework clientA = newStartedClient("test-router-a");
+        CuratorFramework clientB = newStartedClient("test-router-b");
+        ZookeeperLockRouter router = newRouter(clientA, clientB);
+        ZookeeperLockRouter otherRouter = newRouter(clientA, clientB);
+        List<String> keys = new ArrayList<>();
+        for (int id = 0; id < 8; id++) {
+            keys.add("/orders/" + id);
+        }
+
+        // Act
+        Acquisition acquisition = router.acquireAll(keys, Duration.ofSeconds(5));
+
+        // Assert
+        assertTrue(acquisition.isAcquired());
+        for (String key : keys) {
+            CuratorFramework shardClient = router.shardOf(key).equals("a") ? clientA : clientB;
+            assertEquals(1, shardClient.getChildren().forPath(key + "/locks").size());
+            // batch acquisitions exclude asynchronous ones, which share their lock node layout
+            assertThrows(ExecutionException.class,
+                () -> otherRouter.acquireAsync(key, Duration.ofMillis(100)).get(5, TimeUnit.SECONDS));
+        }
+
+        // Act: release locks
+        acquisition.release();
+
+        // Assert
+        assertFalse(acquisition.isAcquired());
+        Acquisition reacquired = otherRouter.acquireAsync(keys.get(0), Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+        assertTrue(reacquired.isAcquired());
+        reacquired.release();
+    }
+
+    private static ZookeeperLockRouter newRouter(CuratorFramework clientA, CuratorFramework clientB) {
+        return ZookeeperLockRouter.builder()
+            .shard("a", clientA)
+            .shard("b", clientB)
+            .build();
+    }
+
+    private static CuratorFramework newStartedClient(String namespace) {
+        CuratorFramework client = CuratorFrameworkFactory.builder()
+            .connectString(getZkConnectionString())
+            .namespace(namespace)
+            .retryPolicy(new RetryOneTime(100))
+            .build();
+        client.start();
+        return client;
+    }
+}
@@ -52,6 +52,38 @@ class ZookeeperMonitoredLockAcquisitionIT extends AbstractZookeeperIntegrationTe
         assertThrows(ZookeeperLockReleaseException.class, zkAcquisition::release);
     }
 
+    @Test
+    void shouldKeepLockInDoubtWhileConnectionIsSuspended() throws Exception {
+        // Arrange
+        CuratorFramework client = CuratorFrameworkFactory.builder()
+            .connectString(getZkProxyConnectionString())
+            .retryPolicy(new RetryOneTime(0))
+            .sessionTimeoutMs(10000)
+            .build();
+        client.start();
+        ZookeeperDistributedLock distributedLock = ZookeeperDistributedLock.builder(client)
+            .suspensionPolicy(SuspensionPolicy.IN_DOUBT)
+            .build();
+        Acquisition acquisition = distributedLock.acquire("/test-lock-in-doubt");
+        assertEquals(LockState.HELD, acquisition.state());
+
+        // Act: interrupt the network until the connection is suspended
+        zkProxy.toxics().timeout("timeout", ToxicDirection.DOWNSTREAM, 0);
+        awaitState(acquisition, LockState.IN_DOUBT, 10000);
+
+        // Assert
+        assertTrue(acquisition.isAcquired());
+
+        // Act: restore the network before the session expires
+        zkProxy.toxics().get("timeout").remove();
+        awaitState(acquisition, LockState.HELD, 10000);
+
+        // Assert
+        assertFalse(((ZookeeperMonitoredLockAcquisition) acquisition).isLockLost());
+        assertDoesNotThrow(acquisition::release);
+        client.close();
+    }
+
     @Test
     void shouldReacquireLockAfterSessionExpiration() throws Exception {
         // Arrange
@@ -89,4 +121,12 @@ class ZookeeperMonitoredLockAcquisitionIT extends AbstractZookeeperIntegrationTe
         // Cleanup
         newAcquisition.release();
     }
+
+    private static void awaitState(Acquisition acquisition, LockState state, long timeoutMillis) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (acquisition.state() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(state, acquisition.state());
+    }
 }
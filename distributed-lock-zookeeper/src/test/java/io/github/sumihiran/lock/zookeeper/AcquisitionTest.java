@@ -0,0 +1,46 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AcquisitionTest {
+
+    @Test
+    void shouldPollForLostLockByDefault() throws Exception {
+        // Arrange
+        AtomicBoolean acquired = new AtomicBoolean(true);
+        Acquisition acquisition = new Acquisition() {
+            @Override
+            public void release() {
+                acquired.set(false);
+            }
+
+            @Override
+            public boolean isAcquired() {
+                return acquired.get();
+            }
+        };
+        CompletableFuture<Void> lost = new CompletableFuture<>();
+        acquisition.onLost(() -> lost.complete(null));
+        Thread.sleep(LostLockPolling.POLL_INTERVAL_MILLIS * 2);
+        assertFalse(lost.isDone());
+
+        // Act
+        acquired.set(false);
+
+        // Assert
+        lost.get(5, TimeUnit.SECONDS);
+
+        // Act: register once the lock is no longer acquired
+        CompletableFuture<Void> late = new CompletableFuture<>();
+        acquisition.onLost(() -> late.complete(null));
+
+        // Assert
+        late.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.listen.StandardListenerManager;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CoalescingLockFactoryTest {
+
+    CuratorFramework client;
+    StandardListenerManager<ConnectionStateListener> listeners;
+    InterProcessLock zookeeperLock;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = mock(CuratorFramework.class);
+        listeners = StandardListenerManager.standard();
+        when(client.getConnectionStateListenable()).thenReturn(listeners);
+
+        zookeeperLock = mock(InterProcessSemaphoreMutex.class);
+        when(zookeeperLock.acquire(anyLong(), any(TimeUnit.class))).thenReturn(true);
+    }
+
+    @Test
+    void shouldAcquireZookeeperLockPerUncontendedAcquisition() throws Exception {
+        // Arrange
+        CoalescingLockFactory factory = new CoalescingLockFactory(client, path -> zookeeperLock);
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            InterProcessLock lock = factory.apply("/test-key");
+            assertTrue(lock.acquire(1, TimeUnit.SECONDS));
+            lock.release();
+        }
+
+        // Assert
+        assertEquals(3, factory.zookeeperAcquisitions());
+        assertEquals(0, factory.localHandoffs());
+        verify(zookeeperLock, times(3)).release();
+    }
+
+    @Test
+    void shouldHandOffZookeeperLockToLocalWaiter() throws Exception {
+        // Arrange
+        CoalescingLockFactory factory = new CoalescingLockFactory(client, path -> zookeeperLock);
+        InterProcessLock first = factory.apply("/test-key");
+        InterProcessLock second = factory.apply("/test-key");
+        assertTrue(first.acquire(1, TimeUnit.SECONDS));
+
+        // Act
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> acquireQuietly(second));
+        awaitQueuedWaiter(factory);
+        first.release();
+
+        // Assert
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+        verify(zookeeperLock, never()).release();
+        assertEquals(1, factory.zookeeperAcquisitions());
+        assertEquals(1, factory.localHandoffs());
+
+        // Act: release without waiters
+        second.release();
+
+        // Assert
+        verify(zookeeperLock).release();
+    }
+
+    @Test
+    void shouldReleaseToZookeeperWhenHandoffsExhausted() throws Exception {
+        // Arrange
+        CoalescingLockFactory factory = new CoalescingLockFactory(client, path -> zookeeperLock, 0, Duration.ofMinutes(1));
+        InterProcessLock first = factory.apply("/test-key");
+        InterProcessLock second = factory.apply("/test-key");
+        assertTrue(first.acquire(1, TimeUnit.SECONDS));
+
+        // Act
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> acquireQuietly(second));
+        awaitQueuedWaiter(factory);
+        first.release();
+
+        // Assert
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+        verify(zookeeperLock).release();
+        assertEquals(2, factory.zookeeperAcquisitions());
+        assertEquals(0, factory.localHandoffs());
+    }
+
+    @Test
+    void shouldTimeOutWhenLocallyContended() throws Exception {
+        // Arrange
+        CoalescingLockFactory factory = new CoalescingLockFactory(client, path -> zookeeperLock);
+        InterProcessLock first = factory.apply("/test-key");
+        InterProcessLock second = factory.apply("/test-key");
+        assertTrue(first.acquire(1, TimeUnit.SECONDS));
+
+        // Act & Assert
+        assertFalse(second.acquire(10, TimeUnit.MILLISECONDS));
+        assertEquals(1, factory.zookeeperAcquisitions());
+    }
+
+    @Test
+    void shouldEvictLocalHolderWhenConnectionLost() throws Exception {
+        // Arrange
+        CoalescingLockFactory factory = new CoalescingLockFactory(client, path -> zookeeperLock);
+        InterProcessLock first = factory.apply("/test-key");
+        final InterProcessLock second = factory.apply("/test-key");
+        assertTrue(first.acquire(1, TimeUnit.SECONDS));
+
+        // Act
+        listeners.forEach(listener -> listener.stateChanged(client, ConnectionState.LOST));
+
+        // Assert: next contender acquires a fresh Zookeeper lock
+        assertFalse(first.isAcquiredInThisProcess());
+        assertThrows(IllegalStateException.class, first::release);
+        assertTrue(second.acquire(1, TimeUnit.SECONDS));
+        assertEquals(2, factory.zookeeperAcquisitions());
+    }
+
+    @Test
+    void shouldKeepLocalHolderWhileSuspendedUnderInDoubtPolicy() throws Exception {
+        // Arrange
+        CoalescingLockFactory factory = new CoalescingLockFactory(
+            client, path -> zookeeperLock, 16, Duration.ofMinutes(1), SuspensionPolicy.IN_DOUBT);
+        InterProcessLock first = factory.apply("/test-key");
+        final InterProcessLock second = factory.apply("/test-key");
+        assertTrue(first.acquire(1, TimeUnit.SECONDS));
+
+        // Act
+        listeners.forEach(listener -> listener.stateChanged(client, ConnectionState.SUSPENDED));
+
+        // Assert: the holder keeps its lock, and the next contender waits for it
+        assertTrue(first.isAcquiredInThisProcess());
+        assertFalse(second.acquire(10, TimeUnit.MILLISECONDS));
+        verify(zookeeperLock, never()).release();
+
+        // Act
+        listeners.forEach(listener -> listener.stateChanged(client, ConnectionState.LOST));
+
+        // Assert
+        assertFalse(first.isAcquiredInThisProcess());
+        assertTrue(second.acquire(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldRemoveListenerWhenClosed() {
+        // Arrange
+        CoalescingLockFactory factory = new CoalescingLockFactory(client, path -> zookeeperLock);
+        assertEquals(1, listeners.size());
+
+        // Act
+        factory.close();
+
+        // Assert
+        assertEquals(0, listeners.size());
+    }
+
+    private static boolean acquireQuietly(InterProcessLock lock) {
+        try {
+            return lock.acquire(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitQueuedWaiter(CoalescingLockFactory factory) throws InterruptedException {
+        while (factory.queueLength("/test-key") == 0) {
+            Thread.sleep(5);
+        }
+    }
+}
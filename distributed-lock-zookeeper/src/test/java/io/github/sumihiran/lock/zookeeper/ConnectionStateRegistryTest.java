@@ -0,0 +1,357 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import ch.qos.logback.classic.Level;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.ErrorListenerMultiTransactionMain;
+import org.apache.curator.framework.api.transaction.CuratorMultiTransaction;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.imps.CuratorFrameworkState;
+import org.apache.curator.framework.listen.StandardListenerManager;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.state.ConnectionState;
+import org.apache.curator.framework.state.ConnectionStateListener;
+import org.apache.zookeeper.KeeperException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionStateRegistryTest {
+
+    static final int ACQUISITIONS = 1_000_000;
+    static final long MAX_HEAP_GROWTH_BYTES = 32L * 1024 * 1024;
+
+    CuratorFramework client;
+    StandardListenerManager<ConnectionStateListener> listeners;
+    ch.qos.logback.classic.Logger logger;
+    Level previousLevel;
+    CuratorMultiTransaction multiTransaction;
+    ErrorListenerMultiTransactionMain transaction;
+
+    @BeforeEach
+    void setUp() {
+        // stub-only mocks do not record invocations, which would otherwise grow with every acquisition
+        client = mock(CuratorFramework.class, withSettings().stubOnly());
+        listeners = StandardListenerManager.standard();
+        when(client.getConnectionStateListenable()).thenReturn(listeners);
+        when(client.getState()).thenReturn(CuratorFrameworkState.STARTED);
+
+        logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("io.github.sumihiran.lock.zookeeper");
+        previousLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.setLevel(previousLevel);
+    }
+
+    @Test
+    void shouldRegisterSingleListenerForAllAcquisitions() {
+        // Arrange
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client, path -> new NoopLock());
+
+        // Act
+        List<Acquisition> acquisitions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            acquisitions.add(distributedLock.acquire("/test-key-" + i));
+        }
+
+        // Assert
+        assertEquals(1, listeners.size());
+
+        // Act: simulate connection loss
+        listeners.forEach(listener -> listener.stateChanged(client, ConnectionState.LOST));
+
+        // Assert
+        for (Acquisition acquisition : acquisitions) {
+            assertFalse(acquisition.isAcquired());
+            assertTrue(((ZookeeperMonitoredLockAcquisition) acquisition).isLockLost());
+        }
+        assertEquals(1, listeners.size());
+    }
+
+    @Test
+    void shouldKeepListenerCountAndHeapFlatAcrossMillionAcquisitions() throws Exception {
+        // Arrange
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client, path -> new NoopLock());
+        Runtime runtime = Runtime.getRuntime();
+
+        // Warm up, then take a baseline of the retained heap
+        acquireAndRelease(distributedLock, ACQUISITIONS / 10);
+        final long baseline = usedHeapAfterGc(runtime);
+
+        // Act
+        acquireAndRelease(distributedLock, ACQUISITIONS);
+        long after = usedHeapAfterGc(runtime);
+
+        // Assert
+        assertEquals(1, listeners.size());
+        assertEquals(0, distributedLock.monitoredAcquisitions());
+        assertTrue(after - baseline < MAX_HEAP_GROWTH_BYTES,
+            "Retained heap grew by " + (after - baseline) + " bytes");
+
+        // Cleanup
+        distributedLock.close();
+        assertEquals(0, listeners.size());
+    }
+
+    @Test
+    void shouldRemoveDedicatedListenerWhenStandaloneAcquisitionReleased() throws Exception {
+        // Arrange
+        ZookeeperMonitoredLockAcquisition acquisition =
+            new ZookeeperMonitoredLockAcquisition(client, "/test-key", new NoopLock());
+        assertEquals(1, listeners.size());
+
+        // Act
+        acquisition.release();
+
+        // Assert
+        assertEquals(0, listeners.size());
+    }
+
+    @Test
+    void shouldUnregisterAcquisitionWhenLockLost() {
+        // Arrange
+        ConnectionStateRegistry registry = new ConnectionStateRegistry(client);
+        ZookeeperMonitoredLockAcquisition acquisition =
+            new ZookeeperMonitoredLockAcquisition(registry, null, "/test-key", new NoopLock());
+        assertEquals(1, registry.size());
+
+        // Act
+        registry.stateChanged(client, ConnectionState.SUSPENDED);
+
+        // Assert
+        assertTrue(acquisition.isLockLost());
+        assertEquals(0, registry.size());
+        assertEquals(1, listeners.size());
+    }
+
+    @Test
+    void shouldKeepLocksInDoubtWhileSuspendedAndConfirmThemOnceReconnected() {
+        // Arrange
+        CuratorFramework deepClient = mock(CuratorFramework.class, RETURNS_DEEP_STUBS);
+        when(deepClient.getZookeeperClient().getInstanceIndex()).thenReturn(1L);
+        ConnectionStateRegistry registry = new ConnectionStateRegistry(deepClient, SuspensionPolicy.IN_DOUBT);
+        ZookeeperMonitoredLockAcquisition acquisition =
+            new ZookeeperMonitoredLockAcquisition(registry, null, "/test-key", new NoopLock());
+
+        // Act
+        registry.stateChanged(deepClient, ConnectionState.SUSPENDED);
+
+        // Assert
+        assertEquals(LockState.IN_DOUBT, acquisition.state());
+        assertTrue(acquisition.isAcquired());
+        assertFalse(acquisition.isLockLost());
+
+        // Act: reconnected within the same session
+        registry.stateChanged(deepClient, ConnectionState.RECONNECTED);
+
+        // Assert
+        assertEquals(LockState.HELD, acquisition.state());
+        assertEquals(1, registry.size());
+        verify(deepClient, never()).transaction();
+    }
+
+    @Test
+    void shouldLoseLocksInDoubtWhenSessionExpired() {
+        // Arrange
+        CuratorFramework deepClient = mock(CuratorFramework.class, RETURNS_DEEP_STUBS);
+        when(deepClient.getZookeeperClient().getInstanceIndex()).thenReturn(1L, 2L);
+        ConnectionStateRegistry registry = new ConnectionStateRegistry(deepClient, SuspensionPolicy.IN_DOUBT);
+        ZookeeperMonitoredLockAcquisition acquisition =
+            new ZookeeperMonitoredLockAcquisition(registry, null, "/test-key", new NoopLock());
+
+        // Act
+        registry.stateChanged(deepClient, ConnectionState.SUSPENDED);
+        registry.stateChanged(deepClient, ConnectionState.RECONNECTED);
+
+        // Assert
+        assertEquals(LockState.NOT_HELD, acquisition.state());
+        assertTrue(acquisition.isLockLost());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void shouldLoseLocksInDoubtWhenConnectionLost() {
+        // Arrange
+        CuratorFramework deepClient = mock(CuratorFramework.class, RETURNS_DEEP_STUBS);
+        ConnectionStateRegistry registry = new ConnectionStateRegistry(deepClient, SuspensionPolicy.IN_DOUBT);
+        ZookeeperMonitoredLockAcquisition acquisition =
+            new ZookeeperMonitoredLockAcquisition(registry, null, "/test-key", new NoopLock());
+
+        // Act
+        registry.stateChanged(deepClient, ConnectionState.SUSPENDED);
+        registry.stateChanged(deepClient, ConnectionState.LOST);
+
+        // Assert
+        assertEquals(LockState.NOT_HELD, acquisition.state());
+        assertTrue(acquisition.isLockLost());
+    }
+
+    @Test
+    void shouldCheckLockNodesOfAllLocksInDoubtInOneTransaction() throws Exception {
+        // Arrange
+        CuratorFramework deepClient = mock(CuratorFramework.class, RETURNS_DEEP_STUBS);
+        mockTransaction(deepClient);
+        ConnectionStateRegistry registry = new ConnectionStateRegistry(deepClient, SuspensionPolicy.IN_DOUBT);
+        final ZookeeperMonitoredLockAcquisition first =
+            new ZookeeperMonitoredLockAcquisition(registry, null, "/a", nodeBackedLock("/a/lock-1"));
+        final ZookeeperMonitoredLockAcquisition second =
+            new ZookeeperMonitoredLockAcquisition(registry, null, "/b", nodeBackedLock("/b/lock-1", "/b/lock-2"));
+
+        // Act
+        registry.stateChanged(deepClient, ConnectionState.SUSPENDED);
+        registry.stateChanged(deepClient, ConnectionState.RECONNECTED);
+
+        // Assert
+        assertEquals(3, captureOperations(1).get(0).size());
+        assertEquals(LockState.IN_DOUBT, first.state());
+
+        // Act: all lock nodes exist
+        complete(deepClient, 0, KeeperException.Code.OK);
+
+        // Assert
+        assertEquals(LockState.HELD, first.state());
+        assertEquals(LockState.HELD, second.state());
+    }
+
+    @Test
+    void shouldCheckLockNodesOfLocksInDoubtInBatches() throws Exception {
+        // Arrange
+        CuratorFramework deepClient = mock(CuratorFramework.class, RETURNS_DEEP_STUBS);
+        mockTransaction(deepClient);
+        ConnectionStateRegistry registry = new ConnectionStateRegistry(deepClient, SuspensionPolicy.IN_DOUBT);
+        List<ZookeeperMonitoredLockAcquisition> inDoubt = new ArrayList<>();
+        for (int i = 0; i < ConnectionStateRegistry.MAX_BATCH_SIZE * 2 + 1; i++) {
+            inDoubt.add(new ZookeeperMonitoredLockAcquisition(registry, null, "/" + i, nodeBackedLock("/" + i + "/lock-1")));
+        }
+
+        // Act
+        registry.stateChanged(deepClient, ConnectionState.SUSPENDED);
+        registry.stateChanged(deepClient, ConnectionState.RECONNECTED);
+
+        // Assert
+        List<List<CuratorOp>> operations = captureOperations(3);
+        for (List<CuratorOp> batch : operations) {
+            assertTrue(batch.size() <= ConnectionStateRegistry.MAX_BATCH_SIZE);
+        }
+
+        // Act: all lock nodes exist
+        for (int i = 0; i < operations.size(); i++) {
+            complete(deepClient, i, KeeperException.Code.OK);
+        }
+
+        // Assert
+        for (ZookeeperMonitoredLockAcquisition acquisition : inDoubt) {
+            assertEquals(LockState.HELD, acquisition.state());
+        }
+    }
+
+    @Test
+    void shouldLoseOnlyLocksInDoubtWhoseNodesAreGone() throws Exception {
+        // Arrange
+        CuratorFramework deepClient = mock(CuratorFramework.class, RETURNS_DEEP_STUBS);
+        mockTransaction(deepClient);
+        ConnectionStateRegistry registry = new ConnectionStateRegistry(deepClient, SuspensionPolicy.IN_DOUBT);
+        final ZookeeperMonitoredLockAcquisition first =
+            new ZookeeperMonitoredLockAcquisition(registry, null, "/a", nodeBackedLock("/a/lock-1"));
+        final ZookeeperMonitoredLockAcquisition second =
+            new ZookeeperMonitoredLockAcquisition(registry, null, "/b", nodeBackedLock("/b/lock-1"));
+        CuratorOp checkFirst = mock(CuratorOp.class);
+        when(deepClient.transactionOp().check().forPath("/a/lock-1")).thenReturn(checkFirst);
+        registry.stateChanged(deepClient, ConnectionState.SUSPENDED);
+        registry.stateChanged(deepClient, ConnectionState.RECONNECTED);
+
+        // Act: a lock node is gone, so every lock is checked on its own
+        complete(deepClient, 0, KeeperException.Code.NONODE);
+
+        // Assert
+        List<List<CuratorOp>> operations = captureOperations(3);
+        final int checkOfFirst = operations.get(1).contains(checkFirst) ? 1 : 2;
+
+        // Act
+        complete(deepClient, checkOfFirst, KeeperException.Code.OK);
+        complete(deepClient, 3 - checkOfFirst, KeeperException.Code.NONODE);
+
+        // Assert
+        assertEquals(LockState.HELD, first.state());
+        assertEquals(LockState.NOT_HELD, second.state());
+        assertTrue(second.isLockLost());
+    }
+
+    private static void acquireAndRelease(ZookeeperDistributedLock distributedLock, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            Acquisition acquisition = distributedLock.acquire("/test-key");
+            acquisition.release();
+        }
+    }
+
+    private static long usedHeapAfterGc(Runtime runtime) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static NodeBackedLock nodeBackedLock(String... nodes) {
+        NodeBackedLock lock = mock(NodeBackedLock.class);
+        when(lock.lockNodes()).thenReturn(Arrays.asList(nodes));
+        return lock;
+    }
+
+    private void mockTransaction(CuratorFramework client) {
+        multiTransaction = mock(CuratorMultiTransaction.class);
+        transaction = mock(ErrorListenerMultiTransactionMain.class);
+        when(client.transaction()).thenReturn(multiTransaction);
+        when(multiTransaction.inBackground(any(BackgroundCallback.class))).thenReturn(transaction);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<CuratorOp>> captureOperations(int transactions) throws Exception {
+        ArgumentCaptor<List<CuratorOp>> operations = ArgumentCaptor.forClass(List.class);
+        verify(transaction, times(transactions)).forOperations(operations.capture());
+        return operations.getAllValues();
+    }
+
+    private void complete(CuratorFramework client, int transactionIndex, KeeperException.Code code) throws Exception {
+        ArgumentCaptor<BackgroundCallback> callback = ArgumentCaptor.forClass(BackgroundCallback.class);
+        verify(multiTransaction, atLeastOnce()).inBackground(callback.capture());
+        CuratorEvent event = mock(CuratorEvent.class);
+        when(event.getResultCode()).thenReturn(code.intValue());
+        callback.getAllValues().get(transactionIndex).processResult(client, event);
+    }
+
+    static class NoopLock implements InterProcessLock {
+
+        @Override
+        public void acquire() {
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public void release() {
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    static final int KEYS = 100_000;
+
+    @Test
+    void shouldSpreadKeysEvenlyOverShards() {
+        // Arrange
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 160);
+        Map<String, Integer> keysPerShard = new HashMap<>();
+
+        // Act
+        for (int id = 0; id < KEYS; id++) {
+            keysPerShard.merge(ring.shardOf("/orders/" + id), 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(4, keysPerShard.size());
+        for (int keys : keysPerShard.values()) {
+            assertTrue(keys > KEYS / 4 * 0.8 && keys < KEYS / 4 * 1.2, "keys per shard: " + keys);
+        }
+    }
+
+    @Test
+    void shouldOnlyMoveKeysToAddedShard() {
+        // Arrange
+        ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 160);
+        ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 160);
+        int moved = 0;
+
+        // Act & Assert
+        for (int id = 0; id < KEYS; id++) {
+            String key = "/orders/" + id;
+            String shard = after.shardOf(key);
+            if (!shard.equals(before.shardOf(key))) {
+                assertEquals("d", shard);
+                moved++;
+            }
+        }
+        assertTrue(moved > KEYS / 4 * 0.8 && moved < KEYS / 4 * 1.2, "moved keys: " + moved);
+    }
+
+    @Test
+    void shouldOnlyMoveKeysOfRemovedShard() {
+        // Arrange
+        ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"), 160);
+        ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 160);
+
+        // Act & Assert
+        for (int id = 0; id < KEYS; id++) {
+            String key = "/orders/" + id;
+            String shard = before.shardOf(key);
+            if (!shard.equals("d")) {
+                assertEquals(shard, after.shardOf(key));
+            }
+        }
+    }
+
+    @Test
+    void shouldNotDependOnOrderOfShards() {
+        // Arrange
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c"), 16);
+        ConsistentHashRing reordered = new ConsistentHashRing(Arrays.asList("c", "a", "b"), 16);
+
+        // Act & Assert
+        for (int id = 0; id < 1000; id++) {
+            assertEquals(ring.shardOf("/orders/" + id), reordered.shardOf("/orders/" + id));
+        }
+    }
+
+    @Test
+    void shouldRejectEmptyShardsAndVirtualNodes() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(Collections.emptyList(), 160));
+        assertThrows(IllegalArgumentException.class,
+            () -> new ConsistentHashRing(Collections.singletonList("a"), 0));
+    }
+}
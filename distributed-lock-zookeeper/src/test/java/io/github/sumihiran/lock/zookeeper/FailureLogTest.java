@@ -0,0 +1,135 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+class FailureLogTest {
+
+    Logger logger;
+    ScheduledExecutorService scheduler;
+    FailureLog failureLog;
+
+    @BeforeEach
+    void setUp() {
+        logger = mock(Logger.class);
+        when(logger.isWarnEnabled()).thenReturn(true);
+        when(logger.isErrorEnabled()).thenReturn(true);
+        scheduler = mock(ScheduledExecutorService.class);
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), anyLong(), any());
+        failureLog = new FailureLog(Level.WARN, Level.ERROR, Duration.ofSeconds(10), KeyPrefixes::firstSegment,
+            () -> scheduler);
+    }
+
+    @Test
+    void shouldLogFirstTimeoutOfPrefixAndSuppressOthers() {
+        // Act
+        failureLog.timedOut(logger, "/orders/1", Duration.ofSeconds(1));
+        failureLog.timedOut(logger, "/orders/2", Duration.ofSeconds(1));
+        failureLog.timedOut(logger, "/orders/3", Duration.ofSeconds(1));
+
+        // Assert
+        verify(logger).warn("Failed to acquire lock for key: {} within timeout: {}", args("/orders/1",
+            Duration.ofSeconds(1)));
+        verify(logger, times(1)).warn(anyString(), (Object[]) any());
+        verify(scheduler).schedule(any(Runnable.class), eq(Duration.ofSeconds(10).toNanos()),
+            eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    void shouldLogSummaryOfSuppressedFailuresWhenClosed() {
+        // Arrange
+        failureLog.timedOut(logger, "/orders/1", Duration.ofSeconds(1));
+        failureLog.timedOut(logger, "/orders/2", Duration.ofSeconds(1));
+        failureLog.timedOut(logger, "/orders/3", Duration.ofSeconds(1));
+
+        // Act
+        failureLog.close();
+
+        // Assert
+        verify(logger).warn("Suppressed {} {} for prefix: {} in the last {}",
+            args(2, "timeouts", "/orders", "10s"));
+    }
+
+    @Test
+    void shouldNotLogSummaryBeforeIntervalHasPassed() {
+        // Arrange
+        failureLog.timedOut(logger, "/orders/1", Duration.ofSeconds(1));
+        failureLog.timedOut(logger, "/orders/2", Duration.ofSeconds(1));
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(flush.capture(), anyLong(), any());
+
+        // Act
+        flush.getValue().run();
+
+        // Assert
+        verify(logger, never()).warn(eq("Suppressed {} {} for prefix: {} in the last {}"), (Object[]) any());
+        verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), any());
+    }
+
+    @Test
+    void shouldSampleKindsAndPrefixesSeparately() {
+        // Arrange
+        Exception error = new Exception("test");
+
+        // Act
+        failureLog.timedOut(logger, "/orders/1", Duration.ofSeconds(1));
+        failureLog.timedOut(logger, "/payments/1", Duration.ofSeconds(1));
+        failureLog.failed(logger, "/orders/1", error);
+        failureLog.releaseFailed(logger, "/orders/1", error);
+        failureLog.lost(logger, "/orders/1");
+
+        // Assert
+        verify(logger).warn("Failed to acquire lock for key: {} within timeout: {}", args("/orders/1",
+            Duration.ofSeconds(1)));
+        verify(logger).warn("Failed to acquire lock for key: {} within timeout: {}", args("/payments/1",
+            Duration.ofSeconds(1)));
+        verify(logger).error("Failed to acquire lock for key: {}", args("/orders/1", error));
+        verify(logger).error("Failed to release lock for key: {}", args("/orders/1", error));
+        verify(logger).warn("Lock is considered lost for key: {}", "/orders/1");
+        verifyNoInteractions(scheduler);
+    }
+
+    @Test
+    void shouldLogEveryFailureWhenUnsampled() {
+        // Act
+        FailureLog.UNSAMPLED.timedOut(logger, "/orders/1", Duration.ofSeconds(1));
+        FailureLog.UNSAMPLED.timedOut(logger, "/orders/1", Duration.ofSeconds(1));
+
+        // Assert
+        verify(logger, times(2)).warn("Failed to acquire lock for key: {} within timeout: {}", args("/orders/1",
+            Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void shouldLogAtConfiguredLevels() {
+        // Arrange
+        when(logger.isInfoEnabled()).thenReturn(true);
+        when(logger.isDebugEnabled()).thenReturn(false);
+        FailureLog configured = new FailureLog(Level.DEBUG, Level.INFO, Duration.ZERO, KeyPrefixes::firstSegment,
+            () -> scheduler);
+        Exception error = new Exception("test");
+
+        // Act
+        configured.timedOut(logger, "/orders/1", Duration.ofSeconds(1));
+        configured.failed(logger, "/orders/1", error);
+
+        // Assert
+        verify(logger).info("Failed to acquire lock for key: {}", args("/orders/1", error));
+        verify(logger, never()).debug(anyString(), (Object[]) any());
+        verify(logger, never()).warn(anyString(), (Object[]) any());
+    }
+
+    private static Object[] args(Object... args) {
+        return args;
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FairLockFactoryTest {
+
+    @Test
+    void shouldCreateSequentialNodeLocks() {
+        // Arrange
+        CuratorFramework client = mock(CuratorFramework.class);
+
+        // Act
+        try (FairLockFactory fairLocks = new FairLockFactory(client)) {
+            // Assert
+            assertInstanceOf(SequentialNodeLock.class, fairLocks.apply("/test-key"));
+            assertNotSame(fairLocks.apply("/test-key"), fairLocks.apply("/test-key"));
+        }
+    }
+
+    @Test
+    void shouldNotShutDownSchedulerPassedIn() {
+        // Arrange
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        FairLockFactory fairLocks = new FairLockFactory(mock(CuratorFramework.class), scheduler);
+
+        // Act
+        fairLocks.close();
+
+        // Assert
+        verifyNoInteractions(scheduler);
+    }
+}
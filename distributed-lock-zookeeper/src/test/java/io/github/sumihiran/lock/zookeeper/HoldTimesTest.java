@@ -0,0 +1,33 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HoldTimesTest {
+
+    @Test
+    void shouldAverageHoldTimesPerKeyPrefix() {
+        // Arrange
+        HoldTimes holdTimes = new HoldTimes();
+
+        // Act
+        holdTimes.released("/orders/1", 800);
+        holdTimes.released("/orders/2", 1600);
+        holdTimes.released("/payments/1", 50);
+
+        // Assert
+        assertEquals(900, holdTimes.expectedHoldNanos("/orders/3"));
+        assertEquals(50, holdTimes.expectedHoldNanos("/payments/2"));
+        assertEquals(0, holdTimes.expectedHoldNanos("/invoices/1"));
+    }
+
+    @Test
+    void shouldParsePriorityOfLockNodeNames() {
+        // Act & Assert
+        assertEquals(LockPriority.HIGH, LockPriority.of("_c_2b8e1a3c-high-lock-0000000042"));
+        assertEquals(LockPriority.LOW, LockPriority.of("_c_2b8e1a3c-low-lock-0000000042"));
+        assertEquals(LockPriority.NORMAL, LockPriority.of("_c_2b8e1a3c-lock-0000000042"));
+        assertEquals(LockPriority.NORMAL, LockPriority.of("lease-0000000042"));
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.imps.CuratorFrameworkState;
+import org.apache.curator.framework.listen.Listenable;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InterProcessLockCacheTest {
+
+    AtomicInteger created;
+    InterProcessLock lock;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        created = new AtomicInteger();
+        lock = mock(InterProcessSemaphoreMutex.class);
+        when(lock.acquire(anyLong(), any(TimeUnit.class))).thenReturn(true);
+    }
+
+    @Test
+    void shouldReuseReleasedRecipe() throws Exception {
+        // Arrange
+        InterProcessLockCache cache = new InterProcessLockCache(this::createLock, 10);
+
+        // Act
+        InterProcessLock first = cache.apply("/test-key");
+        first.acquire(1, TimeUnit.SECONDS);
+        first.release();
+        InterProcessLock second = cache.apply("/test-key");
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, created.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void shouldNotShareRecipeWhileHeld() throws Exception {
+        // Arrange
+        InterProcessLockCache cache = new InterProcessLockCache(this::createLock, 10);
+
+        // Act
+        InterProcessLock first = cache.apply("/test-key");
+        first.acquire(1, TimeUnit.SECONDS);
+        InterProcessLock second = cache.apply("/test-key");
+
+        // Assert
+        assertNotSame(first, second);
+        assertEquals(2, created.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldReturnRecipeWhenAcquireTimesOut() throws Exception {
+        // Arrange
+        when(lock.acquire(anyLong(), any(TimeUnit.class))).thenReturn(false);
+        InterProcessLockCache cache = new InterProcessLockCache(this::createLock, 10);
+
+        // Act
+        InterProcessLock recipe = cache.apply("/test-key");
+        assertFalse(recipe.acquire(1, TimeUnit.SECONDS));
+
+        // Assert
+        assertEquals(1, cache.size());
+        assertSame(recipe, cache.apply("/test-key"));
+    }
+
+    @Test
+    void shouldDiscardRecipeWhenReleaseFails() throws Exception {
+        // Arrange
+        doThrow(new IllegalStateException("Not acquired")).when(lock).release();
+        InterProcessLockCache cache = new InterProcessLockCache(this::createLock, 10);
+
+        // Act
+        InterProcessLock recipe = cache.apply("/test-key");
+        recipe.acquire(1, TimeUnit.SECONDS);
+
+        // Assert
+        assertThrows(IllegalStateException.class, recipe::release);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedPathWhenFull() throws Exception {
+        // Arrange
+        InterProcessLockCache cache = new InterProcessLockCache(this::createLock, 2);
+        InterProcessLock first = cache.apply("/test-key-1");
+        InterProcessLock second = cache.apply("/test-key-2");
+        InterProcessLock third = cache.apply("/test-key-3");
+
+        // Act
+        first.release();
+        second.release();
+        third.release();
+
+        // Assert
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertNotSame(first, cache.apply("/test-key-1"));
+        assertSame(third, cache.apply("/test-key-3"));
+    }
+
+    @Test
+    void shouldEvictIdleRecipes() throws Exception {
+        // Arrange
+        InterProcessLockCache cache = new InterProcessLockCache(this::createLock, 10, Duration.ofMillis(10));
+        cache.apply("/test-key").release();
+        assertEquals(1, cache.size());
+
+        // Act
+        Thread.sleep(20);
+        cache.cleanUp();
+
+        // Assert
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    void shouldEvictIdleRecipesOfRecentlyUsedPath() throws Exception {
+        // Arrange
+        InterProcessLockCache cache = new InterProcessLockCache(this::createLock, 10, Duration.ofMillis(200));
+        InterProcessLock first = cache.apply("/test-key-1");
+        InterProcessLock second = cache.apply("/test-key-1");
+        first.release();
+        second.release();
+        Thread.sleep(150);
+        final InterProcessLock other = cache.apply("/test-key-2");
+        other.release();
+
+        // Act: reuse the most recent recipe of the first path, leaving its eldest one idle behind the other path
+        InterProcessLock reused = cache.apply("/test-key-1");
+        Thread.sleep(100);
+        cache.cleanUp();
+
+        // Assert
+        assertSame(second, reused);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertSame(other, cache.apply("/test-key-2"));
+    }
+
+    @Test
+    void shouldServeAsLockFactory() throws Exception {
+        // Arrange
+        InterProcessLockCache cache = new InterProcessLockCache(this::createLock, 10);
+        ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(mockStartedClient(), cache);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            distributedLock.acquire("/test-key").release();
+        }
+
+        // Assert
+        assertEquals(1, created.get());
+        assertEquals(4, cache.hitCount());
+        verify(lock, times(5)).release();
+    }
+
+    private InterProcessLock createLock(String path) {
+        created.incrementAndGet();
+        return lock;
+    }
+
+    private static CuratorFramework mockStartedClient() {
+        CuratorFramework client = mock(CuratorFramework.class);
+        when(client.getConnectionStateListenable()).thenReturn(mock(Listenable.class));
+        when(client.getState()).thenReturn(CuratorFrameworkState.STARTED);
+        return client;
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyPrefixesTest {
+
+    @Test
+    void shouldReturnFirstPathSegment() {
+        // Act & Assert
+        assertEquals("/orders", KeyPrefixes.firstSegment("/orders/42/lock"));
+        assertEquals("/orders", KeyPrefixes.firstSegment("/orders"));
+        assertEquals("orders", KeyPrefixes.firstSegment("orders"));
+    }
+
+    @Test
+    void shouldReturnFirstPathSegmentOfFirstKeyOfMultiKeyAcquisition() {
+        // Act & Assert
+        assertEquals("/orders", KeyPrefixes.firstSegment("[/orders/1, /payments/1]"));
+        assertEquals("/a", KeyPrefixes.firstSegment("[/a, /b]"));
+    }
+
+    @Test
+    void shouldMatchFirstPathSegment() {
+        // Act & Assert
+        assertTrue(KeyPrefixes.hasFirstSegment("/orders/42/lock", "/orders"));
+        assertTrue(KeyPrefixes.hasFirstSegment("/orders", "/orders"));
+        assertTrue(KeyPrefixes.hasFirstSegment("[/orders/1, /payments/1]", "/orders"));
+        assertTrue(KeyPrefixes.hasFirstSegment("orders", "orders"));
+        assertFalse(KeyPrefixes.hasFirstSegment("/ordersarchive/42", "/orders"));
+        assertFalse(KeyPrefixes.hasFirstSegment("/payments/42", "/orders"));
+    }
+}
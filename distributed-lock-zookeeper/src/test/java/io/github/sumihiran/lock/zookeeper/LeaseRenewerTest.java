@@ -0,0 +1,133 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.ErrorListenerMultiTransactionMain;
+import org.apache.curator.framework.api.transaction.CuratorMultiTransaction;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.zookeeper.KeeperException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LeaseRenewerTest {
+
+    CuratorFramework client;
+    ScheduledExecutorService scheduler;
+    ScheduledFuture<?> task;
+    ErrorListenerMultiTransactionMain transaction;
+    ArgumentCaptor<BackgroundCallback> callback;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = mock(CuratorFramework.class, RETURNS_DEEP_STUBS);
+        scheduler = mock(ScheduledExecutorService.class);
+        task = mock(ScheduledFuture.class);
+        doReturn(task).when(scheduler).scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any());
+
+        CuratorMultiTransaction multiTransaction = mock(CuratorMultiTransaction.class);
+        transaction = mock(ErrorListenerMultiTransactionMain.class);
+        callback = ArgumentCaptor.forClass(BackgroundCallback.class);
+        when(client.transaction()).thenReturn(multiTransaction);
+        when(multiTransaction.inBackground(callback.capture())).thenReturn(transaction);
+    }
+
+    @Test
+    void shouldRenewDueLeasesInOneTransaction() throws Exception {
+        // Arrange
+        LeaseRenewer renewer = new LeaseRenewer(client, scheduler);
+        long createdAtNanos = System.nanoTime() - TimeUnit.SECONDS.toNanos(2);
+        final LockLease first = renewer.register("/a/lock-1", Duration.ofSeconds(3), createdAtNanos);
+        final LockLease second = renewer.register("/b/lock-1", Duration.ofSeconds(3), createdAtNanos);
+        final LockLease notDue = renewer.register("/c/lock-1", Duration.ofSeconds(3), System.nanoTime());
+
+        // Act
+        renewer.renew();
+
+        // Assert
+        assertEquals(2, captureOperations().size());
+
+        // Act: transaction succeeds
+        complete(KeeperException.Code.OK);
+
+        // Assert
+        assertTrue(first.remaining().compareTo(Duration.ofSeconds(2)) > 0);
+        assertTrue(second.remaining().compareTo(Duration.ofSeconds(2)) > 0);
+        assertTrue(notDue.isActive());
+    }
+
+    @Test
+    void shouldScheduleSingleTaskAtShortestLeasePeriod() {
+        // Arrange
+        LeaseRenewer renewer = new LeaseRenewer(client, scheduler);
+
+        // Act
+        renewer.register("/a/lock-1", Duration.ofSeconds(30), System.nanoTime());
+        renewer.register("/b/lock-1", Duration.ofSeconds(60), System.nanoTime());
+        renewer.register("/c/lock-1", Duration.ofSeconds(3), System.nanoTime());
+
+        // Assert
+        verify(scheduler).scheduleWithFixedDelay(
+            any(Runnable.class), eq(TimeUnit.SECONDS.toNanos(10)), eq(TimeUnit.SECONDS.toNanos(10)), any());
+        verify(scheduler).scheduleWithFixedDelay(
+            any(Runnable.class), eq(TimeUnit.SECONDS.toNanos(1)), eq(TimeUnit.SECONDS.toNanos(1)), any());
+        verify(task).cancel(false);
+    }
+
+    @Test
+    void shouldExpireLeaseNotRenewedForItsDuration() {
+        // Arrange
+        LeaseRenewer renewer = new LeaseRenewer(client, scheduler);
+        LockLease lease = renewer.register(
+            "/a/lock-1", Duration.ofSeconds(3), System.nanoTime() - TimeUnit.SECONDS.toNanos(3));
+
+        // Act
+        renewer.renew();
+
+        // Assert
+        assertTrue(lease.expired().isDone());
+        assertFalse(lease.expired().isCancelled());
+        assertEquals(Duration.ZERO, lease.remaining());
+        assertEquals(0, renewer.size());
+        verify(task).cancel(false);
+    }
+
+    @Test
+    void shouldStopRenewingCancelledLease() {
+        // Arrange
+        LeaseRenewer renewer = new LeaseRenewer(client, scheduler);
+        LockLease lease = renewer.register("/a/lock-1", Duration.ofSeconds(3), System.nanoTime());
+
+        // Act
+        lease.cancel();
+        renewer.renew();
+
+        // Assert
+        assertEquals(0, renewer.size());
+        verify(task).cancel(false);
+        verify(client, never()).transaction();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CuratorOp> captureOperations() throws Exception {
+        ArgumentCaptor<List<CuratorOp>> operations = ArgumentCaptor.forClass(List.class);
+        verify(transaction).forOperations(operations.capture());
+        return operations.getValue();
+    }
+
+    private void complete(KeeperException.Code code) throws Exception {
+        CuratorEvent event = mock(CuratorEvent.class);
+        when(event.getResultCode()).thenReturn(code.intValue());
+        callback.getValue().processResult(client, event);
+    }
+}
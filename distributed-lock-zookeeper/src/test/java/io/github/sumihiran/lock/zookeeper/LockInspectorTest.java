@@ -0,0 +1,179 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.listen.Listenable;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.zookeeper.data.Stat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LockInspectorTest {
+
+    CuratorCache cache;
+    Listenable<CuratorCacheListener> listenable;
+
+    @BeforeEach
+    void setUp() {
+        cache = mock(CuratorCache.class);
+        listenable = mock(Listenable.class);
+        when(cache.listenable()).thenReturn(listenable);
+        when(cache.get(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void shouldReportOldestSequentialNodeAsHolder() {
+        // Arrange
+        final LockInspector inspector = new LockInspector(cache, LockPathStrategy.identity());
+        CuratorCacheListener listener = captureListener();
+        created(listener, "/locks/order/42", 0L);
+        created(listener, "/locks/order/42/locks", 0L);
+        created(listener, "/locks/order/42/leases", 0L);
+        created(listener, "/locks/order/42/locks/_c_b-lock-0000000002", 0x1234L);
+        created(listener, "/locks/order/42/locks/_c_a-lock-0000000001", 0x1234L);
+        created(listener, "/locks/order/42/locks/_c_c-lock-0000000003", 0x5678L);
+
+        // Act
+        Optional<LockInspector.Holder> holder = inspector.holder("/locks/order/42");
+
+        // Assert
+        assertTrue(inspector.isLocked("/locks/order/42"));
+        assertEquals(2, inspector.queueLength("/locks/order/42"));
+        assertTrue(holder.isPresent());
+        assertEquals("/locks/order/42/locks/_c_a-lock-0000000001", holder.get().lockNode());
+        assertEquals(OptionalLong.of(0x1234L), holder.get().sessionId());
+        assertFalse(inspector.isLocked("/locks/order/43"));
+
+        // Act: the holder releases the lock
+        deleted(listener, "/locks/order/42/locks/_c_a-lock-0000000001");
+
+        // Assert
+        assertEquals("/locks/order/42/locks/_c_b-lock-0000000002", inspector.holder("/locks/order/42").get().lockNode());
+        assertEquals(1, inspector.queueLength("/locks/order/42"));
+    }
+
+    @Test
+    void shouldReportOldestLeaseOfSemaphoreAsHolder() {
+        // Arrange
+        final LockInspector inspector = new LockInspector(cache, LockPathStrategy.identity());
+        CuratorCacheListener listener = captureListener();
+        created(listener, "/locks/job", 0L);
+        created(listener, "/locks/job/locks", 0L);
+        created(listener, "/locks/job/leases", 0L);
+        created(listener, "/locks/job/leases/_c_a-lease-0000000007", 0x1234L);
+        created(listener, "/locks/job/locks/_c_b-lock-0000000008", 0x5678L);
+        created(listener, "/locks/job/locks/_c_c-lock-0000000009", 0x9abcL);
+
+        // Act & Assert
+        assertTrue(inspector.isLocked("/locks/job"));
+        assertEquals("/locks/job/leases/_c_a-lease-0000000007", inspector.holder("/locks/job").get().lockNode());
+        assertEquals(2, inspector.queueLength("/locks/job"));
+        assertEquals(Collections.singletonList("/locks/job"), inspector.listHeld("/locks"));
+
+        // Act: the holder returns its lease
+        deleted(listener, "/locks/job/leases/_c_a-lease-0000000007");
+
+        // Assert: the oldest node below locks takes the lock, with a lease or with that node
+        assertEquals("/locks/job/locks/_c_b-lock-0000000008", inspector.holder("/locks/job").get().lockNode());
+        assertEquals(1, inspector.queueLength("/locks/job"));
+
+        // Act: all waiters give up
+        deleted(listener, "/locks/job/locks/_c_b-lock-0000000008");
+        deleted(listener, "/locks/job/locks/_c_c-lock-0000000009");
+
+        // Assert
+        assertFalse(inspector.isLocked("/locks/job"));
+        assertEquals(Collections.emptyList(), inspector.listHeld("/locks"));
+    }
+
+    @Test
+    void shouldListHeldKeysBelowPrefixThroughHashBuckets() {
+        // Arrange
+        LockPathStrategy lockPaths = LockPathStrategy.hashBuckets(1);
+        LockInspector inspector = new LockInspector(cache, lockPaths);
+        CuratorCacheListener listener = captureListener();
+        for (String key : Arrays.asList("/orders/1", "/orders/2", "/invoices/1")) {
+            String path = lockPaths.lockPath(key);
+            created(listener, path.substring(0, path.lastIndexOf('/')), 0L);
+            created(listener, path, 0L);
+            created(listener, path + "/_c_a-lock-0000000000", 0x1234L);
+        }
+        created(listener, lockPaths.lockPath("/orders/3"), 0L);
+
+        // Act
+        List<String> held = inspector.listHeld("/orders");
+
+        // Assert
+        assertEquals(Arrays.asList("/orders/1", "/orders/2"), held);
+    }
+
+    @Test
+    void shouldListOnlyKeysAtOrBelowPrefixThatAreStillHeld() {
+        // Arrange
+        LockInspector inspector = new LockInspector(cache, LockPathStrategy.identity());
+        CuratorCacheListener listener = captureListener();
+        for (String key : Arrays.asList("/orders", "/orders/1", "/orders/2", "/orders-archive/1", "/ordersx")) {
+            created(listener, key, 0L);
+            created(listener, key + "/_c_a-lock-0000000000", 0x1234L);
+        }
+
+        // Act
+        deleted(listener, "/orders/2/_c_a-lock-0000000000");
+
+        // Assert
+        assertEquals(Arrays.asList("/orders", "/orders/1"), inspector.listHeld("/orders"));
+        assertEquals(Collections.singletonList("/orders/1"), inspector.listHeld("/orders/"));
+        assertEquals(Collections.emptyList(), inspector.listHeld("/invoices"));
+    }
+
+    @Test
+    void shouldNotifyListenersOfChangedKeysOnceInitialized() {
+        // Arrange
+        LockInspector inspector = new LockInspector(cache, LockPathStrategy.identity());
+        CuratorCacheListener listener = captureListener();
+        List<String> changed = new ArrayList<>();
+        inspector.addListener(changed::add);
+        created(listener, "/locks/job", 0L);
+        created(listener, "/locks/job/_c_a-lock-0000000000", 0x1234L);
+
+        // Act
+        listener.initialized();
+        created(listener, "/locks/job/_c_b-lock-0000000001", 0x5678L);
+        created(listener, "/locks/other", 0L);
+        deleted(listener, "/locks/job/_c_a-lock-0000000000");
+
+        // Assert
+        assertEquals(Arrays.asList("/locks/job", "/locks/job"), changed);
+    }
+
+    private CuratorCacheListener captureListener() {
+        ArgumentCaptor<CuratorCacheListener> listener = ArgumentCaptor.forClass(CuratorCacheListener.class);
+        verify(listenable).addListener(listener.capture());
+        return listener.getValue();
+    }
+
+    private void created(CuratorCacheListener listener, String path, long ephemeralOwner) {
+        Stat stat = new Stat();
+        stat.setEphemeralOwner(ephemeralOwner);
+        ChildData data = new ChildData(path, stat, null);
+        when(cache.get(path)).thenReturn(Optional.of(data));
+        listener.event(CuratorCacheListener.Type.NODE_CREATED, null, data);
+    }
+
+    private void deleted(CuratorCacheListener listener, String path) {
+        ChildData data = cache.get(path).orElseThrow(IllegalStateException::new);
+        when(cache.get(path)).thenReturn(Optional.empty());
+        listener.event(CuratorCacheListener.Type.NODE_DELETED, data, null);
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.utils.PathUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LockKeyTest {
+
+    @Test
+    void shouldUseSafeNamesAsTheyAre() {
+        // Act
+        LockKey key = LockKey.of("/locks/order", "order-42_v1.0");
+
+        // Assert
+        assertEquals("/locks/order/order-42_v1.0", key.path());
+        assertEquals("order-42_v1.0", key.name());
+        assertEquals("/locks/order", key.namespace().path());
+        assertEquals("/42", LockKey.of("/", "42").path());
+    }
+
+    @Test
+    void shouldEscapeNamesIntoSingleNodeName() {
+        // Arrange
+        LockKey.Namespace namespace = LockKey.namespace("/locks");
+
+        // Act & Assert
+        assertEquals("/locks/a%2Fb%20c", namespace.key("a/b c").path());
+        assertEquals("/locks/%C3%BCber%7E", namespace.key("\u00fcber~").path()); // u with diaeresis
+        assertEquals("/locks/%2E%2E", namespace.key("..").path());
+        assertEquals("/locks/%00", namespace.key("\u0000").path());
+        PathUtils.validatePath(namespace.key("\u0000/\ud83d\udd12 ..").path()); // lock emoji
+    }
+
+    @Test
+    void shouldHashNamesBeyondMaxNodeNameLength() {
+        // Arrange
+        LockKey.Namespace namespace = LockKey.namespace("/locks");
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            longName.append("\u00fc"); // u with diaeresis
+        }
+
+        // Act
+        LockKey first = namespace.key(longName + "1");
+        LockKey second = namespace.key(longName + "2");
+
+        // Assert
+        String nodeName = first.path().substring("/locks/".length());
+        assertEquals(LockKey.MAX_NODE_NAME_LENGTH - 5, nodeName.length());
+        assertTrue(nodeName.matches("(%C3%BC)+~[0-9A-F]{32}"));
+        assertNotEquals(first, second);
+        assertEquals(first, namespace.key(longName + "1"));
+        String longestPlainName = String.join("", Collections.nCopies(LockKey.MAX_NODE_NAME_LENGTH, "a"));
+        assertEquals("/locks/" + longestPlainName, namespace.key(longestPlainName).path());
+        assertTrue(namespace.key(longestPlainName + "a").path().contains("~"));
+    }
+
+    @Test
+    void shouldRejectInvalidNamespacesAndEmptyNames() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> LockKey.namespace("locks"));
+        assertThrows(IllegalArgumentException.class, () -> LockKey.namespace("/locks/"));
+        assertThrows(IllegalArgumentException.class, () -> LockKey.of("/locks", ""));
+    }
+
+    @Test
+    void shouldAcquireLockOfPath() throws Exception {
+        // Arrange
+        DistributedLock distributedLock = mock(DistributedLock.class, CALLS_REAL_METHODS);
+        Acquisition acquisition = mock(Acquisition.class);
+        doReturn(acquisition).when(distributedLock).acquire("/locks/a%2Fb", Duration.ofSeconds(1));
+
+        // Act
+        Acquisition acquired = distributedLock.acquire(LockKey.of("/locks", "a/b"), Duration.ofSeconds(1));
+
+        // Assert
+        assertSame(acquisition, acquired);
+    }
+}
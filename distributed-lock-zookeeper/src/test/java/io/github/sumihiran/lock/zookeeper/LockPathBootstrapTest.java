@@ -0,0 +1,27 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockPathBootstrapTest {
+
+    @Test
+    void shouldListParentsOnceAndBeforeTheirChildren() {
+        // Act & Assert
+        assertEquals(
+            Arrays.asList("/locks", "/locks-other", "/locks-other/1", "/locks/order", "/locks/order/1", "/locks/order/2"),
+            LockPathBootstrap.withParents(Arrays.asList("/locks/order/2", "/locks-other/1", "/locks/order/1")));
+        assertEquals(Collections.emptyList(), LockPathBootstrap.withParents(Collections.singletonList("/")));
+    }
+
+    @Test
+    void shouldRejectInvalidPaths() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+            () -> LockPathBootstrap.withParents(Collections.singletonList("locks/order")));
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockPathStrategyTest {
+
+    @Test
+    void shouldUseKeyAsPath() {
+        // Act & Assert
+        assertEquals("/locks/order/42", LockPathStrategy.identity().lockPath("/locks/order/42"));
+    }
+
+    @Test
+    void shouldInsertBucketsInFrontOfLastSegment() {
+        // Arrange
+        LockPathStrategy oneLevel = LockPathStrategy.hashBuckets(1);
+        LockPathStrategy twoLevels = LockPathStrategy.hashBuckets(2);
+
+        // Act
+        String path = oneLevel.lockPath("/locks/order/42");
+        String nestedPath = twoLevels.lockPath("/locks/order/42");
+
+        // Assert
+        assertTrue(path.matches("/locks/order/[0-9a-f]{2}/42"), path);
+        assertTrue(nestedPath.matches("/locks/order/[0-9a-f]{2}/[0-9a-f]{2}/42"), nestedPath);
+        assertTrue(nestedPath.startsWith(path.substring(0, path.length() - "42".length())), nestedPath);
+        assertEquals(path, oneLevel.lockPath("/locks/order/42"));
+        assertTrue(oneLevel.lockPath("/42").matches("/[0-9a-f]{2}/42"));
+    }
+
+    @Test
+    void shouldMapLockPathsBackToKeys() {
+        // Arrange
+        LockPathStrategy identity = LockPathStrategy.identity();
+        LockPathStrategy threeLevels = LockPathStrategy.hashBuckets(3);
+
+        // Act & Assert
+        assertEquals("/locks/order/42", identity.key(identity.lockPath("/locks/order/42")));
+        assertEquals("/locks/order/42", threeLevels.key(threeLevels.lockPath("/locks/order/42")));
+        assertEquals("/42", threeLevels.key(threeLevels.lockPath("/42")));
+    }
+
+    @Test
+    void shouldSpreadSequentialIdsEvenlyOverBuckets() {
+        // Arrange
+        LockPathStrategy strategy = LockPathStrategy.hashBuckets(1);
+        Map<String, Integer> keysPerBucket = new HashMap<>();
+
+        // Act
+        for (int id = 0; id < 256 * 100; id++) {
+            String path = strategy.lockPath("/locks/order/" + id);
+            keysPerBucket.merge(path.substring(0, path.lastIndexOf('/')), 1, Integer::sum);
+        }
+
+        // Assert
+        assertEquals(256, keysPerBucket.size());
+        for (int keys : keysPerBucket.values()) {
+            assertTrue(keys > 50 && keys < 150, "keys per bucket: " + keys);
+        }
+    }
+
+    @Test
+    void shouldMapDistinctKeysToDistinctPaths() {
+        // Arrange
+        LockPathStrategy strategy = LockPathStrategy.hashBuckets(3);
+        Set<String> paths = new HashSet<>();
+
+        // Act
+        for (int id = 0; id < 10_000; id++) {
+            paths.add(strategy.lockPath("/locks/order/" + id));
+        }
+
+        // Assert
+        assertEquals(10_000, paths.size());
+    }
+
+    @Test
+    void shouldRejectLevelsOutOfRange() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> LockPathStrategy.hashBuckets(0));
+        assertThrows(IllegalArgumentException.class, () -> LockPathStrategy.hashBuckets(4));
+    }
+}
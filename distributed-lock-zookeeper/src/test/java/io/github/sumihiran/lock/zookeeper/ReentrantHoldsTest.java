@@ -0,0 +1,114 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReentrantHoldsTest {
+
+    ReentrantHolds holds;
+    Acquisition acquisition;
+
+    @BeforeEach
+    void setUp() {
+        holds = new ReentrantHolds();
+        acquisition = mock(Acquisition.class);
+        when(acquisition.isAcquired()).thenReturn(true);
+    }
+
+    @Test
+    void shouldReleaseLockWithLastHold() throws Exception {
+        // Arrange
+        Acquisition first = holds.enter("/test-key", acquisition);
+        Acquisition nested = holds.reenter("/test-key");
+
+        // Act
+        nested.release();
+
+        // Assert
+        assertFalse(nested.isAcquired());
+        assertTrue(first.isAcquired());
+        verify(acquisition, never()).release();
+
+        // Act
+        first.release();
+
+        // Assert
+        verify(acquisition).release();
+        assertEquals(0, holds.size());
+        assertNull(holds.reenter("/test-key"));
+    }
+
+    @Test
+    void shouldReleaseHoldOnlyOnce() throws Exception {
+        // Arrange
+        final Acquisition first = holds.enter("/test-key", acquisition);
+        Acquisition nested = holds.reenter("/test-key");
+
+        // Act
+        nested.release();
+        nested.release();
+
+        // Assert
+        verify(acquisition, never()).release();
+        assertTrue(first.isAcquired());
+    }
+
+    @Test
+    void shouldNotReenterLostLock() throws Exception {
+        // Arrange
+        final Acquisition first = holds.enter("/test-key", acquisition);
+        when(acquisition.isAcquired()).thenReturn(false);
+        Acquisition reacquired = mock(Acquisition.class);
+        when(reacquired.isAcquired()).thenReturn(true);
+
+        // Act
+        Acquisition nested = holds.reenter("/test-key");
+        final Acquisition second = holds.enter("/test-key", reacquired);
+        first.release();
+
+        // Assert
+        assertNull(nested);
+        verify(acquisition).release();
+        assertTrue(second.isAcquired());
+        assertEquals(1, holds.size());
+    }
+
+    @Test
+    void shouldRejectReleaseFromOtherThread() throws Exception {
+        // Arrange
+        Acquisition first = holds.enter("/test-key", acquisition);
+
+        // Act & Assert
+        CompletableFuture.runAsync(() -> assertThrows(IllegalMonitorStateException.class, first::release)).get();
+        verify(acquisition, never()).release();
+    }
+
+    @Test
+    void shouldTrackManyKeys() throws Exception {
+        // Arrange
+        List<Acquisition> held = new ArrayList<>();
+        for (int id = 0; id < 100; id++) {
+            held.add(holds.enter("/test-key/" + id, acquisition));
+        }
+
+        // Act: release every other key
+        for (int id = 0; id < 100; id += 2) {
+            held.get(id).release();
+        }
+
+        // Assert
+        assertEquals(50, holds.size());
+        for (int id = 0; id < 100; id++) {
+            Acquisition nested = holds.reenter("/test-key/" + id);
+            assertEquals(id % 2 == 1, nested != null, "key " + id);
+        }
+        verify(acquisition, times(50)).release();
+    }
+}
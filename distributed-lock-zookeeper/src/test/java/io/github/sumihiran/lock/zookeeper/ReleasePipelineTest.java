@@ -0,0 +1,214 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.ErrorListenerMultiTransactionMain;
+import org.apache.curator.framework.api.transaction.CuratorMultiTransaction;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+import org.apache.zookeeper.KeeperException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReleasePipelineTest {
+
+    CuratorFramework client;
+    ScheduledExecutorService scheduler;
+    ExecutorService backgroundReleases;
+    ErrorListenerMultiTransactionMain transaction;
+    ArgumentCaptor<BackgroundCallback> callback;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        client = mock(CuratorFramework.class, RETURNS_DEEP_STUBS);
+        scheduler = mock(ScheduledExecutorService.class);
+        backgroundReleases = mock(ExecutorService.class);
+
+        CuratorMultiTransaction multiTransaction = mock(CuratorMultiTransaction.class);
+        transaction = mock(ErrorListenerMultiTransactionMain.class);
+        callback = ArgumentCaptor.forClass(BackgroundCallback.class);
+        when(client.transaction()).thenReturn(multiTransaction);
+        when(multiTransaction.inBackground(callback.capture())).thenReturn(transaction);
+    }
+
+    @Test
+    void shouldDeleteNodesOfManyReleasesInOneTransaction() throws Exception {
+        // Arrange
+        ReleasePipeline pipeline = new ReleasePipeline(client, scheduler, backgroundReleases, 3, Duration.ofMinutes(1));
+
+        // Act
+        CompletableFuture<Void> first = pipeline.release(nodeBackedLock("/a/lock-1"));
+        final CompletableFuture<Void> second = pipeline.release(nodeBackedLock("/b/lock-1"));
+        assertFalse(first.isDone());
+        CompletableFuture<Void> third = pipeline.release(nodeBackedLock("/c/lock-1"));
+
+        // Assert
+        List<CuratorOp> operations = captureOperations();
+        assertEquals(3, operations.size());
+
+        // Act: transaction succeeds
+        complete(KeeperException.Code.OK);
+
+        // Assert
+        assertTrue(first.isDone() && second.isDone() && third.isDone());
+        assertFalse(first.isCompletedExceptionally());
+    }
+
+    @Test
+    void shouldFlushBatchAfterMaxDelay() throws Exception {
+        // Arrange
+        ReleasePipeline pipeline = new ReleasePipeline(client, scheduler, backgroundReleases, 100, Duration.ofMillis(5));
+        final ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), anyLong(), any());
+
+        // Act
+        pipeline.release(nodeBackedLock("/a/lock-1"));
+        pipeline.release(nodeBackedLock("/b/lock-1"));
+
+        // Assert
+        verify(scheduler).schedule(flush.capture(), eq(5_000_000L), eq(TimeUnit.NANOSECONDS));
+        verify(transaction, never()).forOperations(anyList());
+
+        // Act: flush is due
+        flush.getValue().run();
+
+        // Assert
+        assertEquals(2, captureOperations().size());
+    }
+
+    @Test
+    void shouldFailReleaseOfLockNotAcquired() {
+        // Arrange
+        ReleasePipeline pipeline = new ReleasePipeline(client, scheduler, backgroundReleases, 100, Duration.ofMillis(5));
+        NodeBackedLock lock = mock(NodeBackedLock.class);
+        when(lock.releaseNodes()).thenThrow(new IllegalStateException("Lock is not acquired"));
+
+        // Act
+        CompletableFuture<Void> released = pipeline.release(lock);
+
+        // Assert
+        assertTrue(released.isCompletedExceptionally());
+        verifyNoInteractions(scheduler);
+    }
+
+    @Test
+    void shouldReleaseSemaphoreMutexesInBackground() throws Exception {
+        // Arrange
+        ReleasePipeline pipeline = new ReleasePipeline(client, scheduler, backgroundReleases, 100, Duration.ofMillis(5));
+        InterProcessLock lock = mock(InterProcessSemaphoreMutex.class);
+        ArgumentCaptor<Runnable> release = ArgumentCaptor.forClass(Runnable.class);
+
+        // Act
+        CompletableFuture<Void> released = pipeline.release(lock);
+
+        // Assert
+        assertFalse(released.isDone());
+        verify(lock, never()).release();
+
+        // Act
+        verify(backgroundReleases).execute(release.capture());
+        release.getValue().run();
+
+        // Assert
+        verify(lock).release();
+        assertTrue(released.isDone());
+        verifyNoInteractions(scheduler);
+    }
+
+    @Test
+    void shouldReleaseOtherLocksSynchronously() throws Exception {
+        // Arrange
+        ReleasePipeline pipeline = new ReleasePipeline(client, scheduler, backgroundReleases, 100, Duration.ofMillis(5));
+        InterProcessLock lock = mock(InterProcessMutex.class);
+
+        // Act
+        CompletableFuture<Void> released = pipeline.release(lock);
+
+        // Assert
+        verify(lock).release();
+        assertTrue(released.isDone());
+        verifyNoInteractions(scheduler, backgroundReleases);
+    }
+
+    @Test
+    void shouldReleaseCachedSemaphoreMutexesInBackground() throws Exception {
+        // Arrange
+        ReleasePipeline pipeline = new ReleasePipeline(client, scheduler, backgroundReleases, 100, Duration.ofMillis(5));
+        InterProcessLock delegate = mock(InterProcessSemaphoreMutex.class);
+        InterProcessLock lock = new InterProcessLockCache(path -> delegate, 1).apply("/locks/job");
+
+        // Act
+        CompletableFuture<Void> released = pipeline.release(lock);
+
+        // Assert
+        assertFalse(released.isDone());
+        verify(delegate, never()).release();
+        verify(backgroundReleases).execute(any(Runnable.class));
+    }
+
+    @Test
+    void shouldReleaseCachedMutexesSynchronously() throws Exception {
+        // Arrange
+        ReleasePipeline pipeline = new ReleasePipeline(client, scheduler, backgroundReleases, 100, Duration.ofMillis(5));
+        InterProcessLock delegate = mock(InterProcessMutex.class);
+        InterProcessLock lock = new InterProcessLockCache(path -> delegate, 1).apply("/locks/job");
+
+        // Act
+        CompletableFuture<Void> released = pipeline.release(lock);
+
+        // Assert
+        verify(delegate).release();
+        assertTrue(released.isDone());
+        verifyNoInteractions(backgroundReleases);
+    }
+
+    @Test
+    void shouldReleaseCoalescedLocksInBackground() {
+        // Arrange
+        ReleasePipeline pipeline = new ReleasePipeline(client, scheduler, backgroundReleases, 100, Duration.ofMillis(5));
+        InterProcessLock lock = new CoalescingLockFactory(client, path -> mock(InterProcessSemaphoreMutex.class))
+            .apply("/locks/job");
+
+        // Act
+        CompletableFuture<Void> released = pipeline.release(lock);
+
+        // Assert
+        assertFalse(released.isDone());
+        verify(backgroundReleases).execute(any(Runnable.class));
+    }
+
+    private static NodeBackedLock nodeBackedLock(String node) {
+        NodeBackedLock lock = mock(NodeBackedLock.class);
+        when(lock.releaseNodes()).thenReturn(Collections.singletonList(node));
+        return lock;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CuratorOp> captureOperations() throws Exception {
+        ArgumentCaptor<List<CuratorOp>> operations = ArgumentCaptor.forClass(List.class);
+        verify(transaction).forOperations(operations.capture());
+        return operations.getValue();
+    }
+
+    private void complete(KeeperException.Code code) throws Exception {
+        CuratorEvent event = mock(CuratorEvent.class);
+        when(event.getResultCode()).thenReturn(code.intValue());
+        callback.getValue().processResult(client, event);
+    }
+}
@@ -9,9 +9,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockAcquisitionException;
+import io.github.sumihiran.lock.zookeeper.metrics.LockMetrics;
 
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -94,7 +101,47 @@ class ZookeeperDistributedLockTest {
         );
 
         assertEquals(
-            "Failed to acquire lock for key: /path/to/lock", exception.getMessage());
+            "Failed to acquire lock for key: /path/to/lock within timeout: PT1S", exception.getMessage());
+        assertNull(exception.getCause());
+    }
+
+    @Test
+    void shouldReturnAcquisitionWhenTryAcquireSucceeds() throws Exception {
+        // Arrange
+        when(lock.acquire(anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+        // Act
+        Optional<Acquisition> acquisition = distributedLock.tryAcquire(lockNodePath, Duration.ZERO);
+
+        // Assert
+        assertTrue(acquisition.isPresent());
+        assertTrue(acquisition.get().isAcquired());
+        verify(lock).acquire(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void shouldReturnEmptyWhenTryAcquireTimesOut() throws Exception {
+        // Arrange
+        when(lock.acquire(anyLong(), any(TimeUnit.class))).thenReturn(false);
+
+        // Act
+        Optional<Acquisition> acquisition = distributedLock.tryAcquire(lockNodePath, Duration.ofSeconds(1));
+
+        // Assert
+        assertFalse(acquisition.isPresent());
+    }
+
+    @Test
+    void shouldThrowLockAcquisitionExceptionWhenTryAcquireFails() throws Exception {
+        // Arrange
+        RuntimeException failure = new RuntimeException("Acquire failed");
+        when(lock.acquire(anyLong(), any(TimeUnit.class))).thenThrow(failure);
+
+        // Act & Assert
+        ZookeeperLockAcquisitionException exception = assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> distributedLock.tryAcquire(lockNodePath, Duration.ofSeconds(1)));
+
+        assertSame(failure, exception.getCause());
     }
 
     @Test
@@ -116,5 +163,224 @@ class ZookeeperDistributedLockTest {
         );
     }
 
+    @Test
+    void shouldCompleteExceptionallyWhenClientNotStartedForAsyncAcquire() {
+        // Arrange
+        when(client.getState()).thenReturn(CuratorFrameworkState.LATENT);
+
+        // Act
+        CompletableFuture<Acquisition> future = distributedLock.acquireAsync("/test-key", Duration.ofSeconds(1));
+
+        // Assert
+        ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(ZookeeperLockAcquisitionException.class, exception.getCause());
+        assertInstanceOf(IllegalStateException.class, exception.getCause().getCause());
+    }
+
+    @Test
+    void shouldThrowLockAcquisitionExceptionWhenClientNotStartedForReadWriteLocks() {
+        // Arrange
+        when(client.getState()).thenReturn(CuratorFrameworkState.LATENT);
+
+        // Act & Assert
+        ZookeeperLockAcquisitionException readException = assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> distributedLock.acquireRead("/test-key", Duration.ofSeconds(1)));
+        ZookeeperLockAcquisitionException writeException = assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> distributedLock.acquireWrite("/test-key", Duration.ofSeconds(1)));
+
+        assertInstanceOf(IllegalStateException.class, readException.getCause());
+        assertInstanceOf(IllegalStateException.class, writeException.getCause());
+    }
+
+    @Test
+    void shouldThrowIllegalStateExceptionWhenClosed() {
+        // Arrange
+        distributedLock.close();
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+            () -> distributedLock.acquire("/test-key", Duration.ofSeconds(1)));
+        assertThrows(IllegalStateException.class, () -> distributedLock.acquireAsync("/test-key", Duration.ofSeconds(1)));
+        assertThrows(IllegalStateException.class,
+            () -> distributedLock.acquireAll(Collections.singletonList("/test-key"), Duration.ofSeconds(1)));
+        assertEquals("ZookeeperDistributedLock is closed", exception.getMessage());
+        verifyNoInteractions(lock);
+    }
+
+    @Test
+    void shouldRejectPermitsWithoutPermitLimit() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> distributedLock.acquirePermits("/test-key", 1, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void shouldRejectPermitsOutsideOfPermitLimit() {
+        // Arrange
+        ZookeeperDistributedLock permitLock = ZookeeperDistributedLock.builder(client)
+            .permitLimits(key -> key.equals("/test-key") ? 4 : 1)
+            .build();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> permitLock.acquirePermits("/test-key", 0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> permitLock.acquirePermits("/test-key", 5, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> permitLock.acquirePermits("/other-key", 2, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void shouldUseLockFunctionOfBuilder() throws Exception {
+        // Arrange
+        when(lock.acquire(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        ZookeeperDistributedLock builtLock = ZookeeperDistributedLock.builder(client)
+            .lockFunction(path -> lock)
+            .build();
+
+        // Act
+        builtLock.acquire(lockNodePath).release();
+
+        // Assert
+        verify(lock).acquire(anyLong(), any(TimeUnit.class));
+        verify(lock).release();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCreateLockForPathOfLockPathStrategy() throws Exception {
+        // Arrange
+        when(lock.acquire(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        Function<String, InterProcessLock> lockFunction = mock(Function.class);
+        when(lockFunction.apply(anyString())).thenReturn(lock);
+        ZookeeperDistributedLock builtLock = ZookeeperDistributedLock.builder(client)
+            .lockFunction(lockFunction)
+            .lockPaths(key -> "/sharded" + key)
+            .build();
+
+        // Act
+        builtLock.acquire(lockNodePath).release();
+
+        // Assert
+        verify(lockFunction).apply("/sharded" + lockNodePath);
+    }
+
+    @Test
+    void shouldReacquireHeldLockWithoutZookeeperWhenReentrant() throws Exception {
+        // Arrange
+        when(lock.acquire(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        ZookeeperDistributedLock reentrantLock = ZookeeperDistributedLock.builder(client)
+            .lockFunction(path -> lock)
+            .reentrant(true)
+            .build();
+
+        // Act
+        Acquisition outer = reentrantLock.acquire(lockNodePath);
+        Acquisition nested = reentrantLock.acquire(lockNodePath, Duration.ofSeconds(1));
+        Optional<Acquisition> tried = reentrantLock.tryAcquire(lockNodePath, Duration.ZERO);
+        nested.release();
+        tried.get().release();
+
+        // Assert
+        assertTrue(outer.isAcquired());
+        verify(lock).acquire(anyLong(), any(TimeUnit.class));
+        verify(lock, never()).release();
+
+        // Act
+        outer.release();
+
+        // Assert
+        verify(lock).release();
+    }
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionWhenAcquiringNoKeys() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+            () -> distributedLock.acquireAll(Collections.emptyList(), Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void shouldThrowLockAcquisitionExceptionWhenClientNotStartedForAcquireAll() {
+        // Arrange
+        when(client.getState()).thenReturn(CuratorFrameworkState.LATENT);
+
+        // Act & Assert
+        ZookeeperLockAcquisitionException exception = assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> distributedLock.acquireAll(Arrays.asList("/test-key-b", "/test-key-a"), Duration.ofSeconds(1)));
+
+        assertEquals("Failed to acquire locks for keys: [/test-key-a, /test-key-b]", exception.getMessage());
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    void shouldReportAcquireAndReleaseToMetrics() throws Exception {
+        // Arrange
+        LockMetrics metrics = mock(LockMetrics.class);
+        ZookeeperDistributedLock measuredLock = ZookeeperDistributedLock.builder(client)
+            .lockFunction(path -> lock)
+            .metrics(metrics)
+            .build();
+        when(lock.acquire(anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+        // Act
+        measuredLock.acquire(lockNodePath).release();
+
+        // Assert
+        verify(metrics).acquireStarted(lockNodePath);
+        verify(metrics).acquired(eq(lockNodePath), anyLong());
+        verify(metrics).released(eq(lockNodePath), anyLong());
+        verifyNoMoreInteractions(metrics);
+    }
+
+    @Test
+    void shouldReportTimeoutAndFailureToMetricsOnce() throws Exception {
+        // Arrange
+        LockMetrics metrics = mock(LockMetrics.class);
+        ZookeeperDistributedLock measuredLock = ZookeeperDistributedLock.builder(client)
+            .lockFunction(path -> lock)
+            .metrics(metrics)
+            .build();
+        when(lock.acquire(anyLong(), any(TimeUnit.class)))
+            .thenReturn(false)
+            .thenThrow(new RuntimeException("Acquire failed"));
+
+        // Act
+        assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> measuredLock.acquire(lockNodePath, Duration.ofSeconds(1)));
+        assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> measuredLock.acquire(lockNodePath, Duration.ofSeconds(1)));
+
+        // Assert
+        verify(metrics, times(2)).acquireStarted(lockNodePath);
+        verify(metrics).acquireTimedOut(eq(lockNodePath), anyLong());
+        verify(metrics).acquireFailed(eq(lockNodePath), anyLong());
+        verifyNoMoreInteractions(metrics);
+    }
+
+    @Test
+    void shouldRejectLeaseShorterThanOneMillisecond() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+            () -> distributedLock.acquireWithLease(lockNodePath, Duration.ofNanos(999_999), Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class,
+            () -> distributedLock.acquireWithLease(lockNodePath, Duration.ZERO, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void shouldRejectNegativeLogSampleInterval() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+            () -> ZookeeperDistributedLock.builder(client).logSampleInterval(Duration.ofSeconds(-1)));
+    }
+
+    @Test
+    void shouldNotReportLeaseOfLockWithoutLease() throws Exception {
+        // Arrange
+        when(lock.acquire(anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+        // Act
+        Acquisition handle = distributedLock.acquire(lockNodePath);
+
+        // Assert
+        assertFalse(handle.remainingLease().isPresent());
+    }
+
 
 }
@@ -0,0 +1,146 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockAcquisitionException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ZookeeperLockRouterTest {
+
+    ZookeeperDistributedLock lockA;
+    ZookeeperDistributedLock lockB;
+    ZookeeperLockRouter router;
+
+    @BeforeEach
+    void setUp() {
+        final CuratorFramework clientA = mock(CuratorFramework.class);
+        final CuratorFramework clientB = mock(CuratorFramework.class);
+        lockA = mock(ZookeeperDistributedLock.class);
+        lockB = mock(ZookeeperDistributedLock.class);
+        Map<CuratorFramework, ZookeeperDistributedLock> locks = new HashMap<>();
+        locks.put(clientA, lockA);
+        locks.put(clientB, lockB);
+        router = ZookeeperLockRouter.builder()
+            .shard("b", clientB)
+            .shard("a", clientA)
+            .lockFactory(locks::get)
+            .build();
+    }
+
+    @Test
+    void shouldAcquireLockOnShardOfKey() throws Exception {
+        // Arrange
+        String keyA = keyOfShard("a");
+        String keyB = keyOfShard("b");
+        Acquisition acquisition = mock(Acquisition.class);
+        when(lockA.acquire(keyA, Duration.ofSeconds(1))).thenReturn(acquisition);
+
+        // Act
+        Acquisition acquired = router.acquire(keyA, Duration.ofSeconds(1));
+        router.acquireAsync(keyB, Duration.ofSeconds(1));
+
+        // Assert
+        assertSame(acquisition, acquired);
+        verify(lockB).acquireAsync(keyB, Duration.ofSeconds(1));
+        verifyNoMoreInteractions(lockB);
+    }
+
+    @Test
+    void shouldAcquireKeysOfShardsInOrderOfShardNames() throws Exception {
+        // Arrange
+        String keyA = keyOfShard("a");
+        String keyB = keyOfShard("b");
+        Acquisition acquisitionA = mock(Acquisition.class);
+        Acquisition acquisitionB = mock(Acquisition.class);
+        when(lockA.acquireAll(eq(Collections.singletonList(keyA)), any())).thenReturn(acquisitionA);
+        when(lockB.acquireAll(eq(Collections.singletonList(keyB)), any())).thenReturn(acquisitionB);
+
+        // Act
+        Acquisition acquired = router.acquireAll(Arrays.asList(keyB, keyA), Duration.ofSeconds(1));
+        acquired.release();
+
+        // Assert
+        InOrder inOrder = inOrder(lockA, lockB, acquisitionA, acquisitionB);
+        inOrder.verify(lockA).acquireAll(eq(Collections.singletonList(keyA)), any());
+        inOrder.verify(lockB).acquireAll(eq(Collections.singletonList(keyB)), any());
+        inOrder.verify(acquisitionB).release();
+        inOrder.verify(acquisitionA).release();
+    }
+
+    @Test
+    void shouldReleaseAcquiredShardsWhenNextShardTimesOut() throws Exception {
+        // Arrange
+        String keyA = keyOfShard("a");
+        String keyB = keyOfShard("b");
+        Acquisition acquisitionA = mock(Acquisition.class);
+        when(lockA.acquireAll(anyList(), any())).thenReturn(acquisitionA);
+        when(lockB.acquireAll(anyList(), any())).thenThrow(new ZookeeperLockAcquisitionException("timeout"));
+
+        // Act & Assert
+        assertThrows(ZookeeperLockAcquisitionException.class,
+            () -> router.acquireAll(Arrays.asList(keyA, keyB), Duration.ofSeconds(1)));
+        verify(acquisitionA).release();
+    }
+
+    @Test
+    void shouldBootstrapKeysOnTheirShards() {
+        // Arrange
+        String keyA = keyOfShard("a");
+        String keyB = keyOfShard("b");
+        when(lockA.bootstrap(eq(Collections.singletonList(keyA)), any())).thenReturn(2);
+        when(lockB.bootstrap(eq(Collections.singletonList(keyB)), any())).thenReturn(1);
+
+        // Act
+        int created = router.bootstrap(Arrays.asList(keyB, keyA), Duration.ofSeconds(1));
+
+        // Assert
+        assertEquals(3, created);
+        InOrder inOrder = inOrder(lockA, lockB);
+        inOrder.verify(lockA).bootstrap(eq(Collections.singletonList(keyA)), any());
+        inOrder.verify(lockB).bootstrap(eq(Collections.singletonList(keyB)), any());
+    }
+
+    @Test
+    void shouldCloseLocksOfAllShards() {
+        // Act
+        router.close();
+
+        // Assert
+        verify(lockA).close();
+        verify(lockB).close();
+    }
+
+    @Test
+    void shouldRejectMissingAndDuplicateShards() {
+        // Arrange
+        CuratorFramework client = mock(CuratorFramework.class);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ZookeeperLockRouter.builder().build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ZookeeperLockRouter.builder().shard("a", client).shard("a", client));
+    }
+
+    private String keyOfShard(String shard) {
+        List<String> keys = new ArrayList<>();
+        for (int id = 0; keys.isEmpty(); id++) {
+            if (router.shardOf("/orders/" + id).equals(shard)) {
+                keys.add("/orders/" + id);
+            }
+        }
+        return keys.get(0);
+    }
+}
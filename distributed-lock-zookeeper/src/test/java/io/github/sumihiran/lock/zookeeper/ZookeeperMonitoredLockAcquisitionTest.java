@@ -10,7 +10,18 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockLostException;
 import io.github.sumihiran.lock.zookeeper.exceptions.ZookeeperLockReleaseException;
+import io.github.sumihiran.lock.zookeeper.metrics.LockMetrics;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -91,6 +102,28 @@ class ZookeeperMonitoredLockAcquisitionTest {
         assertTrue(lockAcquisition.isLockLost());
     }
 
+    @Test
+    void shouldReportLostLockToMetricsOnce() {
+        // Arrange
+        LockMetrics metrics = mock(LockMetrics.class);
+        ConnectionStateRegistry registry = new ConnectionStateRegistry(client);
+        final ZookeeperMonitoredLockAcquisition measured =
+            new ZookeeperMonitoredLockAcquisition(registry, null, metrics, FailureLog.UNSAMPLED, "/test-measured-key",
+                lock, null);
+        ArgumentCaptor<ConnectionStateListener> listenerCaptor = ArgumentCaptor.forClass(ConnectionStateListener.class);
+        verify(client.getConnectionStateListenable(), times(2)).addListener(listenerCaptor.capture());
+        ConnectionStateListener listener = listenerCaptor.getAllValues().get(1);
+
+        // Act
+        listener.stateChanged(client, ConnectionState.SUSPENDED);
+        listener.stateChanged(client, ConnectionState.LOST);
+
+        // Assert
+        assertTrue(measured.isLockLost());
+        verify(metrics).lost(eq("/test-measured-key"), anyLong());
+        verifyNoMoreInteractions(metrics);
+    }
+
     @Test
     void shouldConsiderLockLostWhenConnectionStateIsSuspended() {
         // Arrange
@@ -154,4 +187,148 @@ class ZookeeperMonitoredLockAcquisitionTest {
         assertFalse(lockAcquisition.isAcquired());
         assertEquals("/test-key", exception.getKey());
     }
+
+    @Test
+    void shouldPassCheckpointUntilLockLost() {
+        // Arrange
+        ArgumentCaptor<ConnectionStateListener> listenerCaptor = ArgumentCaptor.forClass(ConnectionStateListener.class);
+        verify(client.getConnectionStateListenable()).addListener(listenerCaptor.capture());
+        final ConnectionStateListener listener = listenerCaptor.getValue();
+
+        // Act & Assert
+        assertDoesNotThrow(lockAcquisition::checkpoint);
+        lockAcquisition.suspect();
+        assertDoesNotThrow(lockAcquisition::checkpoint);
+        assertEquals(LockState.IN_DOUBT, lockAcquisition.state());
+
+        // Act
+        listener.stateChanged(client, ConnectionState.LOST);
+
+        // Assert
+        ZookeeperLockLostException exception = assertThrows(ZookeeperLockLostException.class, lockAcquisition::checkpoint);
+        assertEquals("Lock lost for key: /test-key", exception.getMessage());
+        assertEquals(LockState.NOT_HELD, lockAcquisition.state());
+    }
+
+    @Test
+    void shouldFailCheckpointOnceReleased() throws Exception {
+        // Act
+        lockAcquisition.release();
+
+        // Assert
+        ZookeeperLockLostException exception = assertThrows(ZookeeperLockLostException.class, lockAcquisition::checkpoint);
+        assertEquals("Lock released for key: /test-key", exception.getMessage());
+    }
+
+    @Test
+    void shouldLoseLockOnceLeasePassedWithoutRenewal() throws Exception {
+        // Arrange: a lease that is never renewed, as if the renewal task stalled
+        LockLease lease = new LockLease("/test-key/lease-0000000001", Duration.ofMillis(100), System.nanoTime());
+        ZookeeperMonitoredLockAcquisition acquisition = new ZookeeperMonitoredLockAcquisition(
+            new ConnectionStateRegistry(client), null, LockMetrics.NOOP, FailureLog.UNSAMPLED, "/test-key", lock, lease);
+        CompletableFuture<Void> lost = new CompletableFuture<>();
+        acquisition.onLost(() -> lost.complete(null));
+        assertEquals(LockState.HELD, acquisition.state());
+
+        // Act
+        Thread.sleep(150);
+
+        // Assert
+        assertEquals(LockState.NOT_HELD, acquisition.state());
+        assertFalse(acquisition.isAcquired());
+        ZookeeperLockLostException exception = assertThrows(ZookeeperLockLostException.class, acquisition::checkpoint);
+        assertEquals("Lock lost for key: /test-key", exception.getMessage());
+        assertFalse(lease.isActive());
+        lost.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldRunLostCallbacksOnceWhenLockLost() throws Exception {
+        // Arrange
+        ArgumentCaptor<ConnectionStateListener> listenerCaptor = ArgumentCaptor.forClass(ConnectionStateListener.class);
+        verify(client.getConnectionStateListenable()).addListener(listenerCaptor.capture());
+        ConnectionStateListener listener = listenerCaptor.getValue();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<Void> called = new CompletableFuture<>();
+        lockAcquisition.onLost(() -> {
+            calls.incrementAndGet();
+            called.complete(null);
+        });
+
+        // Act
+        listener.stateChanged(client, ConnectionState.SUSPENDED);
+        listener.stateChanged(client, ConnectionState.LOST);
+
+        // Assert
+        called.get(5, TimeUnit.SECONDS);
+        assertEquals(1, calls.get());
+
+        // Act: register once the lock has been lost
+        CompletableFuture<Void> late = new CompletableFuture<>();
+        lockAcquisition.onLost(() -> late.complete(null));
+
+        // Assert
+        late.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldNotRunLostCallbacksWhenReleased() throws Exception {
+        // Arrange
+        ArgumentCaptor<ConnectionStateListener> listenerCaptor = ArgumentCaptor.forClass(ConnectionStateListener.class);
+        verify(client.getConnectionStateListenable()).addListener(listenerCaptor.capture());
+        ConnectionStateListener listener = listenerCaptor.getValue();
+        AtomicBoolean called = new AtomicBoolean();
+        lockAcquisition.onLost(() -> called.set(true));
+
+        // Act
+        lockAcquisition.release();
+        listener.stateChanged(client, ConnectionState.LOST);
+
+        // Assert
+        ForkJoinPool.commonPool().awaitQuiescence(1, TimeUnit.SECONDS);
+        assertFalse(called.get());
+    }
+
+    @Test
+    void shouldDropLostCallbacksOnceReleased() throws Exception {
+        // Arrange
+        AtomicBoolean called = new AtomicBoolean();
+        Runnable registeredBefore = () -> called.set(true);
+        final WeakReference<Runnable> before = new WeakReference<>(registeredBefore);
+        lockAcquisition.onLost(registeredBefore);
+        registeredBefore = null;
+
+        // Act
+        lockAcquisition.release();
+        Runnable registeredAfter = () -> called.set(true);
+        WeakReference<Runnable> after = new WeakReference<>(registeredAfter);
+        lockAcquisition.onLost(registeredAfter);
+        registeredAfter = null;
+        for (int i = 0; i < 10 && (before.get() != null || after.get() != null); i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        // Assert
+        assertNull(before.get());
+        assertNull(after.get());
+        ForkJoinPool.commonPool().awaitQuiescence(1, TimeUnit.SECONDS);
+        assertFalse(called.get());
+    }
+
+    @Test
+    void shouldKeepFencingTokenOfLockNodeAfterRelease() throws Exception {
+        // Arrange
+        NodeBackedLock nodeBackedLock = mock(NodeBackedLock.class);
+        when(nodeBackedLock.fencingToken()).thenReturn(OptionalLong.of(42L));
+        ZookeeperMonitoredLockAcquisition acquisition =
+            new ZookeeperMonitoredLockAcquisition(client, "/test-fenced-key", nodeBackedLock);
+
+        // Act
+        acquisition.release();
+
+        // Assert
+        assertEquals(OptionalLong.of(42L), acquisition.fencingToken());
+        assertFalse(lockAcquisition.fencingToken().isPresent());
+    }
 }
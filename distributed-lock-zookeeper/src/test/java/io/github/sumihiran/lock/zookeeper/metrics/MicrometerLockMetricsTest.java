@@ -0,0 +1,106 @@
+package io.github.sumihiran.lock.zookeeper.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicrometerLockMetricsTest {
+
+    MeterRegistry registry;
+    MicrometerLockMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new MicrometerLockMetrics(registry);
+    }
+
+    @Test
+    void shouldRecordWaitAndHoldTimesPerKeyPrefix() {
+        // Act
+        metrics.acquireStarted("/orders/1");
+        metrics.acquireStarted("/orders/2");
+        metrics.acquired("/orders/1", TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.acquired("/orders/2", TimeUnit.MILLISECONDS.toNanos(15));
+        metrics.released("/orders/1", TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Assert
+        assertEquals(2, registry.get("zookeeper.lock.wait").tag("prefix", "/orders").timer().count());
+        assertEquals(20, registry.get("zookeeper.lock.wait").tag("prefix", "/orders").timer()
+            .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, registry.get("zookeeper.lock.hold").tag("prefix", "/orders").timer().count());
+        assertEquals(0, registry.get("zookeeper.lock.waiting").tag("prefix", "/orders").gauge().value());
+        assertEquals(1, registry.get("zookeeper.lock.held").tag("prefix", "/orders").gauge().value());
+    }
+
+    @Test
+    void shouldCountTimeoutsFailuresAndLostLocks() {
+        // Act
+        metrics.acquireStarted("/orders/1");
+        metrics.acquireTimedOut("/orders/1", 1);
+        metrics.acquireStarted("/payments/1");
+        metrics.acquireFailed("/payments/1", 1);
+        metrics.acquireStarted("/payments/2");
+        metrics.acquired("/payments/2", 1);
+        metrics.lost("/payments/2", 1);
+
+        // Assert
+        assertEquals(1, registry.get("zookeeper.lock.timeouts").tag("prefix", "/orders").counter().count());
+        assertEquals(1, registry.get("zookeeper.lock.failures").tag("prefix", "/payments").counter().count());
+        assertEquals(1, registry.get("zookeeper.lock.lost").tag("prefix", "/payments").counter().count());
+        assertEquals(0, registry.get("zookeeper.lock.waiting").tag("prefix", "/payments").gauge().value());
+        assertEquals(0, registry.get("zookeeper.lock.held").tag("prefix", "/payments").gauge().value());
+    }
+
+    @Test
+    void shouldShareGaugesBetweenInstancesOfSameRegistry() {
+        // Arrange
+        MicrometerLockMetrics other = new MicrometerLockMetrics(registry);
+
+        // Act
+        metrics.acquireStarted("/orders/1");
+        other.acquireStarted("/orders/2");
+        other.acquired("/orders/2", 1);
+
+        // Assert
+        assertEquals(1, registry.get("zookeeper.lock.waiting").tag("prefix", "/orders").gauge().value());
+        assertEquals(1, registry.get("zookeeper.lock.held").tag("prefix", "/orders").gauge().value());
+    }
+
+    @Test
+    void shouldRecordKeysBeyondCacheUnderTheirPrefix() {
+        // Arrange
+        for (int i = 0; i < MicrometerLockMetrics.MAX_CACHED_KEYS; i++) {
+            metrics.acquireTimedOut("/orders/" + i, 1);
+        }
+
+        // Act
+        metrics.acquireTimedOut("/orders/uncached", 1);
+        metrics.acquireTimedOut("/ordersuncached", 1);
+        metrics.acquireTimedOut("/payments/uncached", 1);
+
+        // Assert
+        assertEquals(MicrometerLockMetrics.MAX_CACHED_KEYS + 1,
+            registry.get("zookeeper.lock.timeouts").tag("prefix", "/orders").counter().count());
+        assertEquals(1, registry.get("zookeeper.lock.timeouts").tag("prefix", "/ordersuncached").counter().count());
+        assertEquals(1, registry.get("zookeeper.lock.timeouts").tag("prefix", "/payments").counter().count());
+    }
+
+    @Test
+    void shouldUseCustomKeyPrefix() {
+        // Arrange
+        metrics = new MicrometerLockMetrics(registry, key -> "all");
+
+        // Act
+        metrics.acquireStarted("/orders/1");
+        metrics.acquired("/orders/1", 1);
+
+        // Assert
+        assertEquals(1, registry.get("zookeeper.lock.wait").tag("prefix", "all").timer().count());
+    }
+}
@@ -0,0 +1,517 @@
+package io.github.sumihiran.lock.zookeeper;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessMutex;
+import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreMutex;
+import org.apache.curator.retry.RetryOneTime;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs on JDK 21 with {@code -Djdk.tracePinnedThreads=full} against the multi-release classes.
+ */
+class VirtualThreadAcquisitionTest {
+
+    static final int VIRTUAL_THREADS = 100_000;
+    static final int MONITOR_LOCKS = 1_000;
+    static final int SAME_KEY_WAITERS = 400;
+
+    @Test
+    void shouldKeepVirtualThreadsWaitingInsideLocksAtTheSameTime() throws Exception {
+        // Arrange
+        CompletableFuture<Boolean> gate = new CompletableFuture<>();
+        AtomicInteger waiting = new AtomicInteger();
+
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream pinnedThreadTraces = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(pinnedThreadTraces, true));
+
+        try (CuratorFramework client = CuratorFrameworkFactory.newClient("127.0.0.1:1", new RetryOneTime(1000));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            client.start();
+            ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client, path -> new GatedLock(gate, waiting));
+
+            // Act
+            List<Future<Boolean>> acquisitions = new ArrayList<>(VIRTUAL_THREADS);
+            for (int i = 0; i < VIRTUAL_THREADS; i++) {
+                String key = "/test-key-" + i;
+                acquisitions.add(executor.submit(() -> {
+                    try (Acquisition acquisition = distributedLock.acquire(key, Duration.ofMinutes(1))) {
+                        return acquisition.isAcquired();
+                    }
+                }));
+            }
+            long deadlineNanos = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+            while (waiting.get() < VIRTUAL_THREADS && System.nanoTime() < deadlineNanos) {
+                Thread.sleep(10);
+            }
+            int waitingAtOnce = waiting.get();
+            int platformThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+            gate.complete(true);
+
+            // Assert
+            assertEquals(VIRTUAL_THREADS, waitingAtOnce);
+            assertTrue(platformThreads < 1_000, "platform threads: " + platformThreads);
+            for (Future<Boolean> acquisition : acquisitions) {
+                assertTrue(acquisition.get(1, TimeUnit.MINUTES));
+            }
+        } finally {
+            System.setOut(originalOut);
+        }
+
+        assertFalse(pinnedThreadTraces.toString().contains("<== monitors"), pinnedThreadTraces::toString);
+    }
+
+    @Test
+    void shouldAcquireLocksOnSequentialNodesOnVirtualThreads() throws Exception {
+        // Arrange
+        try (CuratorFramework client = CuratorFrameworkFactory.newClient("127.0.0.1:1", new RetryOneTime(1000));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client);
+            ZookeeperDistributedLock customLock = new ZookeeperDistributedLock(client, path -> new InterProcessMutex(client, path));
+
+            // Act
+            List<InterProcessLock> virtualThreadLocks = executor.submit(() -> List.of(
+                distributedLock.lockFunction().apply("/test-key"),
+                distributedLock.readLockFunction().apply("/test-key"),
+                distributedLock.writeLockFunction().apply("/test-key"),
+                customLock.lockFunction().apply("/test-key"))).get();
+
+            // Assert
+            assertInstanceOf(SequentialNodeLock.class, virtualThreadLocks.get(0));
+            assertInstanceOf(SequentialNodeLock.class, virtualThreadLocks.get(1));
+            assertInstanceOf(SequentialNodeLock.class, virtualThreadLocks.get(2));
+            assertInstanceOf(InterProcessMutex.class, virtualThreadLocks.get(3));
+            assertInstanceOf(InterProcessSemaphoreMutex.class, distributedLock.lockFunction().apply("/test-key"));
+            assertInstanceOf(InterProcessMutex.class, distributedLock.readLockFunction().apply("/test-key"));
+            assertInstanceOf(InterProcessMutex.class, distributedLock.writeLockFunction().apply("/test-key"));
+            distributedLock.close();
+        }
+    }
+
+    @Test
+    void shouldAcquireFreeKeyWhileVirtualThreadsWaitOnBusyKey() throws Exception {
+        // Arrange
+        KeyMonitor busy = new KeyMonitor();
+        KeyMonitor free = new KeyMonitor();
+        try (CuratorFramework client = CuratorFrameworkFactory.newClient("127.0.0.1:1", new RetryOneTime(1000));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            client.start();
+            ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(
+                client, path -> new SharedMonitorLock(path.equals("/busy-key") ? busy : free));
+            busy.held.set(true);
+            List<Future<Boolean>> busyAcquisitions = new ArrayList<>(SAME_KEY_WAITERS);
+            for (int i = 0; i < SAME_KEY_WAITERS; i++) {
+                busyAcquisitions.add(executor.submit(() -> {
+                    try (Acquisition acquisition = distributedLock.acquire("/busy-key", Duration.ofSeconds(30))) {
+                        return acquisition.isAcquired();
+                    }
+                }));
+            }
+            while (busy.waiting.get() < SAME_KEY_WAITERS) {
+                Thread.sleep(10);
+            }
+
+            // Act
+            Future<Boolean> freeAcquisition = executor.submit(() -> {
+                try (Acquisition acquisition = distributedLock.acquire("/free-key", Duration.ofSeconds(1))) {
+                    return acquisition.isAcquired();
+                }
+            });
+
+            // Assert
+            assertTrue(freeAcquisition.get(10, TimeUnit.SECONDS));
+            busy.release();
+            for (Future<Boolean> acquisition : busyAcquisitions) {
+                assertTrue(acquisition.get(1, TimeUnit.MINUTES));
+            }
+        }
+        assertEquals(1, free.acquisitions.get());
+        assertEquals(SAME_KEY_WAITERS, busy.acquisitions.get());
+        assertFalse(busy.overlapped);
+    }
+
+    @Test
+    void shouldGiveUpAtDeadlineOnLocksIgnoringTheirTimeout() throws Exception {
+        // Arrange
+        UnboundedMonitorLock lock = new UnboundedMonitorLock();
+        try (CuratorFramework client = CuratorFrameworkFactory.newClient("127.0.0.1:1", new RetryOneTime(1000));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            client.start();
+            ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client, path -> lock);
+            long startNanos = System.nanoTime();
+
+            // Act
+            List<Future<Optional<Acquisition>>> acquisitions = new ArrayList<>(SAME_KEY_WAITERS);
+            for (int i = 0; i < SAME_KEY_WAITERS; i++) {
+                acquisitions.add(executor.submit(() -> distributedLock.tryAcquire("/test-key", Duration.ofMillis(200))));
+            }
+
+            // Assert
+            for (Future<Optional<Acquisition>> acquisition : acquisitions) {
+                assertFalse(acquisition.get(1, TimeUnit.MINUTES).isPresent());
+            }
+            assertTrue(System.nanoTime() - startNanos < TimeUnit.SECONDS.toNanos(10));
+        }
+        // the platform threads waiting for the lock have been interrupted
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (lock.waiting.get() > 0 && System.nanoTime() < deadlineNanos) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, lock.waiting.get());
+    }
+
+    @Test
+    void shouldNotPinCarrierThreadsWhileVirtualThreadsWaitOnLocks() throws Exception {
+        // Arrange
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicInteger waiting = new AtomicInteger();
+        AtomicInteger waitingOnVirtualThreads = new AtomicInteger();
+
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream pinnedThreadTraces = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(pinnedThreadTraces, true));
+
+        // the client only has to be started, no lock in this test talks to Zookeeper
+        try (CuratorFramework client = CuratorFrameworkFactory.newClient("127.0.0.1:1", new RetryOneTime(1000));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            client.start();
+            ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(
+                client, path -> new MonitorLock(gate, waiting, waitingOnVirtualThreads));
+
+            // Act: distinct keys, so only the virtual threads parked on the offload are checked for pinning
+            List<Future<Boolean>> acquisitions = new ArrayList<>(MONITOR_LOCKS);
+            for (int i = 0; i < MONITOR_LOCKS; i++) {
+                String key = "/test-key-" + i;
+                acquisitions.add(executor.submit(() -> {
+                    try (Acquisition acquisition = distributedLock.acquire(key, Duration.ofMinutes(1))) {
+                        return acquisition.isAcquired();
+                    }
+                }));
+            }
+            while (waiting.get() == 0) {
+                Thread.sleep(10);
+            }
+            gate.countDown();
+
+            // Assert
+            for (Future<Boolean> acquisition : acquisitions) {
+                assertTrue(acquisition.get(1, TimeUnit.MINUTES));
+            }
+        } finally {
+            System.setOut(originalOut);
+        }
+
+        assertEquals(MONITOR_LOCKS, waiting.get());
+        assertEquals(0, waitingOnVirtualThreads.get());
+        assertFalse(pinnedThreadTraces.toString().contains("<== monitors"), pinnedThreadTraces::toString);
+    }
+
+    @Test
+    void shouldReleaseWhileMoreVirtualThreadsThanPlatformThreadsWaitOnSameKey() throws Exception {
+        // Arrange
+        KeyMonitor monitor = new KeyMonitor();
+        try (CuratorFramework client = CuratorFrameworkFactory.newClient("127.0.0.1:1", new RetryOneTime(1000));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            client.start();
+            ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(client, path -> new SharedMonitorLock(monitor));
+
+            // Act
+            List<Future<Boolean>> acquisitions = submitSameKeyWaiters(executor, distributedLock, monitor);
+
+            // Assert
+            for (Future<Boolean> acquisition : acquisitions) {
+                assertTrue(acquisition.get(1, TimeUnit.MINUTES));
+            }
+        }
+        assertEquals(SAME_KEY_WAITERS, monitor.acquisitions.get());
+        assertFalse(monitor.overlapped);
+    }
+
+    @Test
+    void shouldHoldMutexOnOwnerThreadWhileMoreVirtualThreadsThanPlatformThreadsWaitOnSameKey() throws Exception {
+        // Arrange
+        KeyMonitor monitor = new KeyMonitor();
+        try (CuratorFramework client = CuratorFrameworkFactory.newClient("127.0.0.1:1", new RetryOneTime(1000));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            client.start();
+            ZookeeperDistributedLock distributedLock = new ZookeeperDistributedLock(
+                client, path -> new ThreadBoundMutex(client, path, monitor));
+
+            // Act
+            List<Future<Boolean>> acquisitions = submitSameKeyWaiters(executor, distributedLock, monitor);
+
+            // Assert
+            for (Future<Boolean> acquisition : acquisitions) {
+                assertTrue(acquisition.get(1, TimeUnit.MINUTES));
+            }
+        }
+        assertEquals(SAME_KEY_WAITERS, monitor.acquisitions.get());
+        assertFalse(monitor.overlapped);
+        assertFalse(monitor.acquiredOnVirtualThread);
+    }
+
+    private static List<Future<Boolean>> submitSameKeyWaiters(
+        ExecutorService executor, ZookeeperDistributedLock distributedLock, KeyMonitor monitor) throws Exception {
+        List<Future<Boolean>> acquisitions = new ArrayList<>(SAME_KEY_WAITERS);
+        monitor.held.set(true);
+        for (int i = 0; i < SAME_KEY_WAITERS; i++) {
+            acquisitions.add(executor.submit(() -> {
+                try (Acquisition acquisition = distributedLock.acquire("/test-key", Duration.ofSeconds(30))) {
+                    Thread.sleep(1);
+                    return acquisition.isAcquired();
+                }
+            }));
+        }
+        // let all waiters queue up on the held lock before handing it over
+        while (monitor.waiting.get() < 200) {
+            Thread.sleep(10);
+        }
+        monitor.release();
+        return acquisitions;
+    }
+
+    /**
+     * The state of a lock shared by all recipes of a key, which waits on an object monitor like Curator's
+     * recipes.
+     */
+    static final class KeyMonitor {
+
+        final AtomicBoolean held = new AtomicBoolean();
+        final AtomicInteger waiting = new AtomicInteger();
+        final AtomicInteger acquisitions = new AtomicInteger();
+        volatile boolean overlapped;
+        volatile boolean acquiredOnVirtualThread;
+
+        synchronized boolean acquire(long time, TimeUnit unit) throws InterruptedException {
+            acquiredOnVirtualThread |= Thread.currentThread().isVirtual();
+            long deadlineNanos = System.nanoTime() + unit.toNanos(time);
+            waiting.incrementAndGet();
+            try {
+                while (!held.compareAndSet(false, true)) {
+                    long remainingNanos = deadlineNanos - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+            acquisitions.incrementAndGet();
+            return true;
+        }
+
+        synchronized void release() {
+            overlapped |= !held.getAndSet(false);
+            notifyAll();
+        }
+    }
+
+    /**
+     * A lock that is not bound to the acquiring thread, like Curator's {@code InterProcessSemaphoreMutex}.
+     */
+    static final class SharedMonitorLock implements InterProcessLock {
+
+        private final KeyMonitor monitor;
+
+        SharedMonitorLock(KeyMonitor monitor) {
+            this.monitor = monitor;
+        }
+
+        @Override
+        public void acquire() throws Exception {
+            acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) throws Exception {
+            return monitor.acquire(time, unit);
+        }
+
+        @Override
+        public void release() {
+            monitor.release();
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return monitor.held.get();
+        }
+    }
+
+    /**
+     * A mutex that, like {@link InterProcessMutex}, can only be released by the thread that acquired it.
+     */
+    static final class ThreadBoundMutex extends InterProcessMutex {
+
+        private final KeyMonitor monitor;
+        private volatile Thread owner;
+
+        ThreadBoundMutex(CuratorFramework client, String path, KeyMonitor monitor) {
+            super(client, path);
+            this.monitor = monitor;
+        }
+
+        @Override
+        public void acquire() throws Exception {
+            acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) throws Exception {
+            if (!monitor.acquire(time, unit)) {
+                return false;
+            }
+            owner = Thread.currentThread();
+            return true;
+        }
+
+        @Override
+        public void release() {
+            if (owner != Thread.currentThread()) {
+                throw new IllegalMonitorStateException("You do not own the lock");
+            }
+            owner = null;
+            monitor.release();
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return owner != null;
+        }
+    }
+
+    /**
+     * A lock that, like Curator's recipes, blocks while holding an object monitor.
+     */
+    static final class MonitorLock implements InterProcessLock {
+
+        private final CountDownLatch gate;
+        private final AtomicInteger waiting;
+        private final AtomicInteger waitingOnVirtualThreads;
+
+        MonitorLock(CountDownLatch gate, AtomicInteger waiting, AtomicInteger waitingOnVirtualThreads) {
+            this.gate = gate;
+            this.waiting = waiting;
+            this.waitingOnVirtualThreads = waitingOnVirtualThreads;
+        }
+
+        @Override
+        public void acquire() throws Exception {
+            acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public synchronized boolean acquire(long time, TimeUnit unit) throws Exception {
+            waiting.incrementAndGet();
+            if (Thread.currentThread().isVirtual()) {
+                waitingOnVirtualThreads.incrementAndGet();
+            }
+            return gate.await(time, unit);
+        }
+
+        @Override
+        public synchronized void release() {
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return false;
+        }
+    }
+
+    /**
+     * A lock that, like {@link SequentialNodeLock}, completes a future once it is acquired, which is opened for
+     * all waiters at once.
+     */
+    static final class GatedLock implements AsyncLock {
+
+        private final CompletableFuture<Boolean> gate;
+        private final AtomicInteger waiting;
+
+        GatedLock(CompletableFuture<Boolean> gate, AtomicInteger waiting) {
+            this.gate = gate;
+            this.waiting = waiting;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> acquireAsync(long time, TimeUnit unit) {
+            waiting.incrementAndGet();
+            return gate.copy();
+        }
+
+        @Override
+        public void acquire() throws Exception {
+            acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) throws Exception {
+            return acquireAsync(time, unit).get();
+        }
+
+        @Override
+        public void release() {
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return gate.isDone();
+        }
+    }
+
+    /**
+     * A lock that waits on an object monitor until it is interrupted, regardless of the timeout.
+     */
+    static final class UnboundedMonitorLock implements InterProcessLock {
+
+        final AtomicInteger waiting = new AtomicInteger();
+
+        @Override
+        public void acquire() throws Exception {
+            acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public synchronized boolean acquire(long time, TimeUnit unit) throws Exception {
+            waiting.incrementAndGet();
+            try {
+                while (true) {
+                    wait();
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void release() {
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return false;
+        }
+    }
+}
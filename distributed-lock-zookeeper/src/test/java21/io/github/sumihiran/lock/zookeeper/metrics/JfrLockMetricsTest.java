@@ -0,0 +1,54 @@
+package io.github.sumihiran.lock.zookeeper.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Nuwan Bandara
+ */
+class JfrLockMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldEmitAcquireAndReleaseEvents() throws Exception {
+        // Arrange
+        assertTrue(JfrLockMetrics.isSupported());
+        JfrLockMetrics metrics = new JfrLockMetrics();
+        Path file = tempDir.resolve("lock.jfr");
+
+        // Act
+        try (Recording recording = new Recording()) {
+            recording.enable(LockAcquireEvent.NAME);
+            recording.enable(LockReleaseEvent.NAME);
+            recording.start();
+            metrics.acquired("/test-key", Duration.ofMillis(5).toNanos());
+            metrics.acquireTimedOut("/test-key", Duration.ofMillis(10).toNanos());
+            metrics.lost("/test-key", Duration.ofSeconds(1).toNanos());
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Assert
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+            .filter(event -> event.getEventType().getName().startsWith("io.github.sumihiran"))
+            .collect(Collectors.toList());
+        assertEquals(3, events.size());
+        assertEquals("acquired", events.get(0).getString("outcome"));
+        assertEquals(Duration.ofMillis(5), events.get(0).getDuration("waitTime"));
+        assertEquals("timeout", events.get(1).getString("outcome"));
+        assertTrue(events.get(2).getBoolean("lost"));
+        assertEquals("/test-key", events.get(2).getString("key"));
+    }
+}